@@ -1,28 +1,392 @@
 package assignment3;
 
+import java.io.File;
 import java.io.IOException;
-import spoon.Launcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 
 /**
- * This class executes the transformation
+ * This class executes the transformation. It can transform several modules
+ * in the same JVM, so that the JVM and Spoon are started only once; the
+ * options of each module are separated by "--" and a module starts with the
+ * options of the previous one.
+ *
+ * The paths can be given with "/" on every operating system. The coverage,
+ * the built classes, the coverage cache and the metrics are looked up in
+ * the build directory of the module unless they are given explicitly.
+ *
+ * Besides the transformed sources, a module can keep the methods reachable
+ * from entry points ({@link CallGraph}), write a jar of the reduced classes
+ * ({@link BytecodeReducer}) and print the tests that cover changed classes
+ * or methods ({@link TestImpactMatrix}).
  *
  * @author Cesar Soto-Valero
  */
 public class AssignmentRunner {
 
+    private static final String USAGE
+            = "usage: AssignmentRunner [options] [-- [options] ...]\n"
+            + "  -i, --input <dir>        sources to transform (default: src/main/java/org)\n"
+            + "  -o, --output <dir>       where the transformed sources are written (default: output/)\n"
+            + "  -t, --target <dir>       build directory of the module (default: target)\n"
+            + "  -c, --coverage <dir>     Junco coverage (default: <target>/site/junco)\n"
+            + "  -b, --classes <dir>      built classes (default: <target>/classes)\n"
+            + "  -j, --parallelism <n>    packages transformed at the same time (default: 1)\n"
+            + "  -m, --mode <mode>        \"methods\" to remove the methods that were not covered,\n"
+            + "                           \"lines\" to prune the branches that were not executed too\n"
+            + "                           (default: methods)\n"
+            + "      --bundle <pattern>   classes under analysis, can be repeated\n"
+            + "                           (default: org.apache.commons.io.)\n"
+            + "      --entry-point <m>    keep the methods reachable from an entry point too, given as\n"
+            + "                           <class pattern>[#<method>[<descriptor>]], can be repeated\n"
+            + "      --jar <mode>         write the reduced classes to <target>/reduced.jar, \"remove\"\n"
+            + "                           to remove the methods, \"stub\" to replace their body, and\n"
+            + "                           the unreduced ones to <target>/original.jar to compare\n"
+            + "      --changed <change>   print the tests that cover a changed class or method, as\n"
+            + "                           <class>[#<method>[<descriptor>]], and save the test impact\n"
+            + "                           matrix to <target>/junco-matrix.bin, can be repeated\n"
+            + "  -q, --quiet              print only a summary of the coverage\n"
+            + "  -h, --help               print this message\n";
+
     public static void main(String[] args) throws IOException {
 
-        final String[] param = {
-            "-i", "src/main/java/org",
-            "-o", "output/",
-            "-p", "assignment3.SpoonProcessor",
-            "-c"
-        };
+        List<Options> modules;
+        try {
+            modules = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+        if (modules.isEmpty()) {
+            System.out.print(USAGE);
+            return;
+        }
+
+        for (Options module : modules) {
+            run(module);
+        }
+    }
+
+    /**
+     * Transforms a module and saves the metrics of the reduction in its build
+     * directory
+     *
+     * @param options The options of the module
+     * @throws IOException
+     */
+    static void run(Options options) throws IOException {
+        JuncoProcessor p = new JuncoProcessor(options.bundle, options.getCoveragePath(), options.getBuiltClassesPath());
+        p.setParallelism(options.parallelism);
+        p.setCoverageCache(CoverageCache.open(new File(options.targetPath, "junco-coverage.idx")));
+        if (options.quiet) {
+            p.setReporter(CoverageReporters.summary(System.out));
+        }
+        // the lines are analyzed in the same pass as the methods
+        LineCoverage lines = options.pruneLines ? new LineCoverage() : null;
+        CoverageIndex index = p.processIndex(lines);
+        if (!options.entryPoints.isEmpty()) {
+            CoverageIndex covered = index;
+            index = CallGraph.build(ClassFileCache.load(options.getBuiltClassesPath())).reachable(covered, options.entryPoints);
+            System.out.printf("%d covered methods, %d reachable methods%n", covered.size(), index.size());
+        }
+        ParallelSpoonRunner runner = new ParallelSpoonRunner(options.inputPath, options.outputPath,
+                options.getBuiltClassesPath(), index, options.parallelism);
+        if (lines != null) {
+            runner.setCoveredLines(lines);
+        }
+        runner.setMetrics(p.getMetrics());
+        runner.run();
+
+        if (options.jarMode != null) {
+            File classes = new File(options.getBuiltClassesPath());
+            // the classes without coverage are kept, so nothing is reduced
+            File original = new File(options.targetPath, "original.jar");
+            new BytecodeReducer(new CoverageIndex(), options.jarMode).reduce(classes, original);
+            BytecodeReducer reducer = new BytecodeReducer(index, options.jarMode);
+            File jar = new File(options.targetPath, "reduced.jar");
+            reducer.reduce(classes, jar);
+            System.out.printf("%d methods of %d classes reduced (%s)%n",
+                    reducer.getReducedMethods(), reducer.getReducedClasses(), options.jarMode);
+            System.out.printf("%s: %d bytes%n", original, original.length());
+            System.out.printf("%s: %d bytes (%.1f%% smaller)%n", jar, jar.length(),
+                    100.0 - 100.0 * jar.length() / original.length());
+        }
+        if (!options.changes.isEmpty()) {
+            TestImpactMatrix matrix = p.processMatrix();
+            matrix.save(new File(options.targetPath, "junco-matrix.bin"));
+            for (String test : matrix.selectTests(options.changes)) {
+                System.out.println(test);
+            }
+        }
+
+        // the metrics of the nightly reduction
+        p.getMetrics().save(new File(options.targetPath, "reduction-metrics.json"));
+        p.getMetrics().save(new File(options.targetPath, "reduction-metrics.csv"));
+    }
+
+    /**
+     * Parses the command line. The old form "&lt;parallelism&gt; [lines]" is
+     * still accepted.
+     *
+     * @param args The arguments
+     * @return The options of each module, empty if the help was requested
+     * @throws IllegalArgumentException if an argument is not valid
+     */
+    static List<Options> parse(String[] args) {
+        List<Options> modules = new ArrayList<>();
+        Options current = new Options();
+        List<String> bundle = null;
+        List<String> entryPoints = null;
+        List<String> changes = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-h":
+                case "--help":
+                    return new ArrayList<>();
+                case "--":
+                    current.setLists(bundle, entryPoints, changes);
+                    modules.add(current);
+                    current = new Options(current);
+                    bundle = null;
+                    entryPoints = null;
+                    changes = null;
+                    break;
+                case "-i":
+                case "--input":
+                    current.inputPath = value(args, ++i, arg);
+                    break;
+                case "-o":
+                case "--output":
+                    current.outputPath = value(args, ++i, arg);
+                    break;
+                case "-t":
+                case "--target":
+                    current.targetPath = value(args, ++i, arg);
+                    break;
+                case "-c":
+                case "--coverage":
+                    current.coveragePath = value(args, ++i, arg);
+                    break;
+                case "-b":
+                case "--classes":
+                    current.builtClassesPath = value(args, ++i, arg);
+                    break;
+                case "-j":
+                case "--parallelism":
+                    current.parallelism = parallelism(value(args, ++i, arg));
+                    break;
+                case "-m":
+                case "--mode":
+                    current.pruneLines = pruneLines(value(args, ++i, arg));
+                    break;
+                case "--bundle":
+                    bundle = add(bundle, value(args, ++i, arg));
+                    break;
+                case "--entry-point":
+                    entryPoints = add(entryPoints, value(args, ++i, arg));
+                    break;
+                case "--jar":
+                    current.jarMode = jarMode(value(args, ++i, arg));
+                    break;
+                case "--changed":
+                    changes = add(changes, value(args, ++i, arg));
+                    break;
+                case "-q":
+                case "--quiet":
+                    current.quiet = true;
+                    break;
+                default:
+                    if (arg.startsWith("-")) {
+                        throw new IllegalArgumentException("unknown option: " + arg);
+                    }
+                    // AssignmentRunner <parallelism> [lines]
+                    if (i == 0) {
+                        current.parallelism = parallelism(arg);
+                    } else if (i == 1 && arg.equals("lines")) {
+                        current.pruneLines = true;
+                    } else {
+                        throw new IllegalArgumentException("unexpected argument: " + arg);
+                    }
+            }
+        }
+        current.setLists(bundle, entryPoints, changes);
+        modules.add(current);
+        return modules;
+    }
+
+    /**
+     * Adds a value of an option that can be repeated
+     *
+     * @return The values of the option, created with the first one
+     */
+    private static List<String> add(List<String> values, String value) {
+        if (values == null) {
+            values = new ArrayList<>();
+        }
+        values.add(value);
+        return values;
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("missing value of " + option);
+        }
+        return args[i];
+    }
+
+    private static int parallelism(String value) {
+        try {
+            int parallelism = Integer.parseInt(value);
+            if (parallelism >= 1) {
+                return parallelism;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("parallelism must be a positive number: " + value);
+    }
+
+    private static boolean pruneLines(String mode) {
+        switch (mode) {
+            case "methods":
+                return false;
+            case "lines":
+                return true;
+            default:
+                throw new IllegalArgumentException("unknown mode: " + mode);
+        }
+    }
+
+    private static BytecodeReducer.Mode jarMode(String mode) {
+        switch (mode) {
+            case "remove":
+            case "stub":
+                return BytecodeReducer.Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+            default:
+                throw new IllegalArgumentException("unknown jar mode: " + mode);
+        }
+    }
+
+    /**
+     * The options of a module
+     */
+    static final class Options {
+
+        /**
+         * Path to the sources to transform
+         */
+        String inputPath = "src/main/java/org";
+
+        /**
+         * Path where the transformed sources are written
+         */
+        String outputPath = "output/";
+
+        /**
+         * Build directory of the module
+         */
+        String targetPath = "target";
+
+        /**
+         * Path to the Junco coverage, null for the one in the build directory
+         */
+        String coveragePath;
+
+        /**
+         * Path to the built classes, null for the ones in the build directory
+         */
+        String builtClassesPath;
+
+        /**
+         * Number of packages transformed at the same time
+         */
+        int parallelism = 1;
+
+        /**
+         * true to prune the branches that were never executed too
+         */
+        boolean pruneLines;
+
+        /**
+         * The classes under analysis
+         */
+        List<String> bundle = Arrays.asList("org.apache.commons.io.");
+
+        /**
+         * true to print only a summary of the coverage
+         */
+        boolean quiet;
+
+        /**
+         * The methods called from outside the module, kept with the methods
+         * they reach, empty to keep only the covered methods
+         */
+        List<String> entryPoints = Collections.emptyList();
+
+        /**
+         * What is done with the methods of the reduced jar, null not to write
+         * it
+         */
+        BytecodeReducer.Mode jarMode;
+
+        /**
+         * The changed classes and methods whose tests are printed, empty not
+         * to select tests
+         */
+        List<String> changes = Collections.emptyList();
+
+        Options() {
+        }
+
+        /**
+         * Creates the options of a module with the options of the previous
+         * one
+         */
+        Options(Options previous) {
+            inputPath = previous.inputPath;
+            outputPath = previous.outputPath;
+            targetPath = previous.targetPath;
+            coveragePath = previous.coveragePath;
+            builtClassesPath = previous.builtClassesPath;
+            parallelism = previous.parallelism;
+            pruneLines = previous.pruneLines;
+            bundle = previous.bundle;
+            quiet = previous.quiet;
+            entryPoints = previous.entryPoints;
+            jarMode = previous.jarMode;
+            changes = previous.changes;
+        }
+
+        /**
+         * Sets the options that can be repeated, keeping the ones of the
+         * previous module for the options that were not given
+         */
+        private void setLists(List<String> bundle, List<String> entryPoints, List<String> changes) {
+            if (bundle != null) {
+                this.bundle = bundle;
+            }
+            if (entryPoints != null) {
+                this.entryPoints = entryPoints;
+            }
+            if (changes != null) {
+                this.changes = changes;
+            }
+        }
 
-        final Launcher launcher = new Launcher();
-        launcher.setArgs(param);
-        launcher.run();
+        String getCoveragePath() {
+            return coveragePath != null ? coveragePath : new File(new File(targetPath, "site"), "junco").getPath();
+        }
 
+        String getBuiltClassesPath() {
+            return builtClassesPath != null ? builtClassesPath : new File(targetPath, "classes").getPath();
+        }
     }
 
 }
@@ -0,0 +1,329 @@
+package assignment3;
+
+import java.util.Collections;
+import java.util.List;
+import org.jacoco.core.analysis.ICounter;
+import spoon.reflect.code.CtBlock;
+import spoon.reflect.code.CtBreak;
+import spoon.reflect.code.CtCFlowBreak;
+import spoon.reflect.code.CtCase;
+import spoon.reflect.code.CtCatch;
+import spoon.reflect.code.CtCodeSnippetStatement;
+import spoon.reflect.code.CtDo;
+import spoon.reflect.code.CtExpression;
+import spoon.reflect.code.CtFor;
+import spoon.reflect.code.CtIf;
+import spoon.reflect.code.CtLabelledFlowBreak;
+import spoon.reflect.code.CtLiteral;
+import spoon.reflect.code.CtLoop;
+import spoon.reflect.code.CtStatement;
+import spoon.reflect.code.CtSwitch;
+import spoon.reflect.code.CtSynchronized;
+import spoon.reflect.code.CtTry;
+import spoon.reflect.code.CtWhile;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+/**
+ * This class replaces the branches that were never executed by the test
+ * suite, inside the methods that were executed, with a throw of
+ * UnsupportedOperationException. The branches are the arms of the if
+ * statements whose condition was evaluated and the catch blocks of the try
+ * statements that were entered. A branch is pruned only if at least one of
+ * its lines has code and none of them was executed, and if it has no break
+ * or continue to a statement outside of it, which may be the only exit of a
+ * loop.
+ *
+ * The replacement completes normally if and only if the branch could, by the
+ * reachability rules of the JLS (14.21), so the code after the branch is
+ * still reachable and a method does not miss its return statement.
+ *
+ * @author Cesar Soto-Valero
+ */
+final class BranchPruner {
+
+    private static final String EXCEPTION = "throw new UnsupportedOperationException(\"branch was removed because it was not covered by the test suite\")";
+
+    /**
+     * The status of the source lines
+     */
+    private final LineCoverage coveredLines;
+
+    private final Factory factory;
+
+    /**
+     * Creates the pruner
+     *
+     * @param coveredLines The status of the source lines
+     * @param factory The factory of the model
+     */
+    BranchPruner(LineCoverage coveredLines, Factory factory) {
+        this.coveredLines = coveredLines;
+        this.factory = factory;
+    }
+
+    /**
+     * Prunes the branches of a method that were never executed
+     *
+     * @param className The fully-qualified name of the class of the method,
+     * as reported by JaCoCo
+     * @param method The method
+     * @return The number of pruned branches
+     */
+    int prune(String className, CtMethod<?> method) {
+        if (method.getBody() == null || !coveredLines.hasLines(className)) {
+            return 0;
+        }
+        int pruned = 0;
+
+        // the outer statements come first, the inner ones are discarded with them
+        for (CtIf ctIf : method.getElements(new TypeFilter<>(CtIf.class))) {
+            if (!isExecuted(className, ctIf.getCondition())) {
+                continue;
+            }
+            CtStatement thenStatement = ctIf.getThenStatement();
+            if (isPrunable(className, thenStatement)) {
+                ctIf.setThenStatement(replacement(thenStatement));
+                pruned++;
+            }
+            CtStatement elseStatement = ctIf.getElseStatement();
+            if (isPrunable(className, elseStatement)) {
+                ctIf.setElseStatement(replacement(elseStatement));
+                pruned++;
+            }
+        }
+        for (CtTry ctTry : method.getElements(new TypeFilter<>(CtTry.class))) {
+            if (!isExecuted(className, ctTry.getBody())) {
+                continue;
+            }
+            for (CtCatch ctCatch : ctTry.getCatchers()) {
+                if (isPrunable(className, ctCatch.getBody())) {
+                    ctCatch.setBody(replacement(ctCatch.getBody()));
+                    pruned++;
+                }
+            }
+        }
+        return pruned;
+    }
+
+    /**
+     * @return A block that throws, and completes normally if the branch did
+     */
+    private CtBlock<?> replacement(CtStatement branch) {
+        String code = canCompleteNormally(branch) ? "if (true) " + EXCEPTION : EXCEPTION;
+        CtBlock<?> block = factory.Core().createBlock();
+        block.addStatement(factory.Code().createCodeSnippetStatement(code));
+        return block;
+    }
+
+    /**
+     * @return true if the statement can complete normally, by the rules of
+     * the JLS (14.21). A break or continue in the statement is taken as
+     * reachable.
+     */
+    static boolean canCompleteNormally(CtStatement statement) {
+        if (statement == null) {
+            return true;
+        }
+        if (statement.getLabel() != null && hasBreak(statement, statement)) {
+            return true;
+        }
+        if (statement instanceof CtCodeSnippetStatement) {
+            // a branch that was already replaced
+            return !((CtCodeSnippetStatement) statement).getValue().startsWith("throw");
+        }
+        if (statement instanceof CtCFlowBreak) {
+            return false;
+        }
+        if (statement instanceof CtBlock) {
+            for (CtStatement s : ((CtBlock<?>) statement).getStatements()) {
+                if (!canCompleteNormally(s)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (statement instanceof CtIf) {
+            CtIf ctIf = (CtIf) statement;
+            return ctIf.getElseStatement() == null
+                    || canCompleteNormally(ctIf.<CtStatement>getThenStatement())
+                    || canCompleteNormally(ctIf.<CtStatement>getElseStatement());
+        }
+        if (statement instanceof CtSynchronized) {
+            return canCompleteNormally(((CtSynchronized) statement).getBlock());
+        }
+        if (statement instanceof CtTry) {
+            CtTry ctTry = (CtTry) statement;
+            if (ctTry.getFinalizer() != null && !canCompleteNormally(ctTry.getFinalizer())) {
+                return false;
+            }
+            if (canCompleteNormally(ctTry.getBody())) {
+                return true;
+            }
+            for (CtCatch ctCatch : ctTry.getCatchers()) {
+                if (canCompleteNormally(ctCatch.getBody())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (statement instanceof CtSwitch) {
+            return canCompleteNormally((CtSwitch<?>) statement);
+        }
+        if (statement instanceof CtLoop) {
+            CtLoop loop = (CtLoop) statement;
+            if (hasBreak(loop, loop)) {
+                return true;
+            }
+            if (loop instanceof CtWhile) {
+                return !isTrue(((CtWhile) loop).getLoopingExpression());
+            }
+            if (loop instanceof CtFor) {
+                CtExpression<Boolean> condition = ((CtFor) loop).getExpression();
+                return condition != null && !isTrue(condition);
+            }
+            if (loop instanceof CtDo) {
+                return !isTrue(((CtDo) loop).getLoopingExpression())
+                        && (canCompleteNormally(loop.getBody()) || hasContinue((CtDo) loop));
+            }
+            // a for-each loop
+            return true;
+        }
+        return true;
+    }
+
+    private static boolean canCompleteNormally(CtSwitch<?> ctSwitch) {
+        if (ctSwitch.getCases().isEmpty() || hasBreak(ctSwitch, ctSwitch)) {
+            return true;
+        }
+        boolean hasDefault = false;
+        for (CtCase<?> ctCase : ctSwitch.getCases()) {
+            hasDefault |= ctCase.getCaseExpression() == null;
+        }
+        List<CtStatement> last = ctSwitch.getCases().get(ctSwitch.getCases().size() - 1).getStatements();
+        return !hasDefault || last.isEmpty() || canCompleteNormally(last.get(last.size() - 1));
+    }
+
+    /**
+     * @return true if the expression is the literal true
+     */
+    private static boolean isTrue(CtExpression<Boolean> expression) {
+        return expression instanceof CtLiteral && Boolean.TRUE.equals(((CtLiteral<?>) expression).getValue());
+    }
+
+    /**
+     * @return true if the statement contains a break that exits the target
+     */
+    private static boolean hasBreak(CtStatement statement, CtStatement target) {
+        for (CtBreak ctBreak : statement.getElements(new TypeFilter<>(CtBreak.class))) {
+            if (target(ctBreak) == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the do statement contains a continue of itself
+     */
+    private static boolean hasContinue(CtDo loop) {
+        for (CtLabelledFlowBreak jump : loop.getElements(new TypeFilter<>(CtLabelledFlowBreak.class))) {
+            if (!(jump instanceof CtBreak) && target(jump) == loop) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the statement contains a break or a continue of a
+     * statement that encloses it
+     */
+    private static boolean hasJumpOut(CtStatement statement) {
+        for (CtLabelledFlowBreak jump : statement.getElements(new TypeFilter<>(CtLabelledFlowBreak.class))) {
+            CtStatement target = target(jump);
+            if (target != null && !target.hasParent(statement) && target != statement) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The statement that a break or a continue exits or repeats, null
+     * if it is not in the same method
+     */
+    private static CtStatement target(CtLabelledFlowBreak jump) {
+        String label = jump.getTargetLabel();
+        CtElement parent = jump;
+        while (parent.isParentInitialized() && !(parent instanceof CtExecutable) && !(parent instanceof CtType)) {
+            parent = parent.getParent();
+            if (parent instanceof CtStatement) {
+                CtStatement statement = (CtStatement) parent;
+                if (label != null ? label.equals(statement.getLabel())
+                        : parent instanceof CtLoop || jump instanceof CtBreak && parent instanceof CtSwitch) {
+                    return statement;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the branch was never executed and can be replaced
+     */
+    private boolean isPrunable(String className, CtStatement branch) {
+        return isNeverExecuted(className, branch) && !hasJumpOut(branch);
+    }
+
+    /**
+     * @return true if at least one line of the element was executed
+     */
+    private boolean isExecuted(String className, CtElement element) {
+        int status = status(className, element);
+        return status > 0 && (status & ICounter.FULLY_COVERED) != 0;
+    }
+
+    /**
+     * @return true if the statement has code and none of it was executed
+     */
+    private boolean isNeverExecuted(String className, CtStatement statement) {
+        if (statement == null) {
+            return false;
+        }
+        List<CtStatement> statements = statement instanceof CtBlock
+                ? ((CtBlock<?>) statement).getStatements()
+                : Collections.singletonList(statement);
+        int status = 0;
+        for (CtStatement s : statements) {
+            int lines = status(className, s);
+            if (lines < 0) {
+                return false;
+            }
+            status |= lines;
+        }
+        return status == ICounter.NOT_COVERED;
+    }
+
+    /**
+     * @return The merged status of the lines of an element, -1 if they are
+     * unknown
+     */
+    private int status(String className, CtElement element) {
+        SourcePosition position = element.getPosition();
+        if (position == null || position == SourcePosition.NOPOSITION || position.getLine() <= 0) {
+            return -1;
+        }
+        int status = 0;
+        for (int line = position.getLine(); line <= position.getEndLine(); line++) {
+            status |= coveredLines.getStatus(className, line);
+        }
+        return status;
+    }
+
+}
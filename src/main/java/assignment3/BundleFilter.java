@@ -0,0 +1,160 @@
+package assignment3;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * This class decides which classes belong to the bundle under analysis. The
+ * bundle is a list of patterns over the fully-qualified class names:
+ * <ul>
+ * <li>"classes.Calculator" is a single class, with its nested classes</li>
+ * <li>"org.apache.commons.io." is every class of the package and its
+ * sub-packages</li>
+ * <li>"org.apache.commons.io.*Utils" is a glob, where "*" matches any part of
+ * a name, "**" also matches across packages and "?" matches one
+ * character</li>
+ * </ul>
+ * An empty bundle contains every class. A bundle can be split in shards,
+ * so that several processes analyze disjoint parts of it; a class is in the
+ * same shard as its nested classes.
+ *
+ * @author Cesar Soto-Valero
+ */
+public class BundleFilter {
+
+    /**
+     * The class names of the bundle
+     */
+    private final List<String> classNames = new ArrayList<>();
+
+    /**
+     * The package prefixes of the bundle, ending with a dot
+     */
+    private final List<String> prefixes = new ArrayList<>();
+
+    /**
+     * The globs of the bundle
+     */
+    private final List<Pattern> globs = new ArrayList<>();
+
+    /**
+     * The shard of the bundle kept by the filter
+     */
+    private int shardIndex;
+
+    /**
+     * Number of shards of the bundle
+     */
+    private int shardCount = 1;
+
+    /**
+     * Creates the filter
+     *
+     * @param bundle The patterns of the bundle, or null for every class
+     */
+    public BundleFilter(Collection<String> bundle) {
+        if (bundle == null) {
+            return;
+        }
+        for (String pattern : bundle) {
+            pattern = pattern.trim();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            if (pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0) {
+                globs.add(toRegex(pattern));
+            } else if (pattern.endsWith(".")) {
+                prefixes.add(pattern);
+            } else {
+                classNames.add(pattern);
+            }
+        }
+    }
+
+    /**
+     * Creates a filter that keeps only one shard of this bundle. The classes
+     * are spread across the shards by the hash of the name of their
+     * top-level class.
+     *
+     * @param index The shard to keep, from 0 to count - 1
+     * @param count Number of shards
+     * @return The filter of the shard
+     */
+    public BundleFilter shard(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("not a valid shard: " + index + " of " + count);
+        }
+        BundleFilter shard = new BundleFilter(null);
+        shard.classNames.addAll(classNames);
+        shard.prefixes.addAll(prefixes);
+        shard.globs.addAll(globs);
+        shard.shardIndex = index;
+        shard.shardCount = count;
+        return shard;
+    }
+
+    /**
+     * @return true if every class is in the bundle
+     */
+    public boolean isEmpty() {
+        return classNames.isEmpty() && prefixes.isEmpty() && globs.isEmpty() && shardCount == 1;
+    }
+
+    /**
+     * @param className The fully-qualified or VM name of a class
+     * @return true if the class is in the bundle
+     */
+    public boolean contains(String className) {
+        String name = CoverageIndex.toQualifiedName(className);
+        if (shardCount > 1) {
+            int dollar = name.indexOf('$');
+            String topLevel = dollar < 0 ? name : name.substring(0, dollar);
+            if ((topLevel.hashCode() & Integer.MAX_VALUE) % shardCount != shardIndex) {
+                return false;
+            }
+        }
+        if (classNames.isEmpty() && prefixes.isEmpty() && globs.isEmpty()) {
+            return true;
+        }
+        for (String c : classNames) {
+            if (name.equals(c) || name.startsWith(c) && name.charAt(c.length()) == '$') {
+                return true;
+            }
+        }
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        for (Pattern glob : globs) {
+            if (glob.matcher(name).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Translates a glob over class names to a regular expression
+     */
+    private static Pattern toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else if (c == '*') {
+                regex.append("[^.]*");
+            } else if (c == '?') {
+                regex.append("[^.]");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+}
@@ -0,0 +1,243 @@
+package assignment3;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.TypePath;
+
+/**
+ * This class removes the methods that are not covered by the test suite
+ * directly from the built classes, without regenerating and recompiling the
+ * sources. The reduced classes and the other resources are written to a jar.
+ *
+ * Like {@link SpoonProcessor}, only the classes with at least one covered
+ * method are reduced, and constructors, static initializers, abstract,
+ * native and compiler-generated methods are always kept.
+ *
+ * The reducer is run by {@link AssignmentRunner} with the --jar option,
+ * which writes the jar to the build directory of each module.
+ *
+ * @author Cesar Soto-Valero
+ */
+public class BytecodeReducer {
+
+    /**
+     * What is done with the methods that are not covered
+     */
+    public enum Mode {
+
+        /**
+         * The methods are removed from the class
+         */
+        REMOVE,
+        /**
+         * The body of the methods is replaced by a throw of
+         * UnsupportedOperationException, so the class keeps its interface
+         */
+        STUB
+    }
+
+    /**
+     * The methods covered by the test suite
+     */
+    private final CoverageIndex coveredMethods;
+
+    /**
+     * What is done with the methods that are not covered
+     */
+    private final Mode mode;
+
+    /**
+     * Number of reduced classes
+     */
+    private int reducedClasses;
+
+    /**
+     * Number of removed or stubbed methods
+     */
+    private int reducedMethods;
+
+    /**
+     * Creates the reducer
+     *
+     * @param coveredMethods The methods covered by the test suite
+     * @param mode What is done with the methods that are not covered
+     */
+    public BytecodeReducer(CoverageIndex coveredMethods, Mode mode) {
+        this.coveredMethods = coveredMethods;
+        this.mode = mode;
+    }
+
+    /**
+     * Reduces the built classes and writes them, with the other resources, to
+     * a jar
+     *
+     * @param classesDir The directory with the built classes
+     * @param jarFile The reduced jar
+     * @throws IOException
+     */
+    public void reduce(File classesDir, File jarFile) throws IOException {
+        if (!classesDir.exists()) {
+            throw new FileNotFoundException(classesDir.getAbsolutePath());
+        }
+        jarFile.getAbsoluteFile().getParentFile().mkdirs();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jarFile))) {
+            addEntries(classesDir, "", out);
+        }
+    }
+
+    /**
+     * Reduces a single class
+     *
+     * @param bytes The class file
+     * @return The reduced class file, or the same bytes if nothing was reduced
+     */
+    public byte[] reduce(byte[] bytes) {
+        ClassReader reader = new ClassReader(bytes);
+        String className = CoverageIndex.toQualifiedName(reader.getClassName());
+        if (!coveredMethods.hasCoverage(className)) {
+            return bytes;
+        }
+        ClassWriter writer = new ClassWriter(reader, ClassWriter.COMPUTE_MAXS);
+        ReducingClassVisitor visitor = new ReducingClassVisitor(writer, className);
+        reader.accept(visitor, 0);
+        if (visitor.reduced == 0) {
+            return bytes;
+        }
+        reducedClasses++;
+        reducedMethods += visitor.reduced;
+        return writer.toByteArray();
+    }
+
+    /**
+     * @return Number of reduced classes
+     */
+    public int getReducedClasses() {
+        return reducedClasses;
+    }
+
+    /**
+     * @return Number of removed or stubbed methods
+     */
+    public int getReducedMethods() {
+        return reducedMethods;
+    }
+
+    /**
+     * Adds the files of a directory and its sub-directories to the jar
+     */
+    private void addEntries(File dir, String prefix, JarOutputStream out) throws IOException {
+        File[] files = dir.listFiles();
+        Arrays.sort(files);
+        for (File f : files) {
+            String name = prefix + f.getName();
+            if (f.isDirectory()) {
+                out.putNextEntry(new JarEntry(name + "/"));
+                out.closeEntry();
+                addEntries(f, name + "/", out);
+            } else {
+                byte[] bytes = Files.readAllBytes(f.toPath());
+                if (name.endsWith(".class")) {
+                    bytes = reduce(bytes);
+                }
+                out.putNextEntry(new JarEntry(name));
+                out.write(bytes);
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * @return true if the method can be removed when it is not covered
+     */
+    private static boolean isReducible(int access, String name) {
+        if ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE | Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE)) != 0) {
+            return false;
+        }
+        return !name.equals("<init>") && !name.equals("<clinit>");
+    }
+
+    /**
+     * Removes or stubs the methods that are not covered
+     */
+    private class ReducingClassVisitor extends ClassVisitor {
+
+        private final String className;
+
+        private int reduced;
+
+        ReducingClassVisitor(ClassVisitor cv, String className) {
+            super(Opcodes.ASM5, cv);
+            this.className = className;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            if (!isReducible(access, name) || coveredMethods.isCovered(className, name, desc)) {
+                return super.visitMethod(access, name, desc, signature, exceptions);
+            }
+            reduced++;
+            if (mode == Mode.REMOVE) {
+                return null;
+            }
+            MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+            return new StubMethodVisitor(mv, "method \"" + name + desc + "\" was removed from this class because it was not covered by the test suite");
+        }
+    }
+
+    /**
+     * Keeps the annotations of a method and replaces its code with a throw of
+     * UnsupportedOperationException
+     */
+    private static class StubMethodVisitor extends MethodVisitor {
+
+        private final MethodVisitor target;
+
+        private final String message;
+
+        StubMethodVisitor(MethodVisitor target, String message) {
+            super(Opcodes.ASM5);
+            this.target = target;
+            this.message = message;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+            return target.visitAnnotation(desc, visible);
+        }
+
+        @Override
+        public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
+            return target.visitTypeAnnotation(typeRef, typePath, desc, visible);
+        }
+
+        @Override
+        public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
+            return target.visitParameterAnnotation(parameter, desc, visible);
+        }
+
+        @Override
+        public void visitEnd() {
+            target.visitCode();
+            target.visitTypeInsn(Opcodes.NEW, "java/lang/UnsupportedOperationException");
+            target.visitInsn(Opcodes.DUP);
+            target.visitLdcInsn(message);
+            target.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/UnsupportedOperationException", "<init>", "(Ljava/lang/String;)V", false);
+            target.visitInsn(Opcodes.ATHROW);
+            target.visitMaxs(0, 0);
+            target.visitEnd();
+        }
+    }
+
+}
@@ -0,0 +1,450 @@
+package assignment3;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * This class builds a static call graph of the built classes from their
+ * bytecode, and computes the methods that are reachable from a set of entry
+ * points and from the methods covered by the test suite. The virtual and
+ * interface calls are resolved with class hierarchy analysis: a call may
+ * reach the method in the static type of the receiver, the method it
+ * inherits and every override in the subtypes.
+ *
+ * A class is initialized when one of its methods is reached, or when a
+ * reached method accesses one of its static fields or instantiates it, and
+ * its initialization reaches the static initializers of the class and of
+ * its superclasses.
+ *
+ * The methods of a reachable class that override a method of a type that is
+ * not built, like {@code toString} or {@code Comparator.compare}, can be
+ * called by the libraries, so they are reachable too.
+ *
+ * @author Cesar Soto-Valero
+ */
+public class CallGraph {
+
+    /**
+     * The name and descriptor of the static initializers
+     */
+    private static final String CLINIT = "<clinit>()V";
+
+    /**
+     * The built classes, by VM name
+     */
+    private final Map<String, ClassInfo> classes = new LinkedHashMap<>();
+
+    /**
+     * The direct subtypes of each type, by VM name
+     */
+    private final Map<String, List<String>> subtypes = new HashMap<>();
+
+    /**
+     * The methods declared by the types that are not built, by VM name of the
+     * type, null if the type cannot be loaded
+     */
+    private final Map<String, Set<String>> externalMethods = new HashMap<>();
+
+    private CallGraph() {
+    }
+
+    /**
+     * Builds the call graph of the built classes
+     *
+     * @param classFiles The built classes
+     * @return The call graph
+     */
+    public static CallGraph build(ClassFileCache classFiles) {
+        CallGraph graph = new CallGraph();
+        for (ClassFileCache.Entry entry : classFiles.getEntries()) {
+            ClassInfo info = new ClassInfo();
+            entry.getReader().accept(new ClassCollector(info), 0);
+            graph.classes.put(info.name, info);
+        }
+        for (ClassInfo info : graph.classes.values()) {
+            if (info.superName != null) {
+                graph.addSubtype(info.superName, info.name);
+            }
+            for (String i : info.interfaces) {
+                graph.addSubtype(i, info.name);
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Computes the methods reachable from the entry points and from the
+     * covered methods. An entry point is a class name or glob, as described
+     * in {@link BundleFilter}, optionally followed by "#" and a method name
+     * and an optional descriptor, for instance "org.apache.commons.io.*Utils",
+     * "**#main([Ljava/lang/String;)V" or "org.apache.commons.io.IOUtils#copy".
+     *
+     * @param covered The methods covered by the test suite
+     * @param entryPoints The entry points
+     * @return The index of the reachable methods, which contains the covered
+     * methods
+     */
+    public CoverageIndex reachable(CoverageIndex covered, Collection<String> entryPoints) {
+
+        Set<String> reached = new HashSet<>();
+        Set<String> reachedClasses = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+
+        // the roots
+        for (ClassInfo info : classes.values()) {
+            String className = CoverageIndex.toQualifiedName(info.name);
+            for (String method : info.methods.keySet()) {
+                String name = method.substring(0, method.indexOf('('));
+                String desc = method.substring(method.indexOf('('));
+                if (covered.isCovered(className, name, desc) || isEntryPoint(className, name, desc, entryPoints)) {
+                    pending.add(info.name + '.' + method);
+                }
+            }
+        }
+
+        while (!pending.isEmpty()) {
+            String key = pending.poll();
+            if (!reached.add(key)) {
+                continue;
+            }
+            int dot = key.lastIndexOf('.', key.indexOf('('));
+            ClassInfo owner = classes.get(key.substring(0, dot));
+            MethodInfo method = owner.methods.get(key.substring(dot + 1));
+
+            // the first reached method of a class initializes it and makes its callbacks reachable
+            if (reachedClasses.add(owner.name)) {
+                initialize(owner.name, pending);
+                for (Map.Entry<String, MethodInfo> e : owner.methods.entrySet()) {
+                    if (isCallback(owner, e.getKey(), e.getValue())) {
+                        pending.add(owner.name + '.' + e.getKey());
+                    }
+                }
+            }
+            for (String type : method.initializedTypes) {
+                initialize(type, pending);
+            }
+
+            for (Call call : method.calls) {
+                if (call.isVirtual) {
+                    resolveVirtual(call.owner, call.method, pending);
+                } else {
+                    resolve(call.owner, call.method, pending);
+                }
+            }
+        }
+
+        CoverageIndex index = new CoverageIndex();
+        for (String key : reached) {
+            int dot = key.lastIndexOf('.', key.indexOf('('));
+            int paren = key.indexOf('(');
+            index.add(key.substring(0, dot), key.substring(dot + 1, paren), key.substring(paren));
+        }
+        return index;
+    }
+
+    /**
+     * @return The number of built classes in the graph
+     */
+    public int size() {
+        return classes.size();
+    }
+
+    /**
+     * Adds the method a non-virtual call reaches: the method declared by the
+     * owner or inherited from its nearest supertype
+     */
+    private void resolve(String owner, String method, Deque<String> pending) {
+        ClassInfo info = classes.get(owner);
+        while (info != null) {
+            if (info.methods.containsKey(method)) {
+                pending.add(info.name + '.' + method);
+                return;
+            }
+            // default methods of the interfaces
+            for (String i : info.interfaces) {
+                ClassInfo itf = classes.get(i);
+                if (itf != null && itf.methods.containsKey(method)) {
+                    pending.add(itf.name + '.' + method);
+                }
+            }
+            info = info.superName == null ? null : classes.get(info.superName);
+        }
+    }
+
+    /**
+     * Adds the static initializers that run when a class is initialized: the
+     * one of the class and those of its superclasses
+     */
+    private void initialize(String type, Deque<String> pending) {
+        ClassInfo info = classes.get(type);
+        while (info != null) {
+            if (info.methods.containsKey(CLINIT)) {
+                pending.add(info.name + '.' + CLINIT);
+            }
+            info = info.superName == null ? null : classes.get(info.superName);
+        }
+    }
+
+    /**
+     * Adds the methods a virtual call may reach: the resolved method and the
+     * overrides in every subtype of the owner
+     */
+    private void resolveVirtual(String owner, String method, Deque<String> pending) {
+        resolve(owner, method, pending);
+        Deque<String> types = new ArrayDeque<>();
+        Set<String> visited = new HashSet<>();
+        types.add(owner);
+        while (!types.isEmpty()) {
+            String type = types.poll();
+            if (!visited.add(type)) {
+                continue;
+            }
+            ClassInfo info = classes.get(type);
+            if (info != null && info.methods.containsKey(method)) {
+                pending.add(type + '.' + method);
+            }
+            List<String> s = subtypes.get(type);
+            if (s != null) {
+                types.addAll(s);
+            }
+        }
+    }
+
+    /**
+     * @return true if the method overrides a method of a type that is not
+     * built, so that it can be called by a library
+     */
+    private boolean isCallback(ClassInfo owner, String method, MethodInfo info) {
+        if ((info.access & (Opcodes.ACC_STATIC | Opcodes.ACC_PRIVATE)) != 0 || method.startsWith("<")) {
+            return false;
+        }
+        Deque<String> types = new ArrayDeque<>();
+        Set<String> visited = new HashSet<>();
+        if (owner.superName != null) {
+            types.add(owner.superName);
+        }
+        types.addAll(owner.interfaces);
+        while (!types.isEmpty()) {
+            String type = types.poll();
+            if (!visited.add(type)) {
+                continue;
+            }
+            ClassInfo superInfo = classes.get(type);
+            if (superInfo != null) {
+                if (superInfo.superName != null) {
+                    types.add(superInfo.superName);
+                }
+                types.addAll(superInfo.interfaces);
+            } else if (declaresExternally(type, method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if a type that is not built, or one of its supertypes,
+     * declares the method, or if the type cannot be loaded
+     */
+    private synchronized boolean declaresExternally(String type, String method) {
+        if (!externalMethods.containsKey(type)) {
+            Set<String> methods = null;
+            try {
+                Class<?> c = Class.forName(type.replace('/', '.'), false, CallGraph.class.getClassLoader());
+                methods = new HashSet<>();
+                collectMethods(c, methods);
+            } catch (ClassNotFoundException | LinkageError e) {
+                // unknown type, any method may be called
+            }
+            externalMethods.put(type, methods);
+        }
+        Set<String> methods = externalMethods.get(type);
+        return methods == null || methods.contains(method);
+    }
+
+    private static void collectMethods(Class<?> c, Set<String> methods) {
+        for (Method m : c.getDeclaredMethods()) {
+            methods.add(m.getName() + Type.getMethodDescriptor(m));
+        }
+        if (c.getSuperclass() != null) {
+            collectMethods(c.getSuperclass(), methods);
+        }
+        for (Class<?> i : c.getInterfaces()) {
+            collectMethods(i, methods);
+        }
+    }
+
+    /**
+     * @return true if the method matches one of the entry points
+     */
+    private static boolean isEntryPoint(String className, String name, String desc, Collection<String> entryPoints) {
+        for (String entryPoint : entryPoints) {
+            int hash = entryPoint.indexOf('#');
+            String classPattern = hash < 0 ? entryPoint : entryPoint.substring(0, hash);
+            if (!new BundleFilter(Collections.singletonList(classPattern)).contains(className)) {
+                continue;
+            }
+            if (hash < 0) {
+                return true;
+            }
+            String method = entryPoint.substring(hash + 1);
+            int paren = method.indexOf('(');
+            if (paren < 0 ? method.equals(name) : method.equals(name + desc)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addSubtype(String type, String subtype) {
+        List<String> s = subtypes.get(type);
+        if (s == null) {
+            s = new ArrayList<>();
+            subtypes.put(type, s);
+        }
+        s.add(subtype);
+    }
+
+    /**
+     * A built class
+     */
+    private static final class ClassInfo {
+
+        private String name;
+
+        private String superName;
+
+        private List<String> interfaces;
+
+        /**
+         * The declared methods, by name and descriptor
+         */
+        private final Map<String, MethodInfo> methods = new LinkedHashMap<>();
+    }
+
+    /**
+     * A declared method
+     */
+    private static final class MethodInfo {
+
+        private final int access;
+
+        private final List<Call> calls = new ArrayList<>();
+
+        /**
+         * The types whose static fields are accessed or that are instantiated,
+         * which may be initialized without a call to one of their methods
+         */
+        private final Set<String> initializedTypes = new HashSet<>();
+
+        MethodInfo(int access) {
+            this.access = access;
+        }
+    }
+
+    /**
+     * A call from a method
+     */
+    private static final class Call {
+
+        private final String owner;
+
+        /**
+         * The name and descriptor of the called method
+         */
+        private final String method;
+
+        private final boolean isVirtual;
+
+        Call(String owner, String method, boolean isVirtual) {
+            this.owner = owner;
+            this.method = method;
+            this.isVirtual = isVirtual;
+        }
+    }
+
+    /**
+     * Collects the declared methods and their calls
+     */
+    private static class ClassCollector extends ClassVisitor {
+
+        private final ClassInfo info;
+
+        ClassCollector(ClassInfo info) {
+            super(Opcodes.ASM5);
+            this.info = info;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            info.name = name;
+            info.superName = superName;
+            info.interfaces = interfaces == null ? Collections.<String>emptyList() : Arrays.asList(interfaces);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            final MethodInfo method = new MethodInfo(access);
+            info.methods.put(name + desc, method);
+            return new MethodVisitor(Opcodes.ASM5) {
+                @Override
+                public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+                    boolean isVirtual = opcode == Opcodes.INVOKEVIRTUAL || opcode == Opcodes.INVOKEINTERFACE;
+                    method.calls.add(new Call(owner, name + desc, isVirtual));
+                }
+
+                @Override
+                public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+                    if (opcode == Opcodes.GETSTATIC || opcode == Opcodes.PUTSTATIC) {
+                        method.initializedTypes.add(owner);
+                    }
+                }
+
+                @Override
+                public void visitTypeInsn(int opcode, String type) {
+                    if (opcode == Opcodes.NEW) {
+                        method.initializedTypes.add(type);
+                    }
+                }
+
+                @Override
+                public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
+                    // the implementation methods of the lambdas and method references
+                    for (Object arg : bsmArgs) {
+                        visitHandle(arg);
+                    }
+                }
+
+                @Override
+                public void visitLdcInsn(Object cst) {
+                    visitHandle(cst);
+                }
+
+                private void visitHandle(Object cst) {
+                    if (cst instanceof Handle) {
+                        Handle h = (Handle) cst;
+                        boolean isVirtual = h.getTag() == Opcodes.H_INVOKEVIRTUAL || h.getTag() == Opcodes.H_INVOKEINTERFACE;
+                        method.calls.add(new Call(h.getOwner(), h.getName() + h.getDesc(), isVirtual));
+                    }
+                }
+            };
+        }
+    }
+
+}
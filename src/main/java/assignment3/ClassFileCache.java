@@ -0,0 +1,262 @@
+package assignment3;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.ICoverageVisitor;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.data.CRC64;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * This class keeps the built classes in memory, so that they are read and
+ * parsed only once per run and can be analyzed against the coverage of every
+ * test case. The parsed classes are never modified, so the cache can be shared
+ * by several analyzing threads.
+ *
+ * @author Cesar Soto-Valero
+ */
+public class ClassFileCache {
+
+    /**
+     * The cached classes, in the order of their paths
+     */
+    private final List<Entry> entries;
+
+    /**
+     * The sorted ids of the cached classes
+     */
+    private final long[] classIds;
+
+    /**
+     * Number of class files skipped because they are not in the bundle
+     */
+    private final int skipped;
+
+    /**
+     * Time spent reading and parsing the cached classes
+     */
+    private final long loadNanos;
+
+    /**
+     * Time spent analyzing the cached classes
+     */
+    private final AtomicLong analyzeNanos = new AtomicLong();
+
+    /**
+     * Creates a cache with the given classes
+     *
+     * @param entries The cached classes
+     * @param skipped Number of class files skipped
+     * @param loadNanos Time spent reading and parsing the classes
+     */
+    private ClassFileCache(List<Entry> entries, int skipped, long loadNanos) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.skipped = skipped;
+        this.loadNanos = loadNanos;
+        this.classIds = new long[entries.size()];
+        for (int i = 0; i < classIds.length; i++) {
+            classIds[i] = entries.get(i).getClassId();
+        }
+        Arrays.sort(classIds);
+    }
+
+    /**
+     * Reads and parses all the .class files in the built classes directory
+     *
+     * @param builtClassesPath Path to the built classes
+     * @return The cache with all the classes
+     * @throws IOException
+     */
+    public static ClassFileCache load(String builtClassesPath) throws IOException {
+        return load(builtClassesPath, new BundleFilter(null));
+    }
+
+    /**
+     * Reads and parses the .class files of the bundle in the built classes
+     * directory. The files of the other classes are not read.
+     *
+     * @param builtClassesPath Path to the built classes
+     * @param bundle The classes to read
+     * @return The cache with the classes of the bundle
+     * @throws IOException
+     */
+    public static ClassFileCache load(String builtClassesPath, BundleFilter bundle) throws IOException {
+        File root = new File(builtClassesPath);
+        if (!root.exists()) {
+            throw new FileNotFoundException(root.getAbsolutePath());
+        }
+        long start = System.nanoTime();
+        List<Entry> entries = new ArrayList<>();
+        int skipped = collect(root, "", bundle, entries);
+        return new ClassFileCache(entries, skipped, System.nanoTime() - start);
+    }
+
+    /**
+     * Collects the .class files of a directory and its sub-directories
+     *
+     * @param file The current file or directory
+     * @param name The name of the file relative to the root, with dots
+     * @param bundle The classes to collect
+     * @param entries The list where the classes are added
+     * @return The number of class files skipped
+     * @throws IOException
+     */
+    private static int collect(File file, String name, BundleFilter bundle, List<Entry> entries) throws IOException {
+        int skipped = 0;
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            Arrays.sort(files);
+            for (File f : files) {
+                skipped += collect(f, name.isEmpty() ? f.getName() : name + "." + f.getName(), bundle, entries);
+            }
+        } else if (name.endsWith(".class")) {
+            if (!bundle.contains(name.substring(0, name.length() - ".class".length()))) {
+                return 1;
+            }
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            entries.add(new Entry(new ClassReader(bytes), CRC64.checksum(bytes), file.getPath()));
+        }
+        return skipped;
+    }
+
+    /**
+     * @return The cached classes
+     */
+    public Collection<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return The number of cached classes
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Number of class files skipped because they are not in the
+     * bundle
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Estimates the time saved by skipping the classes that are not in the
+     * bundle, from the time spent reading and analyzing the cached ones
+     *
+     * @return The estimated time saved, in nanoseconds
+     */
+    public long getEstimatedSavedNanos() {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        return (loadNanos + analyzeNanos.get()) / entries.size() * skipped;
+    }
+
+    /**
+     * @return An empty store that keeps only the probes of the cached classes
+     */
+    ProbeStore newProbeStore() {
+        return new ProbeStore(classIds);
+    }
+
+    /**
+     * Analyzes the cached classes against the probes read in a store. The
+     * probes of each class are taken from the store when it is analyzed, so
+     * the store is empty afterwards.
+     *
+     * @param probes The probes of the cached classes
+     * @param visitor The visitor of the coverage of each class
+     * @param executedOnly true to skip the classes without probes in the
+     * store, which can only be reported as not covered
+     * @return The number of analyzed classes
+     */
+    int analyze(ProbeStore probes, ICoverageVisitor visitor, boolean executedOnly) {
+        int count = 0;
+        for (Entry entry : entries) {
+            ExecutionData data = probes.take(entry.getClassId());
+            if (executedOnly && data == null) {
+                continue;
+            }
+            analyze(entry, data, visitor);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Analyzes a cached class against its probes
+     *
+     * @param entry The cached class
+     * @param data The probes of the class, or null if it was not executed
+     * @param visitor The visitor of the coverage of the class
+     */
+    void analyze(Entry entry, ExecutionData data, ICoverageVisitor visitor) {
+        long start = System.nanoTime();
+        ExecutionDataStore store = new ExecutionDataStore();
+        if (data != null) {
+            store.put(data);
+        }
+        new Analyzer(store, visitor).analyzeClass(entry.getReader());
+        analyzeNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * A parsed class file
+     */
+    public static final class Entry {
+
+        private final ClassReader reader;
+
+        private final long classId;
+
+        private final String location;
+
+        Entry(ClassReader reader, long classId, String location) {
+            this.reader = reader;
+            this.classId = classId;
+            this.location = location;
+        }
+
+        /**
+         * @return The parsed class
+         */
+        public ClassReader getReader() {
+            return reader;
+        }
+
+        /**
+         * @return The JaCoCo id (CRC64) of the class
+         */
+        public long getClassId() {
+            return classId;
+        }
+
+        /**
+         * @return The VM name of the class
+         */
+        public String getClassName() {
+            return reader.getClassName();
+        }
+
+        /**
+         * @return Path to the class file
+         */
+        public String getLocation() {
+            return location;
+        }
+
+    }
+
+}
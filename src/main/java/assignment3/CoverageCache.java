@@ -0,0 +1,472 @@
+package assignment3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.core.data.ExecutionData;
+
+/**
+ * This class keeps the per-method and per-line coverage status of each
+ * class for each coverage file on disk, so that a new run only analyzes the
+ * classes or the coverage files that changed since the previous one. The
+ * entries are keyed by the digest of the .exec file and the JaCoCo id
+ * (CRC64) of the class, which changes whenever the class file changes.
+ *
+ * The index is a compact binary file: a string table with the names of the
+ * classes and methods, followed by the entries, which refer to the strings
+ * by their position in the table.
+ *
+ * @author Cesar Soto-Valero
+ */
+public class CoverageCache {
+
+    /**
+     * Identifies the index files
+     */
+    private static final int MAGIC = 0x4A434331;
+
+    /**
+     * Version of the index format
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * The index file
+     */
+    private final File file;
+
+    /**
+     * The entries of each coverage file, by the digest of the file
+     */
+    private final Map<String, ExecFileEntry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * The digests of the coverage files used in this run
+     */
+    private final Map<String, Boolean> used = new ConcurrentHashMap<>();
+
+    /**
+     * Number of classes taken from the cache
+     */
+    private final AtomicInteger hits = new AtomicInteger();
+
+    /**
+     * Number of classes analyzed because they were not in the cache
+     */
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Creates an empty cache stored in the given file
+     *
+     * @param file The index file
+     */
+    private CoverageCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the cache stored in the given file. The cache is empty if the file
+     * does not exist or was written by another version of the format.
+     *
+     * @param file The index file
+     * @return The cache
+     * @throws IOException
+     */
+    public static CoverageCache open(File file) throws IOException {
+        CoverageCache cache = new CoverageCache(file);
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                cache.read(in);
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Analyzes a coverage file, taking the classes from the cache when
+     * possible. Only the classes with execution data in the file are returned.
+     *
+     * @param execFile The .exec file
+     * @param classes The built classes
+     * @return The coverage of the classes executed in the file
+     * @throws IOException
+     */
+    public Collection<ClassRecord> analyze(File execFile, ClassFileCache classes) throws IOException {
+
+        // the file is read once, its digest is computed while its probes are read
+        MessageDigest sha1 = newDigest();
+        ProbeStore probes = classes.newProbeStore();
+        try (InputStream in = new DigestInputStream(new BufferedInputStream(new FileInputStream(execFile)), sha1)) {
+            probes.read(in);
+        }
+        String digest = toHex(sha1.digest());
+        used.put(digest, Boolean.TRUE);
+
+        ExecFileEntry entry = entries.get(digest);
+        if (entry == null) {
+            entry = new ExecFileEntry(probes.getExecutedClassIds());
+            entries.put(digest, entry);
+        }
+
+        Collection<ClassRecord> records = new ArrayList<>();
+        for (ClassFileCache.Entry c : classes.getEntries()) {
+            if (!entry.isExecuted(c.getClassId())) {
+                continue;
+            }
+            ClassRecord record = entry.get(c.getClassId());
+            if (record != null) {
+                hits.incrementAndGet();
+            } else {
+                // the class or the coverage file changed, analyze it again
+                record = analyze(classes, probes.take(c.getClassId()), c);
+                entry.put(c.getClassId(), record);
+                misses.incrementAndGet();
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Writes the entries of the coverage files used in this run to the index
+     * file. The entries of the files that no longer exist are dropped, and so
+     * are the classes that were not looked up in this run, like the previous
+     * versions of the classes that changed.
+     *
+     * @throws IOException
+     */
+    public void save() throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            write(out);
+        }
+    }
+
+    /**
+     * @return Number of classes taken from the cache
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of classes analyzed because they were not in the cache
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Analyzes a single class against the coverage of a file
+     */
+    private static ClassRecord analyze(ClassFileCache classes, ExecutionData data, ClassFileCache.Entry c) {
+        CoverageBuilder coverageBuilder = new CoverageBuilder();
+        classes.analyze(c, data, coverageBuilder);
+        for (IClassCoverage coverage : coverageBuilder.getClasses()) {
+            return ClassRecord.of(coverage);
+        }
+        // classes without code are not reported by the coverage builder
+        return new ClassRecord(c.getClassName(), new String[0], new String[0], new byte[0], 0, new byte[0]);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] hash) {
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            return;
+        }
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        int fileCount = in.readInt();
+        for (int i = 0; i < fileCount; i++) {
+            String digest = in.readUTF();
+            long[] ids = new long[in.readInt()];
+            for (int j = 0; j < ids.length; j++) {
+                ids[j] = in.readLong();
+            }
+            ExecFileEntry entry = new ExecFileEntry(ids);
+            int classCount = in.readInt();
+            for (int j = 0; j < classCount; j++) {
+                long classId = in.readLong();
+                String className = strings[in.readInt()];
+                int methodCount = in.readInt();
+                String[] names = new String[methodCount];
+                String[] descs = new String[methodCount];
+                byte[] statuses = new byte[methodCount];
+                for (int k = 0; k < methodCount; k++) {
+                    names[k] = strings[in.readInt()];
+                    descs[k] = strings[in.readInt()];
+                    statuses[k] = in.readByte();
+                }
+                int firstLine = in.readInt();
+                byte[] lines = new byte[in.readInt()];
+                in.readFully(lines);
+                entry.records.put(classId, new ClassRecord(className, names, descs, statuses, firstLine, lines));
+            }
+            entries.put(digest, entry);
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+
+        // collect the string table
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        for (String digest : used.keySet()) {
+            for (ClassRecord record : entries.get(digest).usedRecords().values()) {
+                intern(record.className, strings, table);
+                for (int k = 0; k < record.names.length; k++) {
+                    intern(record.names[k], strings, table);
+                    intern(record.descs[k], strings, table);
+                }
+            }
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(table.size());
+        for (String s : table) {
+            out.writeUTF(s);
+        }
+        out.writeInt(used.size());
+        for (String digest : used.keySet()) {
+            ExecFileEntry entry = entries.get(digest);
+            out.writeUTF(digest);
+            out.writeInt(entry.executedIds.length);
+            for (long id : entry.executedIds) {
+                out.writeLong(id);
+            }
+            Map<Long, ClassRecord> records = entry.usedRecords();
+            out.writeInt(records.size());
+            for (Map.Entry<Long, ClassRecord> e : records.entrySet()) {
+                ClassRecord record = e.getValue();
+                out.writeLong(e.getKey());
+                out.writeInt(strings.get(record.className));
+                out.writeInt(record.names.length);
+                for (int k = 0; k < record.names.length; k++) {
+                    out.writeInt(strings.get(record.names[k]));
+                    out.writeInt(strings.get(record.descs[k]));
+                    out.writeByte(record.statuses[k]);
+                }
+                out.writeInt(record.firstLine);
+                out.writeInt(record.lines.length);
+                out.write(record.lines);
+            }
+        }
+    }
+
+    private static void intern(String s, Map<String, Integer> strings, List<String> table) {
+        if (!strings.containsKey(s)) {
+            strings.put(s, table.size());
+            table.add(s);
+        }
+    }
+
+    /**
+     * The cached classes of a coverage file
+     */
+    private static final class ExecFileEntry {
+
+        /**
+         * The sorted ids of the classes with execution data in the file
+         */
+        private final long[] executedIds;
+
+        /**
+         * The coverage of the analyzed classes, by class id
+         */
+        private final Map<Long, ClassRecord> records = new ConcurrentHashMap<>();
+
+        /**
+         * The ids of the classes looked up or analyzed in this run
+         */
+        private final Map<Long, Boolean> usedIds = new ConcurrentHashMap<>();
+
+        ExecFileEntry(long[] executedIds) {
+            this.executedIds = executedIds;
+        }
+
+        ClassRecord get(long classId) {
+            usedIds.put(classId, Boolean.TRUE);
+            return records.get(classId);
+        }
+
+        void put(long classId, ClassRecord record) {
+            usedIds.put(classId, Boolean.TRUE);
+            records.put(classId, record);
+        }
+
+        /**
+         * @return The records of the classes used in this run, by class id
+         */
+        Map<Long, ClassRecord> usedRecords() {
+            Map<Long, ClassRecord> used = new HashMap<>();
+            for (Map.Entry<Long, ClassRecord> e : records.entrySet()) {
+                if (usedIds.containsKey(e.getKey())) {
+                    used.put(e.getKey(), e.getValue());
+                }
+            }
+            return used;
+        }
+
+        boolean isExecuted(long classId) {
+            return Arrays.binarySearch(executedIds, classId) >= 0;
+        }
+    }
+
+    /**
+     * The coverage status of the methods and of the source lines of a class
+     */
+    public static final class ClassRecord {
+
+        private final String className;
+
+        private final String[] names;
+
+        private final String[] descs;
+
+        private final byte[] statuses;
+
+        /**
+         * The number of the first line with code
+         */
+        private final int firstLine;
+
+        /**
+         * The status of each line from the first one, empty if the class was
+         * compiled without debug information
+         */
+        private final byte[] lines;
+
+        ClassRecord(String className, String[] names, String[] descs, byte[] statuses, int firstLine, byte[] lines) {
+            this.className = className;
+            this.names = names;
+            this.descs = descs;
+            this.statuses = statuses;
+            this.firstLine = firstLine;
+            this.lines = lines;
+        }
+
+        static ClassRecord of(IClassCoverage coverage) {
+            Collection<IMethodCoverage> methods = coverage.getMethods();
+            String[] names = new String[methods.size()];
+            String[] descs = new String[methods.size()];
+            byte[] statuses = new byte[methods.size()];
+            int i = 0;
+            for (IMethodCoverage method : methods) {
+                names[i] = method.getName();
+                descs[i] = method.getDesc();
+                statuses[i] = (byte) method.getMethodCounter().getStatus();
+                i++;
+            }
+            int firstLine = coverage.getFirstLine();
+            byte[] lines = new byte[0];
+            if (firstLine != ISourceNode.UNKNOWN_LINE) {
+                lines = new byte[coverage.getLastLine() - firstLine + 1];
+                for (int line = firstLine; line <= coverage.getLastLine(); line++) {
+                    lines[line - firstLine] = (byte) coverage.getLine(line).getStatus();
+                }
+            }
+            return new ClassRecord(coverage.getName(), names, descs, statuses, firstLine, lines);
+        }
+
+        /**
+         * Adds the status of the source lines of the class, merged with the
+         * status of the lines already added
+         *
+         * @param coverage The line coverage
+         */
+        public void addLinesTo(LineCoverage coverage) {
+            for (int i = 0; i < lines.length; i++) {
+                if (lines[i] != ICounter.EMPTY) {
+                    coverage.add(className, firstLine + i, lines[i]);
+                }
+            }
+        }
+
+        /**
+         * @return The VM name of the class
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * @return The number of methods of the class
+         */
+        public int getMethodCount() {
+            return names.length;
+        }
+
+        /**
+         * @param i The index of the method
+         * @return The name of the method
+         */
+        public String getMethodName(int i) {
+            return names[i];
+        }
+
+        /**
+         * @param i The index of the method
+         * @return The JVM descriptor of the method
+         */
+        public String getMethodDesc(int i) {
+            return descs[i];
+        }
+
+        /**
+         * @param i The index of the method
+         * @return The {@link ICounter} status of the method
+         */
+        public int getMethodStatus(int i) {
+            return statuses[i];
+        }
+
+        /**
+         * @param i The index of the method
+         * @return true if at least one instruction of the method was executed
+         */
+        public boolean isMethodCovered(int i) {
+            return (statuses[i] & ICounter.FULLY_COVERED) != 0;
+        }
+    }
+
+}
@@ -0,0 +1,313 @@
+package assignment3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class indexes the methods covered by the test suite. The classes are
+ * identified by their fully-qualified name and the methods by their name and
+ * JVM descriptor, so classes with the same simple name in different packages
+ * and overloaded methods are told apart.
+ *
+ * The names are interned to int ids and the covered methods of each class are
+ * kept in a primitive int set, so every lookup takes constant time. Once it is
+ * built, the index is only read, so it can be shared between threads.
+ *
+ * The index can be written to a compact binary file, so that the partial
+ * indexes computed by several processes can be merged: a string table with
+ * the names of the classes, methods and descriptors, followed by the covered
+ * methods of each class, which refer to the strings by their position in the
+ * table.
+ *
+ * @author Cesar Soto-Valero
+ */
+public class CoverageIndex {
+
+    /**
+     * Identifies the index files
+     */
+    private static final int MAGIC = 0x4A434931;
+
+    /**
+     * Version of the index format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The id of each class, by fully-qualified name
+     */
+    private final Map<String, Integer> classIds = new HashMap<>();
+
+    /**
+     * The id of each method name
+     */
+    private final Map<String, Integer> nameIds = new HashMap<>();
+
+    /**
+     * The id of each method, by name and then by descriptor, so that a lookup
+     * does not build the name with descriptor. The ids are distinct from the
+     * ids of the names.
+     */
+    private final Map<String, Map<String, Integer>> methodIds = new HashMap<>();
+
+    /**
+     * Number of ids given to names and methods
+     */
+    private int memberCount;
+
+    /**
+     * The covered methods of each class, by class id. Each method is added
+     * both by name and by name with descriptor.
+     */
+    private final List<IntHashSet> coveredMembers = new ArrayList<>();
+
+    /**
+     * Number of covered methods
+     */
+    private int size;
+
+    /**
+     * Adds a covered method to the index
+     *
+     * @param className The fully-qualified or the VM name of the class
+     * @param methodName The name of the method
+     * @param desc The JVM descriptor of the method
+     */
+    public void add(String className, String methodName, String desc) {
+        int classId = intern(classIds, toQualifiedName(className));
+        if (classId == coveredMembers.size()) {
+            coveredMembers.add(new IntHashSet());
+        }
+        IntHashSet members = coveredMembers.get(classId);
+        members.add(internMember(nameIds, methodName));
+        Map<String, Integer> descIds = methodIds.get(methodName);
+        if (descIds == null) {
+            descIds = new HashMap<>();
+            methodIds.put(methodName, descIds);
+        }
+        if (members.add(internMember(descIds, desc))) {
+            size++;
+        }
+    }
+
+    /**
+     * Adds the covered methods of another index
+     *
+     * @param other The other index
+     */
+    public void addAll(CoverageIndex other) {
+        for (String[] method : other.getCoveredMethods()) {
+            add(method[0], method[1], method[2]);
+        }
+    }
+
+    /**
+     * @param className The fully-qualified name of the class
+     * @return true if at least one method of the class is covered
+     */
+    public boolean hasCoverage(String className) {
+        return classIds.containsKey(className);
+    }
+
+    /**
+     * @param className The fully-qualified name of the class
+     * @param methodName The name of the method
+     * @return true if at least one overload of the method is covered
+     */
+    public boolean isCovered(String className, String methodName) {
+        return contains(className, nameIds.get(methodName));
+    }
+
+    /**
+     * @param className The fully-qualified name of the class
+     * @param methodName The name of the method
+     * @param desc The JVM descriptor of the method
+     * @return true if the method is covered
+     */
+    public boolean isCovered(String className, String methodName, String desc) {
+        Map<String, Integer> descIds = methodIds.get(methodName);
+        return descIds != null && contains(className, descIds.get(desc));
+    }
+
+    /**
+     * @return The fully-qualified names of the classes with covered methods
+     */
+    public List<String> getClassNames() {
+        return new ArrayList<>(classIds.keySet());
+    }
+
+    /**
+     * @return The number of covered methods
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes the index to a file
+     *
+     * @param file The index file
+     * @throws IOException
+     */
+    public void save(File file) throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            write(out);
+        }
+    }
+
+    /**
+     * Reads an index from a file
+     *
+     * @param file The index file
+     * @return The index
+     * @throws IOException if the file cannot be read or is not an index file
+     */
+    public static CoverageIndex load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            CoverageIndex index = new CoverageIndex();
+            index.read(in);
+            return index;
+        }
+    }
+
+    /**
+     * @return The class, name and descriptor of each covered method, sorted
+     */
+    private List<String[]> getCoveredMethods() {
+        String[][] members = new String[memberCount][];
+        for (Map.Entry<String, Map<String, Integer>> e : methodIds.entrySet()) {
+            for (Map.Entry<String, Integer> d : e.getValue().entrySet()) {
+                members[d.getValue()] = new String[]{e.getKey(), d.getKey()};
+            }
+        }
+        List<String[]> methods = new ArrayList<>(size);
+        for (Map.Entry<String, Integer> e : classIds.entrySet()) {
+            for (int memberId : coveredMembers.get(e.getValue()).toArray()) {
+                // the names without descriptor are added with the methods
+                String[] member = members[memberId];
+                if (member != null) {
+                    methods.add(new String[]{e.getKey(), member[0], member[1]});
+                }
+            }
+        }
+        Collections.sort(methods, new Comparator<String[]>() {
+            @Override
+            public int compare(String[] m1, String[] m2) {
+                for (int i = 0; i < m1.length; i++) {
+                    int c = m1[i].compareTo(m2[i]);
+                    if (c != 0) {
+                        return c;
+                    }
+                }
+                return 0;
+            }
+        });
+        return methods;
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("not a coverage index file");
+        }
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        int classCount = in.readInt();
+        for (int i = 0; i < classCount; i++) {
+            String className = strings[in.readInt()];
+            int methodCount = in.readInt();
+            for (int j = 0; j < methodCount; j++) {
+                add(className, strings[in.readInt()], strings[in.readInt()]);
+            }
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        List<String[]> methods = getCoveredMethods();
+
+        // collect the string table
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        for (String[] method : methods) {
+            for (String s : method) {
+                if (!strings.containsKey(s)) {
+                    strings.put(s, table.size());
+                    table.add(s);
+                }
+            }
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(table.size());
+        for (String s : table) {
+            out.writeUTF(s);
+        }
+        out.writeInt(classIds.size());
+        // the methods are sorted, so the methods of each class are together
+        int start = 0;
+        while (start < methods.size()) {
+            String className = methods.get(start)[0];
+            int end = start;
+            while (end < methods.size() && methods.get(end)[0].equals(className)) {
+                end++;
+            }
+            out.writeInt(strings.get(className));
+            out.writeInt(end - start);
+            for (int i = start; i < end; i++) {
+                out.writeInt(strings.get(methods.get(i)[1]));
+                out.writeInt(strings.get(methods.get(i)[2]));
+            }
+            start = end;
+        }
+    }
+
+    private boolean contains(String className, Integer memberId) {
+        if (memberId == null) {
+            return false;
+        }
+        Integer classId = classIds.get(className);
+        return classId != null && coveredMembers.get(classId).contains(memberId);
+    }
+
+    private static int intern(Map<String, Integer> ids, String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = ids.size();
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    private int internMember(Map<String, Integer> ids, String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = memberCount++;
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * @param className The fully-qualified or the VM name of a class
+     * @return The fully-qualified name of the class
+     */
+    static String toQualifiedName(String className) {
+        return className.replace('/', '.');
+    }
+
+}
@@ -0,0 +1,50 @@
+package assignment3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import org.jacoco.core.analysis.IClassCoverage;
+
+/**
+ * A sink for what {@link JuncoProcessor} finds while it analyzes the
+ * coverage. The processor only hands over the coverage objects and the
+ * numbers; formatting them, if at all, is up to the reporter, so the analysis
+ * runs at full speed with a reporter that discards or only counts them. The
+ * implementations are in {@link CoverageReporters}.
+ *
+ * @author Cesar Soto-Valero
+ */
+public interface CoverageReporter extends Closeable {
+
+    /**
+     * Reports the coverage of an analyzed class
+     *
+     * @param c The coverage of the class
+     * @param withMethods true to report the status of each method too
+     */
+    void reportClass(IClassCoverage c, boolean withMethods);
+
+    /**
+     * Reports the use of the coverage cache
+     *
+     * @param hits Number of classes taken from the cache
+     * @param misses Number of classes analyzed
+     */
+    void reportCache(int hits, int misses);
+
+    /**
+     * Reports the classes skipped because they are not in the bundle
+     *
+     * @param analyzed Number of classes of the bundle
+     * @param skipped Number of classes skipped
+     * @param savedNanos Estimated time saved, in nanoseconds
+     */
+    void reportBundle(int analyzed, int skipped, long savedNanos);
+
+    /**
+     * Writes what was buffered, called at the end of each analysis
+     *
+     * @throws IOException
+     */
+    void flush() throws IOException;
+
+}
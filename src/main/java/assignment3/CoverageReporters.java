@@ -0,0 +1,204 @@
+package assignment3;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.IMethodCoverage;
+
+/**
+ * The reporters of the coverage analysis
+ *
+ * @author Cesar Soto-Valero
+ */
+public final class CoverageReporters {
+
+    private static final String[] STATUS = {"EMPTY", "NOT_COVERED", "FULLY_COVERED", "PARTLY_COVERED"};
+
+    private CoverageReporters() {
+    }
+
+    /**
+     * @return A reporter that discards everything
+     */
+    public static CoverageReporter none() {
+        return new SummaryReporter(null);
+    }
+
+    /**
+     * @return A reporter that prints everything to the standard output,
+     * buffered until the end of each analysis
+     */
+    public static CoverageReporter console() {
+        return new WriterReporter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16), false);
+    }
+
+    /**
+     * @param file The report file, overwritten
+     * @return A reporter that writes everything to a file through a buffer
+     * @throws IOException
+     */
+    public static CoverageReporter file(File file) throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        return new WriterReporter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16), true);
+    }
+
+    /**
+     * @param out Where the summary is printed
+     * @return A reporter that only counts the classes and methods, and prints
+     * the totals at the end of each analysis
+     */
+    public static CoverageReporter summary(PrintStream out) {
+        return new SummaryReporter(out);
+    }
+
+    /**
+     * Formats everything to a writer
+     */
+    private static final class WriterReporter implements CoverageReporter {
+
+        private final Writer out;
+
+        private final boolean closeWriter;
+
+        WriterReporter(Writer out, boolean closeWriter) {
+            this.out = out;
+            this.closeWriter = closeWriter;
+        }
+
+        @Override
+        public synchronized void reportClass(IClassCoverage c, boolean withMethods) {
+            try {
+                out.write("\nAnalyzing class: " + c.getName().replace('/', '.') + "\n");
+                if (withMethods) {
+                    for (IMethodCoverage method : c.getMethods()) {
+                        out.write("Analyzing method: " + method.getName() + "\n");
+                        out.write("  ===> " + STATUS[method.getMethodCounter().getStatus()] + "\n");
+                    }
+                }
+                out.write("=== SUMMARY === \n");
+                writeCounter("instructions", c.getInstructionCounter());
+                writeCounter("branches", c.getBranchCounter());
+                writeCounter("lines", c.getLineCounter());
+                writeCounter("methods", c.getMethodCounter());
+                writeCounter("complexity", c.getComplexityCounter());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void writeCounter(String unit, ICounter counter) throws IOException {
+            out.write(counter.getMissedCount() + " of " + counter.getTotalCount() + " " + unit + " missed\n");
+        }
+
+        @Override
+        public synchronized void reportCache(int hits, int misses) {
+            try {
+                out.write("coverage cache: " + hits + " classes reused, " + misses + " classes analyzed\n");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public synchronized void reportBundle(int analyzed, int skipped, long savedNanos) {
+            try {
+                out.write("bundle: " + analyzed + " classes analyzed, " + skipped + " classes skipped, about " + savedNanos / 1000000 + " ms saved\n");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closeWriter) {
+                out.close();
+            } else {
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Counts the classes and methods, and prints the totals if there is an
+     * output
+     */
+    private static final class SummaryReporter implements CoverageReporter {
+
+        private final PrintStream out;
+
+        private int classes;
+
+        private final int[] methods = new int[STATUS.length];
+
+        private int cacheHits;
+
+        private int cacheMisses;
+
+        private int skipped;
+
+        SummaryReporter(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public synchronized void reportClass(IClassCoverage c, boolean withMethods) {
+            if (out == null) {
+                return;
+            }
+            classes++;
+            for (IMethodCoverage method : c.getMethods()) {
+                methods[method.getMethodCounter().getStatus()]++;
+            }
+        }
+
+        @Override
+        public synchronized void reportCache(int hits, int misses) {
+            cacheHits = hits;
+            cacheMisses = misses;
+        }
+
+        @Override
+        public synchronized void reportBundle(int analyzed, int skipped, long savedNanos) {
+            this.skipped = skipped;
+        }
+
+        @Override
+        public synchronized void flush() {
+            if (out == null || classes + cacheHits + cacheMisses + skipped == 0) {
+                return;
+            }
+            out.printf("%d classes: %d methods fully covered, %d partly covered, %d not covered, %d empty%n",
+                    classes, methods[ICounter.FULLY_COVERED], methods[ICounter.PARTLY_COVERED], methods[ICounter.NOT_COVERED], methods[ICounter.EMPTY]);
+            if (cacheHits + cacheMisses > 0) {
+                out.printf("coverage cache: %d classes reused, %d classes analyzed%n", cacheHits, cacheMisses);
+            }
+            if (skipped > 0) {
+                out.printf("bundle: %d classes skipped%n", skipped);
+            }
+            classes = 0;
+            Arrays.fill(methods, 0);
+            cacheHits = 0;
+            cacheMisses = 0;
+            skipped = 0;
+        }
+
+        @Override
+        public void close() {
+            // the totals are printed at the end of each analysis
+        }
+    }
+
+}
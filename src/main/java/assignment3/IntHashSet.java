@@ -0,0 +1,111 @@
+package assignment3;
+
+import java.util.Arrays;
+
+/**
+ * A set of non-negative ints backed by an open-addressing table, so that the
+ * values are not boxed.
+ *
+ * @author Cesar Soto-Valero
+ */
+final class IntHashSet {
+
+    /**
+     * Marks the free slots of the table
+     */
+    private static final int FREE = -1;
+
+    private int[] table;
+
+    private int size;
+
+    IntHashSet() {
+        this(4);
+    }
+
+    /**
+     * @param expectedSize The number of values expected in the set
+     */
+    IntHashSet(int expectedSize) {
+        int capacity = 8;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        table = new int[capacity];
+        Arrays.fill(table, FREE);
+    }
+
+    /**
+     * Adds a value to the set
+     *
+     * @param value A non-negative value
+     * @return true if the value was not in the set
+     */
+    boolean add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("negative value: " + value);
+        }
+        int slot = slot(table, value);
+        if (table[slot] == value) {
+            return false;
+        }
+        table[slot] = value;
+        if (++size * 2 > table.length) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * @param value A value
+     * @return true if the value is in the set
+     */
+    boolean contains(int value) {
+        return value >= 0 && table[slot(table, value)] == value;
+    }
+
+    /**
+     * @return The number of values in the set
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The values of the set, in no particular order
+     */
+    int[] toArray() {
+        int[] values = new int[size];
+        int i = 0;
+        for (int value : table) {
+            if (value != FREE) {
+                values[i++] = value;
+            }
+        }
+        return values;
+    }
+
+    private void grow() {
+        int[] old = table;
+        table = new int[old.length * 2];
+        Arrays.fill(table, FREE);
+        for (int value : old) {
+            if (value != FREE) {
+                table[slot(table, value)] = value;
+            }
+        }
+    }
+
+    /**
+     * @return The slot of the value, or the free slot where it should go
+     */
+    private static int slot(int[] table, int value) {
+        int mask = table.length - 1;
+        int i = (value * 0x9E3779B9) & mask;
+        while (table[i] != FREE && table[i] != value) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+}
@@ -1,13 +1,16 @@
 package assignment3;
 
 import org.jacoco.core.analysis.*;
-import org.jacoco.core.tools.ExecFileLoader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * This class performs the test coverage analysis. It uses Junco to dump the
@@ -19,9 +22,9 @@ import java.util.HashMap;
 public class JuncoProcessor {
 
     /**
-     * Path to the bundle
+     * The classes under analysis, the other built classes are not read
      */
-    private final Collection<String> bundle;
+    private BundleFilter bundle;
 
     /**
      * Path to the Junco coverage
@@ -33,19 +36,143 @@ public class JuncoProcessor {
      */
     private final String builtClassesPath;
 
+    /**
+     * Number of threads used to analyze the coverage files (1 means
+     * sequential)
+     */
+    private int parallelism = 1;
+
+    /**
+     * The built classes, read and parsed once per run
+     */
+    private ClassFileCache classFileCache;
+
+    /**
+     * The coverage of the previous runs, null to analyze every class again
+     */
+    private CoverageCache coverageCache;
+
+    /**
+     * The time spent in each phase of the analysis and its counters
+     */
+    private ReductionMetrics metrics = new ReductionMetrics();
+
+    /**
+     * Where the results of the analysis are reported
+     */
+    private CoverageReporter reporter = CoverageReporters.console();
+
+    /**
+     * The shard of the coverage files that are analyzed
+     */
+    private int execShardIndex;
+
+    /**
+     * Number of shards of the coverage files
+     */
+    private int execShardCount = 1;
+
     /**
      * Creates the test dependency extractor
      *
-     * @param bundle Path to the bundle
+     * @param bundle The classes under analysis, as described in
+     * {@link BundleFilter}, or an empty collection for every built class
      * @param coveragePath Path to the Junco coverage
      * @param builtClassesPath Path to the built classes
      */
     public JuncoProcessor(Collection<String> bundle, String coveragePath, String builtClassesPath) {
-        this.bundle = bundle;
+        this.bundle = new BundleFilter(bundle);
         this.coveragePath = coveragePath;
         this.builtClassesPath = builtClassesPath;
     }
 
+    /**
+     * Sets the number of threads used to analyze the coverage files. The
+     * results are merged in the order of the coverage files, so they do not
+     * depend on this value.
+     *
+     * @param parallelism Number of threads, 1 to analyze the files sequentially
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the cache with the coverage of the previous runs. When it is set,
+     * {@link #processUnion()} and {@link #processIndex()} only analyze the
+     * classes and the coverage files that changed, and save the cache
+     * afterwards.
+     *
+     * @param coverageCache The cache, or null to analyze every class again
+     */
+    public void setCoverageCache(CoverageCache coverageCache) {
+        this.coverageCache = coverageCache;
+    }
+
+    /**
+     * Sets the metrics where the time spent reading the coverage files,
+     * parsing the built classes and analyzing them is added, so that they can
+     * be shared with the other phases of the reduction
+     *
+     * @param metrics The metrics
+     */
+    public void setMetrics(ReductionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return The time spent in each phase of the analysis and its counters
+     */
+    public ReductionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets where the results of the analysis are reported. By default they
+     * are printed to the standard output; {@link CoverageReporters#none()}
+     * or {@link CoverageReporters#summary(java.io.PrintStream)} keep the
+     * console quiet.
+     *
+     * @param reporter The reporter
+     */
+    public void setReporter(CoverageReporter reporter) {
+        this.reporter = reporter;
+    }
+
+    /**
+     * Analyzes only one shard of the coverage files, so that several
+     * processes can analyze them. The files are dealt to the shards in the
+     * order of their names. The union of the methods covered in each shard is
+     * the same as the methods covered by all the files.
+     *
+     * @param index The shard to analyze, from 0 to count - 1
+     * @param count Number of shards
+     */
+    public void setExecFileShard(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("not a valid shard: " + index + " of " + count);
+        }
+        this.execShardIndex = index;
+        this.execShardCount = count;
+    }
+
+    /**
+     * Analyzes only one shard of the classes of the bundle, so that several
+     * processes can analyze them, as described in
+     * {@link BundleFilter#shard(int, int)}. It must be called before the
+     * first analysis.
+     *
+     * @param index The shard to analyze, from 0 to count - 1
+     * @param count Number of shards
+     */
+    public void setClassShard(int index, int count) {
+        this.bundle = bundle.shard(index, count);
+        this.classFileCache = null;
+    }
+
     /**
      * Processes the coverage information
      *
@@ -59,70 +186,34 @@ public class JuncoProcessor {
         // the list to return
         ArrayList<String> notCoveredMethodNames = new ArrayList<>();
 
-        // check the coverage files
-        File fcoverage = new File(coveragePath);
-        if (!fcoverage.exists()) {
-            throw new FileNotFoundException(fcoverage.getAbsolutePath());
-        }
-
-        // foreach file in the coverage files
-        for (File f : fcoverage.listFiles()) {
-
-            //Obtain the coverage bundle
-            if (f.isDirectory() || !f.getName().endsWith(".exec")) {
-                continue;
+        // analyze the coverage files, keeping every class
+        List<Collection<IClassCoverage>> analyzed = analyzeExecFiles(listExecFiles(), false, new ExecFileAnalysis<Collection<IClassCoverage>>() {
+            @Override
+            public Collection<IClassCoverage> analyze(File execFile, CoverageBuilder coverageBuilder) {
+                return coverageBuilder.getClasses();
             }
-            ExecFileLoader loader = new ExecFileLoader();
-
-            // load the .exec file and create the analyzer
-            loader.load(f);
-            final CoverageBuilder coverageBuilder = new CoverageBuilder();
-
-            final Analyzer analyzer = new Analyzer(loader.getExecutionDataStore(), coverageBuilder);
+        });
 
-            analyzer.analyzeAll(new File(builtClassesPath));
+        // foreach file in the coverage files
+        for (Collection<IClassCoverage> classes : analyzed) {
 
             // foreach class in the coverage builder
-            for (IClassCoverage c : coverageBuilder.getClasses()) {
+            for (IClassCoverage c : classes) {
 
-                System.out.println("Analyzing class: " + c.getName());
-
-                Collection<IMethodCoverage> methods = c.getMethods();
+                // the reporter formats the status of the methods, if at all
+                reporter.reportClass(c, true);
 
                 // foreach method in the class
-                for (IMethodCoverage method : methods) {
-
-                    System.out.println("Analyzing method: " + method.getName());
-
-                    switch (method.getMethodCounter().getStatus()) {
-                        case 0:
-                            System.out.println("  ===> EMPTY");
-                            break;
-                        case 1:
-                            System.out.println("  ===> NOT_COVERED");
-                            notCoveredMethodNames.add(method.getName());
-                            break;
-                        case 3:
-                            System.out.println("  ===> PARTLY_COVERED");
-                            break;
-                        case 2:
-                            System.out.println("  ===> FULLY_COVERED");
-                            break;
+                for (IMethodCoverage method : c.getMethods()) {
+                    if (method.getMethodCounter().getStatus() == ICounter.NOT_COVERED) {
+                        notCoveredMethodNames.add(method.getName());
                     }
                 }
-
-                // let's dump some other coverage information of the class
-                System.out.println("\n=== SUMMARY === ");
-                printCounter("instructions", c.getInstructionCounter());
-                printCounter("branches", c.getBranchCounter());
-                printCounter("lines", c.getLineCounter());
-                printCounter("methods", c.getMethodCounter());
-                printCounter("complexity", c.getComplexityCounter());
-                System.out.println("\n");
             }
 
         }
 
+        reporter.flush();
         return notCoveredMethodNames;
     }
 
@@ -139,31 +230,25 @@ public class JuncoProcessor {
         // the HashMap to return
         HashMap<String, Collection<String>> result = new HashMap<>();
 
-        // check the coverage files
-        File fcoverage = new File(coveragePath);
-        if (!fcoverage.exists()) {
-            throw new FileNotFoundException(fcoverage.getAbsolutePath());
-        }
-
-        // foreach file in the coverage files
-        for (File f : fcoverage.listFiles()) {
-
-            //Obtain the coverage bundle
-            if (f.isDirectory() || !f.getName().endsWith(".exec")) {
-                continue;
+        // analyze the coverage files, keeping only the classes with covered methods
+        List<Collection<IClassCoverage>> analyzed = analyzeExecFiles(listExecFiles(), true, new ExecFileAnalysis<Collection<IClassCoverage>>() {
+            @Override
+            public Collection<IClassCoverage> analyze(File execFile, CoverageBuilder coverageBuilder) {
+                Collection<IClassCoverage> coveredClasses = new ArrayList<>();
+                for (IClassCoverage c : coverageBuilder.getClasses()) {
+                    if (c.getMethodCounter().getCoveredCount() > 0) {
+                        coveredClasses.add(c);
+                    }
+                }
+                return coveredClasses;
             }
-            ExecFileLoader loader = new ExecFileLoader();
-
-            // load the .exec file and create the analyzer
-            loader.load(f);
-            final CoverageBuilder coverageBuilder = new CoverageBuilder();
+        });
 
-            final Analyzer analyzer = new Analyzer(loader.getExecutionDataStore(), coverageBuilder);
-
-            analyzer.analyzeAll(new File(builtClassesPath));
+        // foreach file in the coverage files
+        for (Collection<IClassCoverage> classes : analyzed) {
 
             // foreach class in the coverage builder
-            for (IClassCoverage c : coverageBuilder.getClasses()) {
+            for (IClassCoverage c : classes) {
 
 //                System.out.println("Analyzing class: " + c.getName());
                 Collection<IMethodCoverage> methods = c.getMethods();
@@ -194,16 +279,10 @@ public class JuncoProcessor {
 
                 if (coveredMethodsName.size() > 0) {
                     String className = c.getName().split("/")[c.getName().split("/").length - 1];
-                    result.put(className, coveredMethodsName);
+                    addCoveredMethods(result, className, coveredMethodsName);
 
-                    System.out.println("\nAnalyzing class: " + c.getName().replace("/", "."));
                     // let's dump some other coverage information of the class
-                    System.out.println("=== SUMMARY === ");
-                    printCounter("instructions", c.getInstructionCounter());
-                    printCounter("branches", c.getBranchCounter());
-                    printCounter("lines", c.getLineCounter());
-                    printCounter("methods", c.getMethodCounter());
-                    printCounter("complexity", c.getComplexityCounter());
+                    reporter.reportClass(c, false);
 
                 }
 
@@ -211,9 +290,193 @@ public class JuncoProcessor {
 
         }
 
+        reporter.flush();
         return result;
     }
 
+    /**
+     * Processes the coverage information of all the coverage files at once.
+     * The files are merged in a single execution data store, which is
+     * analyzed only once, so this is faster than {@link #process2()} when
+     * only the union of the covered methods is needed.
+     *
+     * @return A map with the simple name of the classes and the name of their
+     * methods that are covered by at least one test
+     *
+     * @throws java.io.IOException
+     */
+    protected HashMap<String, Collection<String>> processUnion() throws IOException {
+
+        // the HashMap to return
+        final HashMap<String, Collection<String>> result = new HashMap<>();
+
+        visitCoveredMethods(new CoveredMethodVisitor() {
+            @Override
+            public void visitCoveredMethod(String className, String methodName, String desc) {
+                String simpleName = className.substring(className.lastIndexOf('/') + 1);
+                Collection<String> coveredMethodsName = result.get(simpleName);
+                if (coveredMethodsName == null) {
+                    coveredMethodsName = new ArrayList<>();
+                    result.put(simpleName, coveredMethodsName);
+                }
+                if (!coveredMethodsName.contains(methodName)) {
+                    coveredMethodsName.add(methodName);
+                }
+            }
+        }, null);
+
+        return result;
+    }
+
+    /**
+     * Processes the coverage information of all the coverage files at once,
+     * like {@link #processUnion()}, and indexes the covered methods by the
+     * fully-qualified name of their class and their descriptor
+     *
+     * @return The index of the methods that are covered by at least one test
+     *
+     * @throws java.io.IOException
+     */
+    public CoverageIndex processIndex() throws IOException {
+        return processIndex(null);
+    }
+
+    /**
+     * Processes the coverage information like {@link #processIndex()},
+     * keeping the status of each source line of the executed classes in the
+     * same pass, as {@link #processLines()} does
+     *
+     * @param lines Where the status of the lines is added, null to only index
+     * the methods
+     * @return The index of the methods that are covered by at least one test
+     *
+     * @throws java.io.IOException
+     */
+    public CoverageIndex processIndex(LineCoverage lines) throws IOException {
+
+        final CoverageIndex index = new CoverageIndex();
+
+        visitCoveredMethods(new CoveredMethodVisitor() {
+            @Override
+            public void visitCoveredMethod(String className, String methodName, String desc) {
+                index.add(className, methodName, desc);
+            }
+        }, lines);
+
+        return index;
+    }
+
+    /**
+     * Visits the methods covered by at least one coverage file. Without a
+     * coverage cache, the files are merged in a single execution data store
+     * that is analyzed once. With a coverage cache, each file is analyzed on
+     * its own, taking the classes that did not change from the cache; the
+     * union of the methods covered by each file is the same as the methods
+     * covered by the merged files. The status of the lines is merged in the
+     * same way, so a line executed by some of the files only is partly
+     * covered.
+     *
+     * @param visitor The visitor of the covered methods
+     * @param lines Where the status of the lines is added, or null
+     * @throws IOException
+     */
+    private void visitCoveredMethods(CoveredMethodVisitor visitor, LineCoverage lines) throws IOException {
+
+        if (coverageCache != null) {
+
+            final ClassFileCache classes = getClassFileCache();
+            List<File> execFiles = listExecFiles();
+            int misses = coverageCache.getMisses();
+            List<Collection<CoverageCache.ClassRecord>> analyzed = forEachExecFile(execFiles, new ExecFileFunction<Collection<CoverageCache.ClassRecord>>() {
+                @Override
+                public Collection<CoverageCache.ClassRecord> apply(File execFile) throws IOException {
+                    // the cache reads the file only for the classes it does not have
+                    ReductionMetrics.Timer t = metrics.start(ReductionMetrics.ANALYSIS);
+                    try {
+                        return coverageCache.analyze(execFile, classes);
+                    } finally {
+                        t.close();
+                    }
+                }
+            });
+            metrics.increment(ReductionMetrics.EXEC_FILES, execFiles.size());
+            metrics.increment(ReductionMetrics.CLASSES_ANALYZED, coverageCache.getMisses() - misses);
+
+            // foreach class in each of the coverage files
+            for (Collection<CoverageCache.ClassRecord> records : analyzed) {
+                for (CoverageCache.ClassRecord record : records) {
+                    if (lines != null) {
+                        record.addLinesTo(lines);
+                    }
+                    for (int i = 0; i < record.getMethodCount(); i++) {
+                        if (record.isMethodCovered(i)) {
+                            visitor.visitCoveredMethod(record.getClassName(), record.getMethodName(i), record.getMethodDesc(i));
+                        }
+                    }
+                }
+            }
+
+            coverageCache.save();
+            reporter.reportCache(coverageCache.getHits(), coverageCache.getMisses());
+            printBundleSummary();
+            reporter.flush();
+            return;
+        }
+
+        // foreach class in the coverage of the merged files
+        for (IClassCoverage c : analyzeMerged().getClasses()) {
+            if (lines != null) {
+                lines.add(c);
+            }
+            for (IMethodCoverage method : c.getMethods()) {
+                if (method.getMethodCounter().getCoveredCount() > 0) {
+                    visitor.visitCoveredMethod(c.getName(), method.getName(), method.getDesc());
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes the coverage information of all the coverage files at once,
+     * keeping the status of each source line of the executed classes. A line
+     * is covered if it was executed by at least one test. With a coverage
+     * cache, the lines are taken from the cache like the methods.
+     *
+     * @return The status of the lines of the classes executed by the tests
+     *
+     * @throws java.io.IOException
+     */
+    public LineCoverage processLines() throws IOException {
+
+        LineCoverage lines = new LineCoverage();
+        processIndex(lines);
+        return lines;
+    }
+
+    /**
+     * Merges the probes of all the coverage files and analyzes the executed
+     * classes once
+     *
+     * @return The coverage of the executed classes for all the files
+     * @throws IOException
+     */
+    private CoverageBuilder analyzeMerged() throws IOException {
+
+        // merge the probes of the built classes of all the coverage files
+        ClassFileCache classes = getClassFileCache();
+        ProbeStore probes = classes.newProbeStore();
+        for (File f : listExecFiles()) {
+            readProbes(probes, f);
+        }
+
+        // analyze the merged probes once
+        CoverageBuilder coverageBuilder = new CoverageBuilder();
+        analyzeProbes(classes, probes, coverageBuilder, true);
+        printBundleSummary();
+        reporter.flush();
+        return coverageBuilder;
+    }
+
     /**
      * Processes the coverage information
      */
@@ -221,50 +484,380 @@ public class JuncoProcessor {
 
         HashMap<String, Collection<String>> result = new HashMap<>();
 
+        List<File> execFiles = listExecFiles();
+        List<Collection<String>> analyzed = analyzeExecFiles(execFiles, true, new ExecFileAnalysis<Collection<String>>() {
+            @Override
+            public Collection<String> analyze(File execFile, CoverageBuilder coverageBuilder) {
+                Collection<String> coveredClassesName = new ArrayList<>();
+                for (IClassCoverage c : coverageBuilder.getClasses()) {
+                    if (c.getClassCounter().getCoveredCount() > 0) {
+                        coveredClassesName.add(c.getName().replace("/", "."));
+                    }
+                }
+                return coveredClassesName;
+            }
+        });
+
+        for (int i = 0; i < execFiles.size(); i++) {
+            Collection<String> coveredClassesName = analyzed.get(i);
+            if (coveredClassesName.size() > 0) {
+                result.put(testName(execFiles.get(i)), coveredClassesName);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Processes the coverage information of each test case into a matrix of
+     * the methods covered by each test
+     *
+     * @return The matrix, with a row for each coverage file
+     *
+     * @throws java.io.IOException
+     */
+    public TestImpactMatrix processMatrix() throws IOException {
+
+        List<File> execFiles = listExecFiles();
+        List<List<String[]>> analyzed = analyzeExecFiles(execFiles, true, new ExecFileAnalysis<List<String[]>>() {
+            @Override
+            public List<String[]> analyze(File execFile, CoverageBuilder coverageBuilder) {
+                List<String[]> coveredMethods = new ArrayList<>();
+                for (IClassCoverage c : coverageBuilder.getClasses()) {
+                    for (IMethodCoverage method : c.getMethods()) {
+                        if (method.getMethodCounter().getCoveredCount() > 0) {
+                            coveredMethods.add(new String[]{c.getName(), method.getName(), method.getDesc()});
+                        }
+                    }
+                }
+                return coveredMethods;
+            }
+        });
+
+        TestImpactMatrix matrix = new TestImpactMatrix();
+        for (int i = 0; i < execFiles.size(); i++) {
+            int row = matrix.addTest(testName(execFiles.get(i)));
+            for (String[] method : analyzed.get(i)) {
+                matrix.add(row, method[0], method[1], method[2]);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Reads the invocation counts recorded next to the coverage files by
+     * {@link MethodProfiler}, when the tests ran with the "hot-methods"
+     * profile, and ranks the methods of the bundle
+     *
+     * @return The methods of the bundle, the hottest first
+     *
+     * @throws java.io.IOException
+     */
+    public MethodProfile processProfile() throws IOException {
+
+        File profile = new File(coveragePath, "hot-methods.tsv");
+        if (!profile.exists()) {
+            throw new FileNotFoundException(profile.getAbsolutePath() + " (run the tests with -Phot-methods)");
+        }
+        return MethodProfile.load(profile, bundle);
+    }
+
+    /**
+     * @return The name of the test case of a coverage file
+     */
+    private static String testName(File execFile) {
+        String n = execFile.getName();
+        return n.substring(0, n.lastIndexOf(".exec"));
+    }
+
+    /**
+     * Adds the covered methods of a class to the result, keeping the methods
+     * already covered by the previous coverage files
+     *
+     * @param result The covered methods of each class
+     * @param className The name of the class
+     * @param coveredMethodsName The covered methods of the class
+     */
+    private void addCoveredMethods(HashMap<String, Collection<String>> result, String className, Collection<String> coveredMethodsName) {
+        Collection<String> previous = result.get(className);
+        if (previous == null) {
+            result.put(className, coveredMethodsName);
+            return;
+        }
+        for (String methodName : coveredMethodsName) {
+            if (!previous.contains(methodName)) {
+                previous.add(methodName);
+            }
+        }
+    }
+
+    /**
+     * Lists the Junco coverage files, sorted by name so that the results do
+     * not depend on the order of the file system
+     *
+     * @return The .exec files in the coverage path
+     * @throws FileNotFoundException if the coverage path does not exist
+     */
+    protected List<File> listExecFiles() throws FileNotFoundException {
+
+        // check the coverage files
         File fcoverage = new File(coveragePath);
         if (!fcoverage.exists()) {
             throw new FileNotFoundException(fcoverage.getAbsolutePath());
         }
 
-        for (File f : fcoverage.listFiles()) {
+        List<File> execFiles = new ArrayList<>();
+        File[] files = fcoverage.listFiles();
+        Arrays.sort(files);
+        int n = 0;
+        for (File f : files) {
             //Obtain the coverage bundle
             if (f.isDirectory() || !f.getName().endsWith(".exec")) {
                 continue;
             }
-            ExecFileLoader loader = new ExecFileLoader();
-
-            loader.load(f);
-            final CoverageBuilder coverageBuilder = new CoverageBuilder();
-            final Analyzer analyzer = new Analyzer(loader.getExecutionDataStore(), coverageBuilder);
-            analyzer.analyzeAll(new File(builtClassesPath));
-
-            Collection<String> coveredClassesName = new ArrayList<>();
-            String n = f.getName();
-            for (IClassCoverage c : coverageBuilder.getClasses()) {
-                if (c.getClassCounter().getCoveredCount() > 0) {
-                    String className = c.getName().replace("/", ".");
-//                    if (bundle == null || bundle.size() == 0 || bundle.contains(className)) {
-                    coveredClassesName.add(className);
-//                    }
-                }
+            if (n++ % execShardCount == execShardIndex) {
+                execFiles.add(f);
             }
-            if (coveredClassesName.size() > 0) {
-                result.put(n.substring(0, n.lastIndexOf(".exec")), coveredClassesName);
+        }
+        return execFiles;
+    }
+
+    /**
+     * Analyzes the given coverage files against the built classes. When the
+     * parallelism is greater than 1 the files are spread across a
+     * {@link ForkJoinPool}.
+     *
+     * @param execFiles The coverage files
+     * @param executedOnly true to analyze only the classes that have execution
+     * data in each file
+     * @param analysis The analysis applied to the coverage of each file
+     * @return The result of the analysis for each file, in the given order
+     * @throws IOException
+     */
+    protected <T> List<T> analyzeExecFiles(List<File> execFiles, final boolean executedOnly, final ExecFileAnalysis<T> analysis) throws IOException {
+
+        // read and parse the built classes only once for all the files
+        final ClassFileCache classes = getClassFileCache();
+
+        List<T> results = forEachExecFile(execFiles, new ExecFileFunction<T>() {
+            @Override
+            public T apply(File execFile) throws IOException {
+                return analyzeExecFile(execFile, classes, executedOnly, analysis);
             }
+        });
+        printBundleSummary();
+        reporter.flush();
+        return results;
+    }
+
+    /**
+     * Applies a function to each coverage file, sequentially or spread across
+     * a {@link ForkJoinPool} depending on the parallelism
+     *
+     * @param execFiles The coverage files
+     * @param function The function applied to each file
+     * @return The result of the function for each file, in the given order
+     * @throws IOException
+     */
+    private <T> List<T> forEachExecFile(List<File> execFiles, ExecFileFunction<T> function) throws IOException {
+
+        if (parallelism == 1 || execFiles.size() < 2) {
+            List<T> results = new ArrayList<>(execFiles.size());
+            for (File f : execFiles) {
+                results.add(function.apply(f));
+            }
+            return results;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new ExecFileTask<>(execFiles, 0, execFiles.size(), function));
+        } catch (ExecFileAnalysisException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
         }
-        return result;
     }
 
     /**
-     * Prints the coverage information of the counter
+     * Returns the built classes, reading and parsing them on the first call
      *
-     * @param unit Coverage criterion
-     * @param counter The current coverage counter
+     * @return The cached built classes
+     * @throws IOException
+     */
+    protected synchronized ClassFileCache getClassFileCache() throws IOException {
+        if (classFileCache == null) {
+            ReductionMetrics.Timer t = metrics.start(ReductionMetrics.CLASS_PARSING);
+            try {
+                classFileCache = ClassFileCache.load(builtClassesPath, bundle);
+            } finally {
+                t.close();
+            }
+        }
+        return classFileCache;
+    }
+
+    /**
+     * Analyzes a single coverage file against the built classes
+     *
+     * @param f The .exec file
+     * @param classes The cached built classes
+     * @param executedOnly true to analyze only the classes that have execution
+     * data in the file
+     * @param analysis The analysis applied to the coverage of the file
+     * @return The result of the analysis
+     * @throws IOException
+     */
+    private <T> T analyzeExecFile(File f, ClassFileCache classes, boolean executedOnly, ExecFileAnalysis<T> analysis) throws IOException {
+
+        // read the probes of the built classes from the .exec file
+        ProbeStore probes = classes.newProbeStore();
+        readProbes(probes, f);
+
+        final CoverageBuilder coverageBuilder = new CoverageBuilder();
+        analyzeProbes(classes, probes, coverageBuilder, executedOnly);
+
+        return analysis.analyze(f, coverageBuilder);
+    }
+
+    /**
+     * Reads the probes of a coverage file, measuring the time spent
+     */
+    private void readProbes(ProbeStore probes, File f) throws IOException {
+        ReductionMetrics.Timer t = metrics.start(ReductionMetrics.EXEC_LOADING);
+        try {
+            probes.read(f);
+        } finally {
+            t.close();
+        }
+        metrics.increment(ReductionMetrics.EXEC_FILES, 1);
+    }
+
+    /**
+     * Analyzes the built classes against the probes, measuring the time spent
      */
-    private void printCounter(final String unit, final ICounter counter) {
-        final Integer missed = counter.getMissedCount();
-        final Integer total = counter.getTotalCount();
-        System.out.printf("%s of %s %s missed%n", missed, total, unit);
+    private void analyzeProbes(ClassFileCache classes, ProbeStore probes, CoverageBuilder coverageBuilder, boolean executedOnly) {
+        ReductionMetrics.Timer t = metrics.start(ReductionMetrics.ANALYSIS);
+        try {
+            metrics.increment(ReductionMetrics.CLASSES_ANALYZED, classes.analyze(probes, coverageBuilder, executedOnly));
+        } finally {
+            t.close();
+        }
+    }
+
+    /**
+     * Reports how many built classes were skipped because they are not in the
+     * bundle, and the time that was saved
+     */
+    private void printBundleSummary() {
+        if (classFileCache != null && classFileCache.getSkipped() > 0) {
+            reporter.reportBundle(classFileCache.size(), classFileCache.getSkipped(), classFileCache.getEstimatedSavedNanos());
+        }
+    }
+
+    /**
+     * The analysis applied to the coverage of each .exec file. It runs on the
+     * analyzing thread, so it should only extract what is needed from the
+     * coverage builder.
+     *
+     * @param <T> The result of the analysis
+     */
+    protected interface ExecFileAnalysis<T> {
+
+        /**
+         * Extracts the result from the coverage of a file
+         *
+         * @param execFile The .exec file
+         * @param coverageBuilder The coverage of the built classes for the file
+         * @return The result for the file
+         */
+        T analyze(File execFile, CoverageBuilder coverageBuilder);
+    }
+
+    /**
+     * Visits the methods covered by the test suite
+     */
+    private interface CoveredMethodVisitor {
+
+        /**
+         * @param className The VM name of the class
+         * @param methodName The name of the method
+         * @param desc The JVM descriptor of the method
+         */
+        void visitCoveredMethod(String className, String methodName, String desc);
+    }
+
+    /**
+     * A function applied to each coverage file
+     *
+     * @param <T> The result of the function
+     */
+    private interface ExecFileFunction<T> {
+
+        T apply(File execFile) throws IOException;
+    }
+
+    /**
+     * Splits a range of coverage files in halves until a single file is left.
+     * The results of both halves are concatenated in order, so they are the
+     * same as the sequential ones.
+     */
+    private class ExecFileTask<T> extends RecursiveTask<List<T>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<File> execFiles;
+
+        private final int from;
+
+        private final int to;
+
+        private final ExecFileFunction<T> function;
+
+        ExecFileTask(List<File> execFiles, int from, int to, ExecFileFunction<T> function) {
+            this.execFiles = execFiles;
+            this.from = from;
+            this.to = to;
+            this.function = function;
+        }
+
+        @Override
+        protected List<T> compute() {
+            if (to - from == 1) {
+                List<T> results = new ArrayList<>(1);
+                try {
+                    results.add(function.apply(execFiles.get(from)));
+                } catch (IOException e) {
+                    throw new ExecFileAnalysisException(e);
+                }
+                return results;
+            }
+
+            int middle = (from + to) >>> 1;
+            ExecFileTask<T> left = new ExecFileTask<>(execFiles, from, middle, function);
+            ExecFileTask<T> right = new ExecFileTask<>(execFiles, middle, to, function);
+            left.fork();
+            List<T> rightResults = right.compute();
+            List<T> results = left.join();
+            results.addAll(rightResults);
+            return results;
+        }
+    }
+
+    /**
+     * Carries an {@link IOException} out of a {@link ForkJoinPool} task
+     */
+    private static class ExecFileAnalysisException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ExecFileAnalysisException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
     }
 
 }
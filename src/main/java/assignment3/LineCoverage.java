@@ -0,0 +1,86 @@
+package assignment3;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ISourceNode;
+
+/**
+ * This class keeps the status of each source line of the classes covered by
+ * the test suite, as reported by JaCoCo: {@link ICounter#EMPTY} for the lines
+ * without code, {@link ICounter#NOT_COVERED}, {@link ICounter#PARTLY_COVERED}
+ * or {@link ICounter#FULLY_COVERED}. The statuses added for the same class are
+ * merged, so the lines executed by any of the tests are covered.
+ *
+ * @author Cesar Soto-Valero
+ */
+public class LineCoverage {
+
+    /**
+     * The status of each line, by fully-qualified class name and line number
+     */
+    private final Map<String, byte[]> lines = new HashMap<>();
+
+    /**
+     * Adds the status of the lines of a class
+     *
+     * @param c The coverage of the class
+     */
+    public void add(IClassCoverage c) {
+        if (c.getFirstLine() == ISourceNode.UNKNOWN_LINE) {
+            // compiled without debug information
+            return;
+        }
+        for (int line = c.getFirstLine(); line <= c.getLastLine(); line++) {
+            int status = c.getLine(line).getStatus();
+            if (status != ICounter.EMPTY) {
+                add(c.getName(), line, status);
+            }
+        }
+    }
+
+    /**
+     * Adds the status of a line, merged with the status already added
+     *
+     * @param className The VM or fully-qualified name of the class
+     * @param line The line number
+     * @param status The status of the line
+     */
+    public void add(String className, int line, int status) {
+        String name = CoverageIndex.toQualifiedName(className);
+        byte[] statuses = lines.get(name);
+        if (statuses == null) {
+            statuses = new byte[line + 1];
+            lines.put(name, statuses);
+        } else if (statuses.length <= line) {
+            statuses = Arrays.copyOf(statuses, Math.max(line + 1, statuses.length * 2));
+            lines.put(name, statuses);
+        }
+        // NOT_COVERED | FULLY_COVERED is PARTLY_COVERED
+        statuses[line] |= status;
+    }
+
+    /**
+     * @param className The fully-qualified name of the class
+     * @return true if the status of the lines of the class is known
+     */
+    public boolean hasLines(String className) {
+        return lines.containsKey(className);
+    }
+
+    /**
+     * @param className The fully-qualified name of the class
+     * @param line The line number
+     * @return The status of the line, {@link ICounter#EMPTY} if it is unknown
+     */
+    public int getStatus(String className, int line) {
+        byte[] statuses = lines.get(className);
+        if (statuses == null || line < 0 || line >= statuses.length) {
+            return ICounter.EMPTY;
+        }
+        return statuses[line];
+    }
+
+}
@@ -0,0 +1,453 @@
+package assignment3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import spoon.reflect.code.CtAssignment;
+import spoon.reflect.code.CtBinaryOperator;
+import spoon.reflect.code.CtConstructorCall;
+import spoon.reflect.code.CtExpression;
+import spoon.reflect.code.CtFieldRead;
+import spoon.reflect.code.CtFieldWrite;
+import spoon.reflect.code.CtInvocation;
+import spoon.reflect.code.CtLiteral;
+import spoon.reflect.code.CtLocalVariable;
+import spoon.reflect.code.CtNewArray;
+import spoon.reflect.code.CtNewClass;
+import spoon.reflect.code.CtOperatorAssignment;
+import spoon.reflect.code.CtStatement;
+import spoon.reflect.code.CtUnaryOperator;
+import spoon.reflect.code.CtVariableRead;
+import spoon.reflect.code.UnaryOperatorKind;
+import spoon.reflect.declaration.CtAnonymousExecutable;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtEnum;
+import spoon.reflect.declaration.CtEnumValue;
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtInterface;
+import spoon.reflect.declaration.CtModifiable;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.ModifierKind;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtFieldReference;
+import spoon.reflect.reference.CtLocalVariableReference;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+/**
+ * This class removes the members that are left unused once the methods that
+ * were not covered by the test suite have been removed: the fields that are
+ * never read, the initializer blocks that only assign them and the nested
+ * classes that were never executed and are not referenced. The members are
+ * removed until none is left unused, since removing a nested class can leave
+ * a field unused and the other way around.
+ *
+ * A field or a block is removed only if its initializers are literals,
+ * constants or allocations of JDK value types, so that the initialization of
+ * the class keeps its side effects, such as the loading of other classes or
+ * the registration of the class somewhere.
+ *
+ * Only the private and package-private members are removed, because the
+ * references from the other packages may not be in the model. The anonymous
+ * classes that were never executed are inside code that was never executed,
+ * which is removed with the uncovered methods and branches.
+ *
+ * @author Cesar Soto-Valero
+ */
+final class MemberPruner {
+
+    /**
+     * The JDK classes whose allocation has no side effect
+     */
+    private static final Set<String> VALUE_TYPES = new HashSet<>(Arrays.asList(
+            "java.lang.Object", "java.lang.String", "java.lang.StringBuilder", "java.lang.StringBuffer",
+            "java.lang.Boolean", "java.lang.Byte", "java.lang.Character", "java.lang.Short",
+            "java.lang.Integer", "java.lang.Long", "java.lang.Float", "java.lang.Double",
+            "java.math.BigInteger", "java.math.BigDecimal",
+            "java.util.ArrayList", "java.util.LinkedList", "java.util.ArrayDeque",
+            "java.util.HashMap", "java.util.LinkedHashMap", "java.util.TreeMap", "java.util.IdentityHashMap",
+            "java.util.HashSet", "java.util.LinkedHashSet", "java.util.TreeSet",
+            "java.util.concurrent.ConcurrentHashMap"));
+
+    /**
+     * The methods covered by the test suite
+     */
+    private final CoverageIndex coveredMethods;
+
+    private final Factory factory;
+
+    private int removedFields;
+
+    private int removedInitializers;
+
+    private int removedNestedClasses;
+
+    /**
+     * Creates the pruner
+     *
+     * @param coveredMethods The methods covered by the test suite
+     * @param factory The factory of the model
+     */
+    MemberPruner(CoverageIndex coveredMethods, Factory factory) {
+        this.coveredMethods = coveredMethods;
+        this.factory = factory;
+    }
+
+    /**
+     * Removes the unused members of the given classes and of their nested
+     * classes
+     *
+     * @param classes The top-level classes
+     */
+    void prune(List<CtClass<?>> classes) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            References references = new References(factory);
+            for (CtClass<?> c : classes) {
+                List<CtType<?>> types = new ArrayList<>();
+                collectTypes(c, types);
+                for (CtType<?> type : types) {
+                    if (type != c && isUnusedNestedClass(type, references)) {
+                        type.delete();
+                        comment(c, "class \"" + type.getSimpleName() + "\" was removed from this class because it was not covered by the test suite");
+                        removedNestedClasses++;
+                        changed = true;
+                        // its nested classes were removed with it
+                        break;
+                    } else if (type instanceof CtClass && pruneFields(c, (CtClass<?>) type, references)) {
+                        changed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Number of removed fields
+     */
+    int getRemovedFields() {
+        return removedFields;
+    }
+
+    /**
+     * @return Number of removed initializer blocks
+     */
+    int getRemovedInitializers() {
+        return removedInitializers;
+    }
+
+    /**
+     * @return Number of removed nested classes
+     */
+    int getRemovedNestedClasses() {
+        return removedNestedClasses;
+    }
+
+    /**
+     * Removes the fields of a class that are never read, with the
+     * initializer blocks that only assign them
+     *
+     * @return true if a member was removed
+     */
+    private boolean pruneFields(CtClass<?> topLevel, CtClass<?> type, References references) {
+
+        // the fields that are never read and only written in initializer blocks
+        Set<String> candidates = new HashSet<>();
+        for (CtField<?> field : type.getFields()) {
+            if (isRemovable(field) && references.isOnlyAssignedInInitializers(type, field)) {
+                candidates.add(field.getSimpleName());
+            }
+        }
+        if (candidates.isEmpty()) {
+            return false;
+        }
+
+        // the blocks that only feed the candidates are removed with them
+        Set<String> kept = new HashSet<>();
+        for (CtAnonymousExecutable block : new ArrayList<>(type.getAnonymousExecutables())) {
+            Set<String> assigned = assignedFields(type, block);
+            if (assigned.isEmpty()) {
+                continue;
+            }
+            if (candidates.containsAll(assigned) && onlyFeedsFields(block)) {
+                block.delete();
+                comment(topLevel, "an initializer of class \"" + type.getSimpleName() + "\" was removed because it only assigned unused fields");
+                removedInitializers++;
+            } else {
+                kept.addAll(assigned);
+            }
+        }
+
+        boolean changed = false;
+        for (CtField<?> field : new ArrayList<>(type.getFields())) {
+            if (candidates.contains(field.getSimpleName()) && !kept.contains(field.getSimpleName())) {
+                type.removeField(field);
+                comment(topLevel, "field \"" + field.getSimpleName() + "\" was removed from this class because it was not used by the covered methods");
+                removedFields++;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return true if a nested class was never executed and is not referenced
+     * outside itself
+     */
+    private boolean isUnusedNestedClass(CtType<?> type, References references) {
+        if (!(type instanceof CtClass) || type instanceof CtEnum || ((CtClass<?>) type).isAnonymous()
+                || type.getDeclaringType() instanceof CtInterface || !isLocal(type)) {
+            return false;
+        }
+        List<CtType<?>> types = new ArrayList<>();
+        collectTypes(type, types);
+        for (CtType<?> t : types) {
+            if (coveredMethods.hasCoverage(t.getQualifiedName()) || references.isReferencedOutside(t, type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if a field can be removed when it is not used
+     */
+    private static boolean isRemovable(CtField<?> field) {
+        String name = field.getSimpleName();
+        // the serialization fields are read by reflection
+        return isLocal(field) && !(field instanceof CtEnumValue) && field.getAnnotations().isEmpty()
+                && !name.equals("serialVersionUID") && !name.equals("serialPersistentFields")
+                && hasNoSideEffect(field.getDefaultExpression());
+    }
+
+    /**
+     * @return true if an initializer is a literal, a constant, a local
+     * variable, an allocation of a JDK value type or a call on a local
+     * variable, and its operands have no side effect either. The locals are
+     * themselves initialized with such expressions.
+     */
+    private static boolean hasNoSideEffect(CtExpression<?> expression) {
+        if (expression == null || expression instanceof CtLiteral) {
+            return true;
+        }
+        if (expression instanceof CtVariableRead && !(expression instanceof CtFieldRead)) {
+            return ((CtVariableRead<?>) expression).getVariable() instanceof CtLocalVariableReference;
+        }
+        if (expression instanceof CtFieldRead) {
+            return isConstant(((CtFieldRead<?>) expression).getVariable());
+        }
+        if (expression instanceof CtUnaryOperator) {
+            UnaryOperatorKind kind = ((CtUnaryOperator<?>) expression).getKind();
+            return kind != UnaryOperatorKind.PREINC && kind != UnaryOperatorKind.PREDEC
+                    && kind != UnaryOperatorKind.POSTINC && kind != UnaryOperatorKind.POSTDEC
+                    && hasNoSideEffect(((CtUnaryOperator<?>) expression).getOperand());
+        }
+        if (expression instanceof CtBinaryOperator) {
+            CtBinaryOperator<?> operator = (CtBinaryOperator<?>) expression;
+            return hasNoSideEffect(operator.getLeftHandOperand()) && hasNoSideEffect(operator.getRightHandOperand());
+        }
+        if (expression instanceof CtNewArray) {
+            CtNewArray<?> array = (CtNewArray<?>) expression;
+            return haveNoSideEffect(array.getDimensionExpressions()) && haveNoSideEffect(array.getElements());
+        }
+        if (expression instanceof CtConstructorCall && !(expression instanceof CtNewClass)) {
+            CtConstructorCall<?> call = (CtConstructorCall<?>) expression;
+            return VALUE_TYPES.contains(call.getType().getQualifiedName()) && haveNoSideEffect(call.getArguments());
+        }
+        if (expression instanceof CtInvocation) {
+            CtInvocation<?> invocation = (CtInvocation<?>) expression;
+            return isLocalRead(invocation.getTarget()) && haveNoSideEffect(invocation.getArguments());
+        }
+        return false;
+    }
+
+    private static boolean haveNoSideEffect(List<? extends CtExpression<?>> expressions) {
+        for (CtExpression<?> expression : expressions) {
+            if (!hasNoSideEffect(expression)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if a field is a static final field initialized with a
+     * literal, or a static final field of the JDK, whose read does not
+     * initialize a class of the project
+     */
+    private static boolean isConstant(CtFieldReference<?> field) {
+        CtField<?> declaration = field.getDeclaration();
+        if (declaration != null) {
+            return declaration.hasModifier(ModifierKind.STATIC) && declaration.hasModifier(ModifierKind.FINAL)
+                    && declaration.getDefaultExpression() instanceof CtLiteral;
+        }
+        CtTypeReference<?> declaringType = field.getDeclaringType();
+        return declaringType != null && declaringType.getQualifiedName().startsWith("java.")
+                && field.isStatic() && field.isFinal();
+    }
+
+    /**
+     * @return true if an expression reads a local variable
+     */
+    private static boolean isLocalRead(CtExpression<?> expression) {
+        return expression instanceof CtVariableRead
+                && ((CtVariableRead<?>) expression).getVariable() instanceof CtLocalVariableReference;
+    }
+
+    /**
+     * @return true if the member is private or package-private, so that all
+     * its references are in the model
+     */
+    private static boolean isLocal(CtModifiable member) {
+        return !member.hasModifier(ModifierKind.PUBLIC) && !member.hasModifier(ModifierKind.PROTECTED);
+    }
+
+    /**
+     * @return The names of the fields of a class assigned in a block
+     */
+    private static Set<String> assignedFields(CtClass<?> type, CtAnonymousExecutable block) {
+        Set<String> assigned = new HashSet<>();
+        for (CtFieldWrite<?> write : block.getElements(new TypeFilter<>(CtFieldWrite.class))) {
+            if (declares(type, write.getVariable())) {
+                assigned.add(write.getVariable().getSimpleName());
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * @return true if the statements of a block only declare locals, call
+     * methods on them and assign fields, with initializers that have no side
+     * effect, so that the block does nothing else than computing the values
+     * of the fields
+     */
+    private static boolean onlyFeedsFields(CtAnonymousExecutable block) {
+        for (CtStatement statement : block.getBody().getStatements()) {
+            if (statement instanceof CtLocalVariable) {
+                if (hasNoSideEffect(((CtLocalVariable<?>) statement).getDefaultExpression())) {
+                    continue;
+                }
+            } else if (statement instanceof CtAssignment && !(statement instanceof CtOperatorAssignment)
+                    && ((CtAssignment<?, ?>) statement).getAssigned() instanceof CtFieldWrite) {
+                if (hasNoSideEffect(((CtAssignment<?, ?>) statement).getAssignment())) {
+                    continue;
+                }
+            } else if (statement instanceof CtInvocation && hasNoSideEffect((CtInvocation<?>) statement)) {
+                continue;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if a field reference refers to a field of the class
+     */
+    private static boolean declares(CtType<?> type, CtFieldReference<?> field) {
+        CtTypeReference<?> declaringType = field.getDeclaringType();
+        return declaringType != null && declaringType.getQualifiedName().equals(type.getQualifiedName());
+    }
+
+    /**
+     * Adds a type and its nested types to a list, outer types first
+     */
+    private static void collectTypes(CtType<?> type, List<CtType<?>> types) {
+        types.add(type);
+        for (CtType<?> nested : new ArrayList<>(type.getNestedTypes())) {
+            collectTypes(nested, types);
+        }
+    }
+
+    private void comment(CtClass<?> c, String content) {
+        c.addComment(factory.Core().createComment().setContent(content));
+    }
+
+    /**
+     * The references to the types and fields of the model, collected once per
+     * round of removals
+     */
+    private static final class References {
+
+        /**
+         * The references to each type, by qualified name
+         */
+        private final Map<String, List<CtTypeReference<?>>> types = new HashMap<>();
+
+        /**
+         * The accesses to each field, by qualified name of the declaring
+         * type and name of the field
+         */
+        private final Map<String, List<CtFieldReference<?>>> fields = new HashMap<>();
+
+        References(Factory factory) {
+            for (CtTypeReference<?> reference : factory.getModel().getElements(new TypeFilter<>(CtTypeReference.class))) {
+                add(types, reference.getQualifiedName(), reference);
+            }
+            for (CtFieldReference<?> reference : factory.getModel().getElements(new TypeFilter<>(CtFieldReference.class))) {
+                if (reference.getDeclaringType() != null) {
+                    add(fields, reference.getDeclaringType().getQualifiedName() + "#" + reference.getSimpleName(), reference);
+                }
+            }
+        }
+
+        /**
+         * @return true if a type is referenced outside the given type
+         */
+        boolean isReferencedOutside(CtType<?> type, CtType<?> outside) {
+            List<CtTypeReference<?>> references = types.get(type.getQualifiedName());
+            if (references != null) {
+                for (CtTypeReference<?> reference : references) {
+                    if (!reference.hasParent(outside)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return true if a field is never read and is only assigned in the
+         * initializer blocks of its class
+         */
+        boolean isOnlyAssignedInInitializers(CtClass<?> type, CtField<?> field) {
+            List<CtFieldReference<?>> references = fields.get(type.getQualifiedName() + "#" + field.getSimpleName());
+            if (references == null) {
+                return true;
+            }
+            for (CtFieldReference<?> reference : references) {
+                if (reference.hasParent(field)) {
+                    continue;
+                }
+                if (!(reference.getParent() instanceof CtFieldWrite)) {
+                    return false;
+                }
+                // a compound assignment or an increment also reads the field
+                CtElement write = reference.getParent();
+                if (!(write.getParent() instanceof CtAssignment) || write.getParent() instanceof CtOperatorAssignment) {
+                    return false;
+                }
+                CtAnonymousExecutable block = write.getParent(CtAnonymousExecutable.class);
+                if (block == null || block.getParent() != type) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static <R> void add(Map<String, List<R>> map, String key, R reference) {
+            List<R> list = map.get(key);
+            if (list == null) {
+                list = new ArrayList<>();
+                map.put(key, list);
+            }
+            list.add(reference);
+        }
+    }
+
+}
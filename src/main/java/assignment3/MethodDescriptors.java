@@ -0,0 +1,105 @@
+package assignment3;
+
+import java.util.List;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtParameter;
+import spoon.reflect.declaration.CtTypeParameter;
+import spoon.reflect.reference.CtArrayTypeReference;
+import spoon.reflect.reference.CtIntersectionTypeReference;
+import spoon.reflect.reference.CtTypeParameterReference;
+import spoon.reflect.reference.CtTypeReference;
+
+/**
+ * This class computes the JVM descriptor of the methods of the Spoon model,
+ * erasing the generic types like the compiler does, so that they can be
+ * matched with the methods reported by JaCoCo.
+ *
+ * @author Cesar Soto-Valero
+ */
+final class MethodDescriptors {
+
+    private MethodDescriptors() {
+    }
+
+    /**
+     * @param executable A method or a constructor
+     * @return The erased JVM descriptor of the executable, for instance
+     * "(Ljava/io/InputStream;[B)J"
+     */
+    static String of(CtExecutable<?> executable) {
+        StringBuilder sb = new StringBuilder("(");
+        for (CtParameter<?> parameter : executable.getParameters()) {
+            appendType(sb, parameter.getType());
+        }
+        sb.append(')');
+        CtTypeReference<?> returnType = executable.getType();
+        if (returnType == null) {
+            // constructors have no return type in the model
+            sb.append('V');
+        } else {
+            appendType(sb, returnType);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends the descriptor of the erasure of a type
+     */
+    private static void appendType(StringBuilder sb, CtTypeReference<?> type) {
+        if (type instanceof CtArrayTypeReference) {
+            sb.append('[');
+            appendType(sb, ((CtArrayTypeReference<?>) type).getComponentType());
+        } else if (type instanceof CtTypeParameterReference) {
+            appendType(sb, erasure((CtTypeParameterReference) type));
+        } else if (type instanceof CtIntersectionTypeReference) {
+            appendType(sb, ((CtIntersectionTypeReference<?>) type).getBounds().get(0));
+        } else if (type.isPrimitive()) {
+            sb.append(primitive(type.getSimpleName()));
+        } else {
+            sb.append('L').append(type.getQualifiedName().replace('.', '/')).append(';');
+        }
+    }
+
+    /**
+     * @return The leftmost bound of a type parameter, or Object if it has no
+     * bound
+     */
+    private static CtTypeReference<?> erasure(CtTypeParameterReference type) {
+        CtTypeParameter declaration = type.getDeclaration();
+        CtTypeReference<?> bound = declaration != null ? declaration.getSuperclass() : type.getBoundingType();
+        if (bound == null) {
+            return type.getFactory().Type().OBJECT;
+        }
+        if (bound instanceof CtIntersectionTypeReference) {
+            List<CtTypeReference<?>> bounds = ((CtIntersectionTypeReference<?>) bound).getBounds();
+            return bounds.get(0);
+        }
+        return bound;
+    }
+
+    private static char primitive(String name) {
+        switch (name) {
+            case "void":
+                return 'V';
+            case "boolean":
+                return 'Z';
+            case "byte":
+                return 'B';
+            case "char":
+                return 'C';
+            case "short":
+                return 'S';
+            case "int":
+                return 'I';
+            case "long":
+                return 'J';
+            case "float":
+                return 'F';
+            case "double":
+                return 'D';
+            default:
+                throw new IllegalArgumentException("not a primitive type: " + name);
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+package assignment3;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * This class ranks the methods of the bundle by the time spent in them during
+ * the tests, as recorded by {@link MethodProfiler}, so that the methods that
+ * deserve to be optimized come first. The methods with the same time are
+ * ranked by their number of invocations.
+ *
+ * @author Cesar Soto-Valero
+ */
+public class MethodProfile {
+
+    /**
+     * The methods, ranked
+     */
+    private final List<HotMethod> methods = new ArrayList<>();
+
+    /**
+     * Prints the 20 hottest methods, or the number given as argument
+     */
+    public static void main(String[] args) throws IOException {
+
+        String coveragePath = "target/site/junco";
+        String builtClassesPath = "target/classes";
+
+        JuncoProcessor p = new JuncoProcessor(Collections.singletonList("org.apache.commons.io."), coveragePath, builtClassesPath);
+        MethodProfile profile = p.processProfile();
+
+        int limit = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        System.out.println(String.format(Locale.ROOT, "%12s %12s  %s", "time (ms)", "invocations", "method"));
+        for (HotMethod m : profile.top(limit)) {
+            System.out.println(String.format(Locale.ROOT, "%12.3f %12d  %s", m.getNanos() / 1e6, m.getInvocations(), m));
+        }
+    }
+
+    /**
+     * Reads a profile written by {@link MethodProfiler}. The invocations and
+     * the time of a method that appears several times are added.
+     *
+     * @param file The profile file
+     * @param bundle The classes to keep
+     * @return The profile
+     * @throws IOException if the file cannot be read or a line is not valid
+     */
+    public static MethodProfile load(File file, BundleFilter bundle) throws IOException {
+        Map<String, HotMethod> byKey = new HashMap<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] columns = line.split("\t");
+                if (columns.length != 5) {
+                    throw new IOException("not a method profile line: " + line);
+                }
+                if (!bundle.contains(columns[0])) {
+                    continue;
+                }
+                String key = columns[0] + '#' + columns[1] + columns[2];
+                HotMethod m = byKey.get(key);
+                if (m == null) {
+                    m = new HotMethod(columns[0], columns[1], columns[2]);
+                    byKey.put(key, m);
+                }
+                try {
+                    m.invocations += Long.parseLong(columns[3]);
+                    m.nanos += Long.parseLong(columns[4]);
+                } catch (NumberFormatException e) {
+                    throw new IOException("not a method profile line: " + line, e);
+                }
+            }
+        }
+
+        MethodProfile profile = new MethodProfile();
+        profile.methods.addAll(byKey.values());
+        Collections.sort(profile.methods, new Comparator<HotMethod>() {
+            @Override
+            public int compare(HotMethod m1, HotMethod m2) {
+                if (m1.nanos != m2.nanos) {
+                    return Long.compare(m2.nanos, m1.nanos);
+                }
+                if (m1.invocations != m2.invocations) {
+                    return Long.compare(m2.invocations, m1.invocations);
+                }
+                return m1.toString().compareTo(m2.toString());
+            }
+        });
+        return profile;
+    }
+
+    /**
+     * @return Every profiled method, ranked
+     */
+    public List<HotMethod> getMethods() {
+        return methods;
+    }
+
+    /**
+     * @param limit The number of methods
+     * @return The hottest methods
+     */
+    public List<HotMethod> top(int limit) {
+        return methods.subList(0, Math.min(limit, methods.size()));
+    }
+
+    /**
+     * The invocations of a method and the time spent in it
+     */
+    public static final class HotMethod {
+
+        private final String className;
+
+        private final String name;
+
+        private final String desc;
+
+        private long invocations;
+
+        private long nanos;
+
+        HotMethod(String className, String name, String desc) {
+            this.className = className;
+            this.name = name;
+            this.desc = desc;
+        }
+
+        /**
+         * @return The fully-qualified name of the class
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * @return The name of the method
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The JVM descriptor of the method
+         */
+        public String getDesc() {
+            return desc;
+        }
+
+        /**
+         * @return Number of invocations
+         */
+        public long getInvocations() {
+            return invocations;
+        }
+
+        /**
+         * @return The time spent in the method and its callees, in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return className + "#" + name + desc;
+        }
+    }
+
+}
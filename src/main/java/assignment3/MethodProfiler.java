@@ -0,0 +1,353 @@
+package assignment3;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.nio.charset.StandardCharsets;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.AdviceAdapter;
+import org.objectweb.asm.commons.Method;
+
+/**
+ * This class is a Java agent that counts the invocations of the methods of
+ * the bundle and the time spent in them while the tests run. JaCoCo only
+ * tells whether a method was executed; the counts tell which methods deserve
+ * to be optimized. It is enabled by the "hot-methods" profile of the pom,
+ * next to the Junco provider.
+ *
+ * The agent arguments are a comma-separated list of "bundle=&lt;pattern&gt;",
+ * as described in {@link BundleFilter}, and "file=&lt;path&gt;". The profile
+ * is written to the file when the JVM exits, as a tab-separated line per
+ * executed method: class, name, descriptor, invocations and nanoseconds. It
+ * is read by {@link MethodProfile}.
+ *
+ * The time of a method includes the time of the methods it calls. It is
+ * measured until the method returns or throws, including when the exception
+ * is thrown by a callee: the body of each method is wrapped in a handler of
+ * any exception that adds the time and throws the exception again.
+ *
+ * @author Cesar Soto-Valero
+ */
+public final class MethodProfiler {
+
+    /**
+     * Maximum number of instrumented methods, the next ones are not
+     * instrumented
+     */
+    static final int CAPACITY = 1 << 16;
+
+    private static final Type TYPE = Type.getType(MethodProfiler.class);
+
+    private static final Method ENTER = Method.getMethod("long enter(int)");
+
+    private static final Method EXIT = Method.getMethod("void exit(int, long)");
+
+    /**
+     * The class, name and descriptor of each instrumented method, by id
+     */
+    private static final List<String[]> methods = new ArrayList<>();
+
+    /**
+     * The invocations of each method, by id
+     */
+    private static final AtomicLongArray counts = new AtomicLongArray(CAPACITY);
+
+    /**
+     * The time spent in each method, by id
+     */
+    private static final AtomicLongArray nanos = new AtomicLongArray(CAPACITY);
+
+    private MethodProfiler() {
+    }
+
+    /**
+     * Installs the agent
+     *
+     * @param agentArgs The arguments of the agent
+     * @param instrumentation The instrumentation of the JVM
+     */
+    public static void premain(String agentArgs, Instrumentation instrumentation) {
+        List<String> patterns = new ArrayList<>();
+        String file = "target/site/junco/hot-methods.tsv";
+        if (agentArgs != null) {
+            for (String arg : agentArgs.split(",")) {
+                if (arg.startsWith("bundle=")) {
+                    patterns.add(arg.substring("bundle=".length()));
+                } else if (arg.startsWith("file=")) {
+                    file = arg.substring("file=".length());
+                }
+            }
+        }
+        if (patterns.isEmpty()) {
+            patterns.add("org.apache.commons.io.");
+        }
+
+        final BundleFilter bundle = new BundleFilter(patterns);
+        instrumentation.addTransformer(new ClassFileTransformer() {
+            @Override
+            public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                    ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+                if (className == null || classBeingRedefined != null || className.startsWith(TYPE.getInternalName())
+                        || !bundle.contains(className.replace('/', '.'))) {
+                    return null;
+                }
+                try {
+                    return instrument(classfileBuffer);
+                } catch (RuntimeException e) {
+                    // the class is loaded as it is
+                    return null;
+                }
+            }
+        });
+
+        final File profile = new File(file);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    save(profile);
+                } catch (IOException e) {
+                    System.err.println("cannot write the method profile: " + e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Counts an invocation, called when an instrumented method starts
+     *
+     * @param id The id of the method
+     * @return The start time of the invocation
+     */
+    public static long enter(int id) {
+        counts.incrementAndGet(id);
+        return System.nanoTime();
+    }
+
+    /**
+     * Adds the time of an invocation, called when an instrumented method
+     * returns or throws
+     *
+     * @param id The id of the method
+     * @param start The start time of the invocation
+     */
+    public static void exit(int id, long start) {
+        nanos.addAndGet(id, System.nanoTime() - start);
+    }
+
+    /**
+     * Instruments the methods of a class with a call to {@link #enter(int)}
+     * at the start, and to {@link #exit(int, long)} at each return and in a
+     * handler of the exceptions thrown by the method or its callees
+     *
+     * @param bytes The class file
+     * @return The instrumented class file
+     */
+    static byte[] instrument(byte[] bytes) {
+        ClassReader reader = new ClassReader(bytes);
+        ClassWriter writer = new ClassWriter(reader, ClassWriter.COMPUTE_MAXS);
+        // the frames are expanded so that the new local can be inserted in them
+        reader.accept(new ProfilingClassVisitor(writer), ClassReader.EXPAND_FRAMES);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Writes the executed methods
+     *
+     * @param file The profile file
+     * @throws IOException
+     */
+    static void save(File file) throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            List<String[]> registered;
+            synchronized (methods) {
+                registered = new ArrayList<>(methods);
+            }
+            for (int id = 0; id < registered.size(); id++) {
+                long count = counts.get(id);
+                if (count > 0) {
+                    String[] method = registered.get(id);
+                    out.write(method[0] + "\t" + method[1] + "\t" + method[2] + "\t" + count + "\t" + nanos.get(id) + "\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The id of a new method, -1 if there are too many methods
+     */
+    private static int register(String className, String name, String desc) {
+        synchronized (methods) {
+            if (methods.size() == CAPACITY) {
+                return -1;
+            }
+            methods.add(new String[]{className, name, desc});
+            return methods.size() - 1;
+        }
+    }
+
+    /**
+     * Instruments the methods that have code, but the static initializers
+     */
+    private static class ProfilingClassVisitor extends ClassVisitor {
+
+        private String className;
+
+        private String internalName;
+
+        /**
+         * true if the class file has stack map frames, from Java 6
+         */
+        private boolean frames;
+
+        ProfilingClassVisitor(ClassVisitor cv) {
+            super(Opcodes.ASM5, cv);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            className = name.replace('/', '.');
+            internalName = name;
+            frames = (version & 0xFFFF) >= Opcodes.V1_6;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+            if ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE | Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE)) != 0
+                    || name.equals("<clinit>")) {
+                return mv;
+            }
+            int id = register(className, name, desc);
+            return id < 0 ? mv : new ProfilingMethodVisitor(mv, access, name, desc, id, internalName, frames);
+        }
+    }
+
+    /**
+     * Keeps the start time of the invocation in a new local, and adds the
+     * time at each return and in a handler of any exception that covers the
+     * whole body, after the call to the super constructor in a constructor
+     */
+    private static class ProfilingMethodVisitor extends AdviceAdapter {
+
+        private final int id;
+
+        private final String owner;
+
+        private final boolean frames;
+
+        /**
+         * The start of the code covered by the handler
+         */
+        private final Label begin = new Label();
+
+        private boolean entered;
+
+        private int start;
+
+        ProfilingMethodVisitor(MethodVisitor mv, int access, String name, String desc, int id, String owner,
+                boolean frames) {
+            super(Opcodes.ASM5, mv, access, name, desc);
+            this.id = id;
+            this.owner = owner;
+            this.frames = frames;
+        }
+
+        @Override
+        protected void onMethodEnter() {
+            push(id);
+            invokeStatic(TYPE, ENTER);
+            start = newLocal(Type.LONG_TYPE);
+            storeLocal(start);
+            mark(begin);
+            entered = true;
+        }
+
+        @Override
+        protected void onMethodExit(int opcode) {
+            // the exceptions are caught by the handler
+            if (opcode != ATHROW) {
+                exit();
+            }
+        }
+
+        @Override
+        public void visitMaxs(int maxStack, int maxLocals) {
+            if (entered) {
+                Label handler = new Label();
+                mv.visitTryCatchBlock(begin, handler, handler, null);
+                mark(handler);
+                if (frames) {
+                    visitHandlerFrame();
+                }
+                exit();
+                throwException();
+            }
+            super.visitMaxs(maxStack, maxLocals);
+        }
+
+        private void exit() {
+            push(id);
+            loadLocal(start);
+            invokeStatic(TYPE, EXIT);
+        }
+
+        /**
+         * Declares the frame of the handler: the receiver, the arguments and
+         * the start time, the only locals assigned in the whole body
+         */
+        private void visitHandlerFrame() {
+            List<Object> locals = new ArrayList<>();
+            int slot = 0;
+            if ((methodAccess & ACC_STATIC) == 0) {
+                locals.add(owner);
+                slot++;
+            }
+            for (Type argument : Type.getArgumentTypes(methodDesc)) {
+                locals.add(frameType(argument));
+                slot += argument.getSize();
+            }
+            for (; slot < start; slot++) {
+                locals.add(Opcodes.TOP);
+            }
+            locals.add(Opcodes.LONG);
+            mv.visitFrame(Opcodes.F_NEW, locals.size(), locals.toArray(), 1, new Object[]{"java/lang/Throwable"});
+        }
+
+        private static Object frameType(Type type) {
+            switch (type.getSort()) {
+                case Type.BOOLEAN:
+                case Type.CHAR:
+                case Type.BYTE:
+                case Type.SHORT:
+                case Type.INT:
+                    return Opcodes.INTEGER;
+                case Type.FLOAT:
+                    return Opcodes.FLOAT;
+                case Type.LONG:
+                    return Opcodes.LONG;
+                case Type.DOUBLE:
+                    return Opcodes.DOUBLE;
+                default:
+                    return type.getInternalName();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,298 @@
+package assignment3;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import spoon.Launcher;
+
+/**
+ * This class executes the transformation over a large source tree. The
+ * compilation units are partitioned by package and every partition is built,
+ * processed and printed by its own Spoon launcher, with its own
+ * {@link SpoonProcessor}. All the processors share the same read-only
+ * coverage index, and the types of the other partitions are resolved from the
+ * built classes.
+ *
+ * @author Cesar Soto-Valero
+ */
+public class ParallelSpoonRunner {
+
+    /**
+     * The package declaration of a source file
+     */
+    private static final Pattern PACKAGE_DECLARATION = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+
+    /**
+     * Path to the sources to transform
+     */
+    private final String inputPath;
+
+    /**
+     * Path where the transformed sources are written
+     */
+    private final String outputPath;
+
+    /**
+     * Path to the built classes, used to resolve the types of the other
+     * partitions
+     */
+    private final String builtClassesPath;
+
+    /**
+     * The methods covered by the test suite
+     */
+    private final CoverageIndex coveredMethods;
+
+    /**
+     * Number of partitions transformed at the same time
+     */
+    private final int parallelism;
+
+    /**
+     * The status of the source lines, null to reduce only whole methods
+     */
+    private LineCoverage coveredLines;
+
+    /**
+     * The time spent in each phase of the transformation and its counters
+     */
+    private ReductionMetrics metrics = new ReductionMetrics();
+
+    /**
+     * Creates the runner
+     *
+     * @param inputPath Path to the sources to transform
+     * @param outputPath Path where the transformed sources are written
+     * @param builtClassesPath Path to the built classes
+     * @param coveredMethods The methods covered by the test suite
+     * @param parallelism Number of partitions transformed at the same time,
+     * 1 to transform the whole tree with a single launcher
+     */
+    public ParallelSpoonRunner(String inputPath, String outputPath, String builtClassesPath, CoverageIndex coveredMethods, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.inputPath = inputPath;
+        this.outputPath = outputPath;
+        this.builtClassesPath = builtClassesPath;
+        this.coveredMethods = coveredMethods;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the status of the source lines, so that the branches that were
+     * never executed inside the covered methods are pruned too
+     *
+     * @param coveredLines The status of the source lines, or null to reduce
+     * only whole methods
+     */
+    public void setCoveredLines(LineCoverage coveredLines) {
+        this.coveredLines = coveredLines;
+    }
+
+    /**
+     * Sets the metrics where the time spent building, processing and printing
+     * the sources is added, so that they can be shared with the other phases
+     * of the reduction
+     *
+     * @param metrics The metrics
+     */
+    public void setMetrics(ReductionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Transforms the sources
+     *
+     * @return The number of partitions
+     * @throws IOException
+     */
+    public int run() throws IOException {
+
+        File input = new File(inputPath);
+        if (!input.exists()) {
+            throw new FileNotFoundException(input.getAbsolutePath());
+        }
+
+        // the biggest packages are started first
+        List<List<File>> partitions = new ArrayList<>();
+        partition(input, partitions);
+
+        if (parallelism == 1) {
+            transform(Collections.singletonList(input));
+            countBytesWritten(partitions);
+            return 1;
+        }
+
+        Collections.sort(partitions, new Comparator<List<File>>() {
+            @Override
+            public int compare(List<File> p1, List<File> p2) {
+                return Long.compare(length(p2), length(p1));
+            }
+        });
+
+        // the launchers fail when they create the same directory at the same time
+        for (List<File> partition : partitions) {
+            String packageName = packageName(partition.get(0));
+            new File(outputPath, packageName.replace('.', File.separatorChar)).mkdirs();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (final List<File> partition : partitions) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        transform(partition);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        countBytesWritten(partitions);
+        return partitions.size();
+    }
+
+    /**
+     * Builds, processes and prints the given sources with a new launcher
+     *
+     * @param sources The source files or directories
+     */
+    private void transform(List<File> sources) {
+
+        StringBuilder input = new StringBuilder();
+        for (File source : sources) {
+            if (input.length() > 0) {
+                input.append(File.pathSeparator);
+            }
+            input.append(source.getPath());
+        }
+
+        final String[] param = {
+            "-i", input.toString(),
+            "-o", outputPath,
+            "-c"
+        };
+
+        final Launcher launcher = new Launcher();
+        launcher.setArgs(param);
+        if (new File(builtClassesPath).exists()) {
+            launcher.getEnvironment().setSourceClasspath(new String[]{builtClassesPath});
+        }
+        SpoonProcessor processor = new SpoonProcessor(coveredMethods, coveredLines);
+        processor.setMetrics(metrics);
+        launcher.addProcessor(processor);
+
+        // the phases of Launcher.run, measured one by one
+        ReductionMetrics.Timer build = metrics.start(ReductionMetrics.MODEL_BUILD);
+        try {
+            launcher.buildModel();
+        } finally {
+            build.close();
+        }
+        ReductionMetrics.Timer processing = metrics.start(ReductionMetrics.PROCESSING);
+        try {
+            launcher.process();
+        } finally {
+            processing.close();
+        }
+        ReductionMetrics.Timer printing = metrics.start(ReductionMetrics.PRINTING);
+        try {
+            launcher.prettyprint();
+        } finally {
+            printing.close();
+        }
+    }
+
+    /**
+     * Adds the size of the transformed sources to the metrics
+     *
+     * @param partitions The source files, grouped by package
+     * @throws IOException
+     */
+    private void countBytesWritten(List<List<File>> partitions) throws IOException {
+        long bytes = 0;
+        for (List<File> partition : partitions) {
+            String packageDir = packageName(partition.get(0)).replace('.', File.separatorChar);
+            for (File source : partition) {
+                bytes += new File(new File(outputPath, packageDir), source.getName()).length();
+            }
+        }
+        metrics.increment(ReductionMetrics.BYTES_WRITTEN, bytes);
+    }
+
+    /**
+     * Groups the source files of each package of the tree
+     *
+     * @param dir The current directory
+     * @param partitions The list where the packages are added
+     */
+    private static void partition(File dir, List<List<File>> partitions) {
+        File[] files = dir.listFiles();
+        Arrays.sort(files);
+        List<File> sources = new ArrayList<>();
+        for (File f : files) {
+            if (f.isDirectory()) {
+                partition(f, partitions);
+            } else if (f.getName().endsWith(".java")) {
+                sources.add(f);
+            }
+        }
+        if (!sources.isEmpty()) {
+            partitions.add(sources);
+        }
+    }
+
+    /**
+     * Reads the package declaration of a source file
+     *
+     * @param source The source file
+     * @return The name of the package, empty for the default package
+     * @throws IOException
+     */
+    private static String packageName(File source) throws IOException {
+        String content = new String(Files.readAllBytes(source.toPath()), StandardCharsets.UTF_8);
+        Matcher matcher = PACKAGE_DECLARATION.matcher(content);
+        return matcher.find() ? matcher.group(1) : "";
+    }
+
+    /**
+     * @return The total size of the files of a partition
+     */
+    private static long length(List<File> partition) {
+        long length = 0;
+        for (File f : partition) {
+            length += f.length();
+        }
+        return length;
+    }
+
+}
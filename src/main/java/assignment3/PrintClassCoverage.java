@@ -15,12 +15,12 @@ public class PrintClassCoverage {
         /**
          * Path to the Junco coverage path.
          */
-        String coveragePath = "target\\site\\junco";
+        String coveragePath = args.length > 0 ? args[0] : "target/site/junco";
 
         /**
          * Path to the built classes
          */
-        String builtClassesPath = "target\\classes";
+        String builtClassesPath = args.length > 1 ? args[1] : "target/classes";
 
         JuncoProcessor p = new JuncoProcessor(Arrays.asList(new String[]{
             "classes.Calculator"}), coveragePath, builtClassesPath);
@@ -0,0 +1,145 @@
+package assignment3;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.SessionInfo;
+
+/**
+ * This class reads the .exec files record by record and keeps only the probes
+ * of the given classes, instead of loading every record of the files in an
+ * execution data store. The probes read from several files are merged, and
+ * they are released as soon as their class is analyzed, so the memory used
+ * does not grow with the size or the number of the files.
+ *
+ * @author Cesar Soto-Valero
+ */
+final class ProbeStore implements IExecutionDataVisitor, ISessionInfoVisitor {
+
+    /**
+     * The sorted ids of the classes whose probes are kept
+     */
+    private final long[] classIds;
+
+    /**
+     * The probes of the classes that were not analyzed yet, by class id
+     */
+    private final Map<Long, ExecutionData> retained = new HashMap<>();
+
+    /**
+     * The ids of all the classes executed in the files, kept or not
+     */
+    private final Set<Long> executed = new HashSet<>();
+
+    /**
+     * Number of records skipped because their class is not kept
+     */
+    private int skipped;
+
+    /**
+     * Creates an empty store
+     *
+     * @param classIds The sorted ids of the classes whose probes are kept
+     */
+    ProbeStore(long[] classIds) {
+        this.classIds = classIds;
+    }
+
+    /**
+     * Reads a coverage file, merging its probes with the ones already read
+     *
+     * @param execFile The .exec file
+     * @throws IOException
+     */
+    void read(File execFile) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(execFile))) {
+            read(in);
+        }
+    }
+
+    /**
+     * Reads coverage data, merging its probes with the ones already read
+     *
+     * @param in The content of an .exec file
+     * @throws IOException
+     */
+    void read(InputStream in) throws IOException {
+        ExecutionDataReader reader = new ExecutionDataReader(in);
+        reader.setSessionInfoVisitor(this);
+        reader.setExecutionDataVisitor(this);
+        reader.read();
+    }
+
+    @Override
+    public void visitSessionInfo(SessionInfo info) {
+        // the sessions are not used by the analysis
+    }
+
+    @Override
+    public void visitClassExecution(ExecutionData data) {
+        long id = data.getId();
+        executed.add(id);
+
+        if (Arrays.binarySearch(classIds, id) < 0) {
+            skipped++;
+            return;
+        }
+        ExecutionData previous = retained.get(id);
+        if (previous == null) {
+            retained.put(id, data);
+        } else {
+            previous.merge(data);
+        }
+    }
+
+    /**
+     * Removes the probes of a class from the store, so they can be released
+     * once the class is analyzed
+     *
+     * @param classId The id of the class
+     * @return The probes of the class, or null if it was not executed
+     */
+    ExecutionData take(long classId) {
+        return retained.remove(classId);
+    }
+
+    /**
+     * @return The sorted ids of all the classes executed in the
+     * files read, including the ones whose probes were not kept
+     */
+    long[] getExecutedClassIds() {
+        long[] ids = new long[executed.size()];
+        int i = 0;
+        for (Long id : executed) {
+            ids[i++] = id;
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * @return Number of classes whose probes are kept and were not taken yet
+     */
+    int getRetainedCount() {
+        return retained.size();
+    }
+
+    /**
+     * @return Number of records skipped because their class is not kept
+     */
+    int getSkippedCount() {
+        return skipped;
+    }
+
+}
@@ -0,0 +1,193 @@
+package assignment3;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * This class splits the coverage analysis of a large repository across
+ * several worker JVMs on the same machine and drives a single transformation
+ * with the merged result. Each {@link ReductionWorker} analyzes a shard of the
+ * coverage files or of the classes and writes its covered methods to a
+ * coverage index file in the work directory; the coordinator merges the
+ * indexes once every worker has exited. The processes only share files, so
+ * no network service is needed.
+ *
+ * @author Cesar Soto-Valero
+ */
+public class ReductionCoordinator {
+
+    /**
+     * How the analysis is split across the workers
+     */
+    public enum Sharding {
+
+        /**
+         * Each worker reads a part of the coverage files and every class
+         */
+        EXEC_FILES("exec-files"),
+
+        /**
+         * Each worker reads every coverage file and a part of the classes
+         */
+        CLASSES("classes");
+
+        private final String argument;
+
+        Sharding(String argument) {
+            this.argument = argument;
+        }
+    }
+
+    /**
+     * The classes under analysis
+     */
+    private final List<String> bundle;
+
+    /**
+     * Path to the Junco coverage
+     */
+    private final String coveragePath;
+
+    /**
+     * Path to the built classes
+     */
+    private final String builtClassesPath;
+
+    /**
+     * Path where the partial indexes and the logs of the workers are written
+     */
+    private final String workPath;
+
+    /**
+     * Number of worker JVMs
+     */
+    private int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * How the analysis is split across the workers
+     */
+    private Sharding sharding = Sharding.EXEC_FILES;
+
+    /**
+     * Reduces commons-io with the given number of workers and, with
+     * "classes", shards the classes instead of the coverage files
+     */
+    public static void main(String[] args) throws IOException {
+
+        ReductionCoordinator coordinator = new ReductionCoordinator(Arrays.asList("org.apache.commons.io."),
+                "target/site/junco", "target/classes", "target/workers");
+        if (args.length > 0) {
+            coordinator.setWorkers(Integer.parseInt(args[0]));
+        }
+        if (args.length > 1 && args[1].equals("classes")) {
+            coordinator.setSharding(Sharding.CLASSES);
+        }
+        coordinator.reduce("src/main/java/org", "output/", 1);
+    }
+
+    /**
+     * Creates the coordinator
+     *
+     * @param bundle The classes under analysis, as described in
+     * {@link BundleFilter}
+     * @param coveragePath Path to the Junco coverage
+     * @param builtClassesPath Path to the built classes
+     * @param workPath Path where the partial indexes and the logs of the
+     * workers are written
+     */
+    public ReductionCoordinator(Collection<String> bundle, String coveragePath, String builtClassesPath, String workPath) {
+        this.bundle = new ArrayList<>(bundle);
+        this.coveragePath = coveragePath;
+        this.builtClassesPath = builtClassesPath;
+        this.workPath = workPath;
+    }
+
+    /**
+     * @param workers Number of worker JVMs
+     */
+    public void setWorkers(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be positive: " + workers);
+        }
+        this.workers = workers;
+    }
+
+    /**
+     * @param sharding How the analysis is split across the workers
+     */
+    public void setSharding(Sharding sharding) {
+        this.sharding = sharding;
+    }
+
+    /**
+     * Analyzes the coverage with the workers and transforms the sources with
+     * the merged index
+     *
+     * @param inputPath Path to the sources to transform
+     * @param outputPath Path where the transformed sources are written
+     * @param parallelism Number of packages transformed at the same time
+     * @return The merged index of the covered methods
+     * @throws IOException if a worker fails
+     */
+    public CoverageIndex reduce(String inputPath, String outputPath, int parallelism) throws IOException {
+        CoverageIndex index = collect();
+        new ParallelSpoonRunner(inputPath, outputPath, builtClassesPath, index, parallelism).run();
+        return index;
+    }
+
+    /**
+     * Starts the workers, waits for all of them and merges their indexes
+     *
+     * @return The methods covered by at least one test
+     * @throws IOException if a worker fails
+     */
+    public CoverageIndex collect() throws IOException {
+        File work = new File(workPath);
+        work.mkdirs();
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+
+        List<Process> processes = new ArrayList<>();
+        List<File> indexes = new ArrayList<>();
+        List<File> logs = new ArrayList<>();
+        try {
+            for (int i = 0; i < workers; i++) {
+                File index = new File(work, "coverage-" + i + ".idx");
+                File log = new File(work, "worker-" + i + ".log");
+                index.delete();
+                List<String> command = new ArrayList<>(Arrays.asList(
+                        java, "-cp", System.getProperty("java.class.path"), ReductionWorker.class.getName(),
+                        coveragePath, builtClassesPath, sharding.argument, String.valueOf(i), String.valueOf(workers),
+                        index.getPath()));
+                command.addAll(bundle);
+                ProcessBuilder builder = new ProcessBuilder(command);
+                builder.redirectErrorStream(true);
+                builder.redirectOutput(log);
+                processes.add(builder.start());
+                indexes.add(index);
+                logs.add(log);
+            }
+
+            CoverageIndex merged = new CoverageIndex();
+            for (int i = 0; i < workers; i++) {
+                if (processes.get(i).waitFor() != 0) {
+                    throw new IOException("worker " + i + " failed, see " + logs.get(i));
+                }
+                merged.addAll(CoverageIndex.load(indexes.get(i)));
+            }
+            return merged;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            // the workers do not outlive a failed coordinator
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,252 @@
+package assignment3;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class measures the phases of the reduction and counts what they do,
+ * so that the nightly reduction can be tracked. The time of a phase is the
+ * sum of the time spent in it by every thread, so it can be greater than the
+ * wall-clock time when the phase runs concurrently. The metrics can be
+ * shared by several threads.
+ *
+ * @author Cesar Soto-Valero
+ */
+public class ReductionMetrics {
+
+    /**
+     * Reading the coverage files
+     */
+    public static final String EXEC_LOADING = "exec_loading";
+
+    /**
+     * Reading and parsing the built classes
+     */
+    public static final String CLASS_PARSING = "class_parsing";
+
+    /**
+     * Analyzing the classes against the coverage
+     */
+    public static final String ANALYSIS = "analysis";
+
+    /**
+     * Building the Spoon model of the sources
+     */
+    public static final String MODEL_BUILD = "model_build";
+
+    /**
+     * Running the processors over the model
+     */
+    public static final String PROCESSING = "processing";
+
+    /**
+     * Printing the transformed sources
+     */
+    public static final String PRINTING = "printing";
+
+    /**
+     * Number of coverage files read
+     */
+    public static final String EXEC_FILES = "exec_files";
+
+    /**
+     * Number of classes analyzed against the coverage
+     */
+    public static final String CLASSES_ANALYZED = "classes_analyzed";
+
+    /**
+     * Number of methods removed from the sources
+     */
+    public static final String METHODS_REMOVED = "methods_removed";
+
+    /**
+     * Number of unused fields removed from the sources
+     */
+    public static final String FIELDS_REMOVED = "fields_removed";
+
+    /**
+     * Number of initializer blocks removed with the fields they assigned
+     */
+    public static final String INITIALIZERS_REMOVED = "initializers_removed";
+
+    /**
+     * Number of unused nested classes removed from the sources
+     */
+    public static final String NESTED_CLASSES_REMOVED = "nested_classes_removed";
+
+    /**
+     * Number of bytes of the transformed sources
+     */
+    public static final String BYTES_WRITTEN = "bytes_written";
+
+    /**
+     * The time spent in each phase, in nanoseconds, in the order the phases
+     * started
+     */
+    private final Map<String, AtomicLong> phases = new LinkedHashMap<>();
+
+    /**
+     * The counters, in the order they were first incremented
+     */
+    private final Map<String, AtomicLong> counters = new LinkedHashMap<>();
+
+    /**
+     * Starts measuring a phase. The returned timer adds the elapsed time to
+     * the phase when it is closed, so it can be used in a try-with-resources
+     * statement.
+     *
+     * @param phase The name of the phase
+     * @return The timer of the phase
+     */
+    public Timer start(String phase) {
+        return new Timer(get(phases, phase));
+    }
+
+    /**
+     * Adds to a counter
+     *
+     * @param counter The name of the counter
+     * @param delta The value to add
+     */
+    public void increment(String counter, long delta) {
+        get(counters, counter).addAndGet(delta);
+    }
+
+    /**
+     * @param phase The name of the phase
+     * @return The time spent in the phase, in nanoseconds
+     */
+    public long getNanos(String phase) {
+        return value(phases, phase);
+    }
+
+    /**
+     * @param counter The name of the counter
+     * @return The value of the counter
+     */
+    public long getCount(String counter) {
+        return value(counters, counter);
+    }
+
+    /**
+     * Writes the metrics to a file, as CSV if its name ends with ".csv" and
+     * as JSON otherwise
+     *
+     * @param file The metrics file
+     * @throws IOException
+     */
+    public void save(File file) throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            if (file.getName().endsWith(".csv")) {
+                writeCsv(out);
+            } else {
+                writeJson(out);
+            }
+        }
+    }
+
+    /**
+     * Writes the metrics as a JSON object with the time of each phase in
+     * milliseconds and the value of each counter
+     *
+     * @param out The writer
+     * @throws IOException
+     */
+    public void writeJson(Writer out) throws IOException {
+        out.write("{\n  \"phases_ms\": {");
+        writeJsonMembers(out, snapshot(phases), true);
+        out.write("},\n  \"counters\": {");
+        writeJsonMembers(out, snapshot(counters), false);
+        out.write("}\n}\n");
+    }
+
+    /**
+     * Writes the metrics as CSV, with a row for each phase and each counter
+     *
+     * @param out The writer
+     * @throws IOException
+     */
+    public void writeCsv(Writer out) throws IOException {
+        out.write("kind,name,value\n");
+        for (Map.Entry<String, Long> e : snapshot(phases).entrySet()) {
+            out.write("phase_ms," + e.getKey() + "," + toMillis(e.getValue()) + "\n");
+        }
+        for (Map.Entry<String, Long> e : snapshot(counters).entrySet()) {
+            out.write("counter," + e.getKey() + "," + e.getValue() + "\n");
+        }
+    }
+
+    private static void writeJsonMembers(Writer out, Map<String, Long> values, boolean millis) throws IOException {
+        List<String> members = new ArrayList<>();
+        for (Map.Entry<String, Long> e : values.entrySet()) {
+            members.add("\n    \"" + e.getKey() + "\": " + (millis ? toMillis(e.getValue()) : String.valueOf(e.getValue())));
+        }
+        for (int i = 0; i < members.size(); i++) {
+            out.write(members.get(i));
+            out.write(i < members.size() - 1 ? "," : "\n  ");
+        }
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static AtomicLong get(Map<String, AtomicLong> values, String name) {
+        synchronized (values) {
+            AtomicLong value = values.get(name);
+            if (value == null) {
+                value = new AtomicLong();
+                values.put(name, value);
+            }
+            return value;
+        }
+    }
+
+    private static long value(Map<String, AtomicLong> values, String name) {
+        synchronized (values) {
+            AtomicLong value = values.get(name);
+            return value == null ? 0 : value.get();
+        }
+    }
+
+    private static Map<String, Long> snapshot(Map<String, AtomicLong> values) {
+        synchronized (values) {
+            Map<String, Long> snapshot = new LinkedHashMap<>();
+            for (Map.Entry<String, AtomicLong> e : values.entrySet()) {
+                snapshot.put(e.getKey(), e.getValue().get());
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Measures a phase until it is closed
+     */
+    public static final class Timer implements AutoCloseable {
+
+        private final AtomicLong nanos;
+
+        private final long start = System.nanoTime();
+
+        Timer(AtomicLong nanos) {
+            this.nanos = nanos;
+        }
+
+        @Override
+        public void close() {
+            nanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+}
@@ -0,0 +1,535 @@
+package assignment3;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * This class checks that the reduced sources still pass the test suite and
+ * measures what was gained. It compiles the reduced sources, runs the tests
+ * of the bundle against the original and the reduced classes, and measures
+ * both builds: the size and the constant-pool entries of their class files,
+ * the time spent initializing every class of the bundle, the number of
+ * classes loaded by a representative workload, the startup time of a JVM
+ * that initializes IOUtils and FileUtils and the time of the workload. The tests and the
+ * measurements run in child JVMs, so that the builds do not interfere.
+ *
+ * @author Cesar Soto-Valero
+ */
+public class ReductionVerifier {
+
+    /**
+     * The summary printed by JUnitCore when every test passed
+     */
+    private static final Pattern JUNIT_OK = Pattern.compile("^OK \\((\\d+) tests?\\)", Pattern.MULTILINE);
+
+    /**
+     * The summary printed by JUnitCore when a test failed
+     */
+    private static final Pattern JUNIT_FAILED = Pattern.compile("^Tests run: (\\d+),\\s+Failures: (\\d+)", Pattern.MULTILINE);
+
+    /**
+     * The line printed by {@link VerificationWorkload}
+     */
+    private static final Pattern WORKLOAD = Pattern.compile("loaded_classes=(\\d+) workload_nanos=(\\d+)");
+
+    /**
+     * Path to the original built classes
+     */
+    private final String originalClassesPath;
+
+    /**
+     * Path to the reduced sources
+     */
+    private final String reducedSourcesPath;
+
+    /**
+     * Path to the built test classes
+     */
+    private final String testClassesPath;
+
+    /**
+     * Path where the reduced classes, the logs and the report are written
+     */
+    private final String workPath;
+
+    /**
+     * The package of the bundle, whose tests are run and whose class files
+     * are measured
+     */
+    private String packageName = "org.apache.commons.io";
+
+    /**
+     * The libraries needed to compile the reduced sources and to run the
+     * tests
+     */
+    private List<String> libraries;
+
+    /**
+     * Number of JVMs started to measure the startup time
+     */
+    private int startups = 3;
+
+    /**
+     * Number of times the workload is run in its JVM
+     */
+    private int iterations = 10;
+
+    /**
+     * Verifies the reduction of commons-io written by {@link AssignmentRunner}
+     */
+    public static void main(String[] args) throws IOException {
+        ReductionVerifier verifier = new ReductionVerifier("target/classes", "output", "target/test-classes", "target/verification");
+        Result[] results = verifier.verify();
+        System.exit(results[1].getFailures() == 0 && results[1].getTestsRun() == results[0].getTestsRun() ? 0 : 1);
+    }
+
+    /**
+     * Creates the verifier. The libraries are taken from the class path of
+     * this JVM, without the original classes.
+     *
+     * @param originalClassesPath Path to the original built classes
+     * @param reducedSourcesPath Path to the reduced sources
+     * @param testClassesPath Path to the built test classes
+     * @param workPath Path where the reduced classes, the logs and the report
+     * are written
+     */
+    public ReductionVerifier(String originalClassesPath, String reducedSourcesPath, String testClassesPath, String workPath) {
+        this.originalClassesPath = originalClassesPath;
+        this.reducedSourcesPath = reducedSourcesPath;
+        this.testClassesPath = testClassesPath;
+        this.workPath = workPath;
+        this.libraries = new ArrayList<>();
+        File originalClasses = new File(originalClassesPath).getAbsoluteFile();
+        File testClasses = new File(testClassesPath).getAbsoluteFile();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            File f = new File(entry).getAbsoluteFile();
+            if (!entry.isEmpty() && !f.equals(originalClasses) && !f.equals(testClasses)) {
+                libraries.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Sets the package of the bundle, whose tests are run and whose class
+     * files are measured
+     *
+     * @param packageName The name of the package, with its subpackages
+     */
+    public void setPackageName(String packageName) {
+        this.packageName = packageName;
+    }
+
+    /**
+     * Sets the libraries needed to compile the reduced sources and to run the
+     * tests, JUnit among them
+     *
+     * @param libraries The paths of the libraries
+     */
+    public void setLibraries(List<String> libraries) {
+        this.libraries = libraries;
+    }
+
+    /**
+     * Sets how many times the builds are measured
+     *
+     * @param startups Number of JVMs started to measure the startup time
+     * @param iterations Number of times the workload is run in its JVM
+     */
+    public void setRepetitions(int startups, int iterations) {
+        if (startups < 1 || iterations < 1) {
+            throw new IllegalArgumentException("the repetitions must be positive");
+        }
+        this.startups = startups;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Compiles the reduced sources, runs the tests and measures both builds.
+     * The comparison is printed and saved in report.csv in the work
+     * directory.
+     *
+     * @return The results of the original and the reduced build
+     * @throws IOException if the reduced sources do not compile
+     */
+    public Result[] verify() throws IOException {
+        File reducedClasses = compileReduced();
+        Result original = measure("original", new File(originalClassesPath));
+        Result reduced = measure("reduced", reducedClasses);
+
+        StringBuilder report = new StringBuilder("metric,original,reduced\n");
+        report.append(row("class_file_bytes", original.classFileBytes, reduced.classFileBytes));
+        report.append(row("constant_pool_entries", original.constantPoolEntries, reduced.constantPoolEntries));
+        report.append(row("class_init_ms", millis(original.classInitNanos), millis(reduced.classInitNanos)));
+        report.append(row("tests_run", original.testsRun, reduced.testsRun));
+        report.append(row("test_failures", original.failures, reduced.failures));
+        report.append(row("loaded_classes", original.loadedClasses, reduced.loadedClasses));
+        report.append(row("startup_ms", millis(original.startupNanos), millis(reduced.startupNanos)));
+        report.append(row("workload_ms", millis(original.workloadNanos), millis(reduced.workloadNanos)));
+        System.out.print(report.toString().replace(',', '\t'));
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(new File(workPath, "report.csv")), StandardCharsets.UTF_8)) {
+            out.write(report.toString());
+        }
+        return new Result[]{original, reduced};
+    }
+
+    /**
+     * Compiles the reduced sources into the reduced-classes directory of the
+     * work directory, against the libraries only, so that the calls to the
+     * removed methods are reported
+     *
+     * @return The directory of the reduced classes
+     * @throws IOException if the reduced sources do not compile
+     */
+    public File compileReduced() throws IOException {
+        File reducedClasses = new File(workPath, "reduced-classes");
+        deleteRecursively(reducedClasses);
+        reducedClasses.mkdirs();
+
+        // the class files of the project's level, that ASM 5 and the JaCoCo agent can read
+        List<String> arguments = new ArrayList<>(Arrays.asList(
+                "-nowarn", "-encoding", "UTF-8",
+                "-source", "1.7", "-target", "1.7",
+                "-d", reducedClasses.getPath(),
+                "-cp", join(libraries)));
+        collectSources(new File(reducedSourcesPath), arguments);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException("a JDK is needed to compile the reduced sources");
+        }
+        File log = new File(workPath, "compile.log");
+        try (FileOutputStream err = new FileOutputStream(log)) {
+            if (compiler.run(null, null, err, arguments.toArray(new String[arguments.size()])) != 0) {
+                throw new IOException("the reduced sources do not compile, see " + log);
+            }
+        }
+        return reducedClasses;
+    }
+
+    /**
+     * Runs the tests and the workload against a build
+     *
+     * @param name The name of the build, used for the logs
+     * @param classes The classes of the build
+     * @return The measurements of the build
+     * @throws IOException
+     */
+    public Result measure(String name, File classes) throws IOException {
+        Result result = new Result(name);
+        File packageDir = new File(classes, packageName.replace('.', File.separatorChar));
+        result.classFileBytes = classFileBytes(packageDir);
+        result.constantPoolEntries = constantPoolEntries(packageDir);
+
+        List<String> tests = new ArrayList<>();
+        collectTests(new File(testClassesPath), "", tests);
+        if (!tests.isEmpty()) {
+            List<String> command = java(classes, testClassesPath);
+            command.add("org.junit.runner.JUnitCore");
+            command.addAll(tests);
+            String output = exec(command, new File(workPath, name + "-tests.log"));
+            Matcher ok = JUNIT_OK.matcher(output);
+            Matcher failed = JUNIT_FAILED.matcher(output);
+            if (ok.find()) {
+                result.testsRun = Integer.parseInt(ok.group(1));
+            } else if (failed.find()) {
+                result.testsRun = Integer.parseInt(failed.group(1));
+                result.failures = Integer.parseInt(failed.group(2));
+            } else {
+                // the JVM or JUnit did not start
+                result.failures = -1;
+            }
+        }
+
+        // the workload class is copied, so that only the classes of the build are on the class path
+        File harness = new File(workPath, "harness");
+        File workload = new File(harness, VerificationWorkload.class.getName().replace('.', File.separatorChar) + ".class");
+        workload.getParentFile().mkdirs();
+        try (InputStream in = VerificationWorkload.class.getResourceAsStream(VerificationWorkload.class.getSimpleName() + ".class")) {
+            Files.copy(in, workload.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        result.startupNanos = Long.MAX_VALUE;
+        for (int i = 0; i < startups; i++) {
+            List<String> command = java(classes, harness.getPath());
+            command.add(VerificationWorkload.class.getName());
+            command.add("startup");
+            long start = System.nanoTime();
+            exec(command, new File(workPath, name + "-startup.log"));
+            result.startupNanos = Math.min(result.startupNanos, System.nanoTime() - start);
+        }
+
+        List<String> init = java(classes, harness.getPath());
+        init.addAll(Arrays.asList(VerificationWorkload.class.getName(), "init", classes.getPath(), packageName));
+        Matcher initialized = WORKLOAD.matcher(exec(init, new File(workPath, name + "-init.log")));
+        result.classInitNanos = initialized.find() ? Long.parseLong(initialized.group(2)) : -1;
+
+        List<String> command = java(classes, harness.getPath());
+        command.add(VerificationWorkload.class.getName());
+        command.add(String.valueOf(iterations));
+        Matcher matcher = WORKLOAD.matcher(exec(command, new File(workPath, name + "-workload.log")));
+        if (matcher.find()) {
+            result.loadedClasses = Integer.parseInt(matcher.group(1));
+            result.workloadNanos = Long.parseLong(matcher.group(2));
+        } else {
+            result.loadedClasses = -1;
+            result.workloadNanos = -1;
+        }
+        return result;
+    }
+
+    /**
+     * @return The command that starts a JVM with a build and the libraries
+     */
+    private List<String> java(File classes, String extra) {
+        List<String> classPath = new ArrayList<>();
+        classPath.add(classes.getPath());
+        classPath.add(extra);
+        classPath.addAll(libraries);
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        return new ArrayList<>(Arrays.asList(java, "-cp", join(classPath)));
+    }
+
+    /**
+     * Runs a command and saves its output in a log
+     *
+     * @return The output of the command
+     */
+    private static String exec(List<String> command, File log) throws IOException {
+        log.getParentFile().mkdirs();
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                output.append(line).append('\n');
+            }
+        }
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        Files.write(log.toPath(), output.toString().getBytes(StandardCharsets.UTF_8));
+        return output.toString();
+    }
+
+    /**
+     * Adds the test classes of the bundle, named *Test, to a list
+     */
+    private void collectTests(File dir, String prefix, List<String> tests) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File f : files) {
+            String name = f.getName();
+            if (f.isDirectory()) {
+                collectTests(f, prefix + name + ".", tests);
+            } else if (name.endsWith("Test.class") && name.indexOf('$') < 0
+                    && (prefix.equals(packageName + ".") || prefix.startsWith(packageName + "."))) {
+                tests.add(prefix + name.substring(0, name.length() - ".class".length()));
+            }
+        }
+    }
+
+    private static void collectSources(File dir, List<String> sources) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            if (f.isDirectory()) {
+                collectSources(f, sources);
+            } else if (f.getName().endsWith(".java")) {
+                sources.add(f.getPath());
+            }
+        }
+    }
+
+    /**
+     * @return The total size of the class files of a directory
+     */
+    static long classFileBytes(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (File f : files) {
+            if (f.isDirectory()) {
+                bytes += classFileBytes(f);
+            } else if (f.getName().endsWith(".class")) {
+                bytes += f.length();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return The total number of constant-pool entries of the class files
+     * of a directory
+     */
+    static long constantPoolEntries(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long entries = 0;
+        for (File f : files) {
+            if (f.isDirectory()) {
+                entries += constantPoolEntries(f);
+            } else if (f.getName().endsWith(".class")) {
+                entries += new ClassReader(Files.readAllBytes(f.toPath())).getItemCount();
+            }
+        }
+        return entries;
+    }
+
+    private static void deleteRecursively(File f) {
+        File[] files = f.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                deleteRecursively(child);
+            }
+        }
+        f.delete();
+    }
+
+    private static String join(List<String> paths) {
+        StringBuilder s = new StringBuilder();
+        for (String path : paths) {
+            if (s.length() > 0) {
+                s.append(File.pathSeparator);
+            }
+            s.append(path);
+        }
+        return s.toString();
+    }
+
+    private static String row(String metric, Object original, Object reduced) {
+        return metric + "," + original + "," + reduced + "\n";
+    }
+
+    private static String millis(long nanos) {
+        return nanos < 0 ? "-1" : String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /**
+     * The measurements of a build
+     */
+    public static final class Result {
+
+        private final String name;
+
+        private long classFileBytes;
+
+        private long constantPoolEntries;
+
+        private long classInitNanos;
+
+        private int testsRun;
+
+        private int failures;
+
+        private int loadedClasses;
+
+        private long startupNanos;
+
+        private long workloadNanos;
+
+        Result(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return The name of the build
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The total size of the class files of the bundle
+         */
+        public long getClassFileBytes() {
+            return classFileBytes;
+        }
+
+        /**
+         * @return The total number of constant-pool entries of the class
+         * files of the bundle
+         */
+        public long getConstantPoolEntries() {
+            return constantPoolEntries;
+        }
+
+        /**
+         * @return The time spent initializing every class of the bundle, in
+         * nanoseconds, -1 if it could not be measured
+         */
+        public long getClassInitNanos() {
+            return classInitNanos;
+        }
+
+        /**
+         * @return Number of tests run
+         */
+        public int getTestsRun() {
+            return testsRun;
+        }
+
+        /**
+         * @return Number of failed tests, -1 if the tests could not be run
+         */
+        public int getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return Number of classes loaded by the workload JVM, -1 if the
+         * workload failed
+         */
+        public int getLoadedClasses() {
+            return loadedClasses;
+        }
+
+        /**
+         * @return The best wall-clock time of a JVM that initializes
+         * IOUtils and FileUtils, in nanoseconds
+         */
+        public long getStartupNanos() {
+            return startupNanos;
+        }
+
+        /**
+         * @return The best time of an iteration of the workload, in
+         * nanoseconds, -1 if the workload failed
+         */
+        public long getWorkloadNanos() {
+            return workloadNanos;
+        }
+    }
+
+}
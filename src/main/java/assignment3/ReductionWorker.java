@@ -0,0 +1,48 @@
+package assignment3;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class analyzes one shard of the coverage files or of the classes in
+ * its own JVM, started by {@link ReductionCoordinator}, and writes the
+ * methods covered in the shard to a coverage index file.
+ *
+ * The arguments are: the coverage path, the built classes path, the sharding
+ * ("exec-files" or "classes"), the shard, the number of shards, the index
+ * file and the patterns of the bundle.
+ *
+ * @author Cesar Soto-Valero
+ */
+public class ReductionWorker {
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < 6) {
+            System.err.println("usage: ReductionWorker <coverage> <classes> <exec-files|classes> <shard> <count> <index file> [bundle...]");
+            System.exit(2);
+            return;
+        }
+
+        JuncoProcessor p = new JuncoProcessor(Arrays.asList(args).subList(6, args.length), args[0], args[1]);
+        p.setReporter(CoverageReporters.none());
+        int shard = Integer.parseInt(args[3]);
+        int count = Integer.parseInt(args[4]);
+        switch (args[2]) {
+            case "exec-files":
+                p.setExecFileShard(shard, count);
+                break;
+            case "classes":
+                p.setClassShard(shard, count);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown sharding: " + args[2]);
+        }
+
+        CoverageIndex index = p.processIndex();
+        index.save(new File(args[5]));
+        System.out.println("shard " + shard + " of " + count + ": " + index.size() + " covered methods");
+    }
+
+}
@@ -1,10 +1,10 @@
 package assignment3;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Set;
 import spoon.processing.AbstractProcessor;
 import spoon.reflect.declaration.CtClass;
@@ -16,31 +16,52 @@ import spoon.reflect.declaration.CtType;
 /**
  * This class removes the methods that are not covered by the test suite in a
  * given class. It uses Spoon to do the code transformation and Junco to
- * retrieve the coverage results
+ * retrieve the coverage results. Once every class is processed, the fields,
+ * initializers and nested classes left unused are removed too.
  *
  * @author Cesar Soto-Valero
  */
 public class SpoonProcessor extends AbstractProcessor<CtClass> {
 
     /**
-     * Path to the Junco coverage path.
+     * Path to the Junco coverage path, which can be changed with the
+     * junco.coverage system property
      */
-    String coveragePath = "target\\site\\junco";
+    String coveragePath = System.getProperty("junco.coverage", "target/site/junco");
 
     /**
-     * Path to the built classes
+     * Path to the built classes, which can be changed with the junco.classes
+     * system property
      */
-    String builtClassesPath = "target\\classes";
+    String builtClassesPath = System.getProperty("junco.classes", "target/classes");
 
     /**
      * a list with the name of the methods that are not covered by the test suit
      */
     ArrayList<String> notCoveredMethodNames;
 
-    HashMap<String, Collection<String>> coveredMethods;
+    /**
+     * the methods that are covered by the test suite
+     */
+    CoverageIndex coveredMethods;
+
+    /**
+     * the status of the source lines, null to reduce only whole methods
+     */
+    LineCoverage coveredLines;
+
+    /**
+     * the metrics where the removed methods are counted
+     */
+    ReductionMetrics metrics = new ReductionMetrics();
+
+    /**
+     * the top-level classes whose methods were reduced
+     */
+    List<CtClass<?>> reducedClasses = new ArrayList<>();
 
     JuncoProcessor p = new JuncoProcessor(Arrays.asList(new String[]{
-        "classes.Calculator"}), coveragePath, builtClassesPath);
+        "org.apache.commons.io."}), coveragePath, builtClassesPath);
 
     /**
      * Constructor that gets the coverage information of the test suit for the
@@ -50,27 +71,80 @@ public class SpoonProcessor extends AbstractProcessor<CtClass> {
      */
     public SpoonProcessor() throws IOException {
 //        notCoveredMethodNames = p.process2();
-        coveredMethods = p.process2();
+        p.setCoverageCache(CoverageCache.open(new File(new File(builtClassesPath).getParentFile(), "junco-coverage.idx")));
+        coveredMethods = p.processIndex();
+
+    }
+
+    /**
+     * Constructor that uses coverage information that was already computed,
+     * so that it can be shared by several processors
+     *
+     * @param coveredMethods the methods that are covered by the test suite
+     */
+    public SpoonProcessor(CoverageIndex coveredMethods) {
+        this.coveredMethods = coveredMethods;
+    }
 
+    /**
+     * Constructor that also prunes the branches that were never executed
+     * inside the covered methods
+     *
+     * @param coveredMethods the methods that are covered by the test suite
+     * @param coveredLines the status of the source lines
+     */
+    public SpoonProcessor(CoverageIndex coveredMethods, LineCoverage coveredLines) {
+        this.coveredMethods = coveredMethods;
+        this.coveredLines = coveredLines;
+    }
+
+    /**
+     * Sets the metrics where the removed methods are counted, so that they
+     * can be shared with the other phases of the reduction
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(ReductionMetrics metrics) {
+        this.metrics = metrics;
     }
 
     @Override
     public void process(CtClass ctClass) {
 
-        if (coveredMethods.get(ctClass.getSimpleName()) != null) {
+        if (coveredMethods.hasCoverage(ctClass.getQualifiedName())) {
+            if (ctClass.isTopLevel()) {
+                reducedClasses.add(ctClass);
+            }
             // get all the methods in the class
             Set<CtMethod> methods = ctClass.getMethods();
             // for each method in the class
             for (CtMethod method : methods) {
                 // check if the method is in the list
-                if (!coveredMethods.get(ctClass.getSimpleName()).contains(method.getSimpleName())) {
+                if (!coveredMethods.isCovered(ctClass.getQualifiedName(), method.getSimpleName(), MethodDescriptors.of(method))) {
                     // remove the method from the class
                     ctClass.removeMethod(method);
+                    metrics.increment(ReductionMetrics.METHODS_REMOVED, 1);
                     // add a comment at the top of the class with the name of the removed method/s
                     ctClass.addComment(getFactory().Core().createComment().setContent("method \"" + method.getSimpleName() + "\" was removed from this class because it was not covered by the test suite"));
+                } else if (coveredLines != null) {
+                    // prune the branches of the covered method that were never executed
+                    int pruned = new BranchPruner(coveredLines, getFactory()).prune(ctClass.getQualifiedName(), method);
+                    if (pruned > 0) {
+                        ctClass.addComment(getFactory().Core().createComment().setContent(pruned + " branch(es) of method \"" + method.getSimpleName() + "\" were removed because they were not covered by the test suite"));
+                    }
                 }
             }
 
         }
     }
+
+    @Override
+    public void processingDone() {
+        // the members used only by the removed methods are unused now
+        MemberPruner pruner = new MemberPruner(coveredMethods, getFactory());
+        pruner.prune(reducedClasses);
+        metrics.increment(ReductionMetrics.FIELDS_REMOVED, pruner.getRemovedFields());
+        metrics.increment(ReductionMetrics.INITIALIZERS_REMOVED, pruner.getRemovedInitializers());
+        metrics.increment(ReductionMetrics.NESTED_CLASSES_REMOVED, pruner.getRemovedNestedClasses());
+    }
 }
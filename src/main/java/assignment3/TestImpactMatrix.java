@@ -0,0 +1,284 @@
+package assignment3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * This class keeps the methods covered by each test case as a matrix with a
+ * row per test and a column per method, stored as one bitset per test. It is
+ * used to select the tests that have to be run again after a change: only
+ * the tests that cover a changed method can fail because of it.
+ *
+ * The matrix is stored in a compact binary file: a string table with the
+ * names of the classes and methods, the columns, which refer to the strings
+ * by their position in the table, and the bitset of each test.
+ *
+ * The matrix is built and queried by {@link AssignmentRunner} with the
+ * --changed option, which saves it to the build directory of each module.
+ *
+ * @author Cesar Soto-Valero
+ */
+public class TestImpactMatrix {
+
+    /**
+     * Identifies the matrix files
+     */
+    private static final int MAGIC = 0x4A544D31;
+
+    /**
+     * Version of the matrix format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The fully-qualified class name of each column
+     */
+    private final List<String> classNames = new ArrayList<>();
+
+    /**
+     * The method name of each column
+     */
+    private final List<String> methodNames = new ArrayList<>();
+
+    /**
+     * The JVM descriptor of the method of each column
+     */
+    private final List<String> methodDescs = new ArrayList<>();
+
+    /**
+     * The column of each method, by class, name and descriptor
+     */
+    private final Map<String, Integer> columns = new HashMap<>();
+
+    /**
+     * The name of each test, in the order of the rows
+     */
+    private final List<String> tests = new ArrayList<>();
+
+    /**
+     * The methods covered by each test
+     */
+    private final List<BitSet> rows = new ArrayList<>();
+
+    /**
+     * Adds a test that covers no method yet
+     *
+     * @param testName The name of the test
+     * @return The row of the test
+     */
+    public int addTest(String testName) {
+        tests.add(testName);
+        rows.add(new BitSet());
+        return tests.size() - 1;
+    }
+
+    /**
+     * Marks a method as covered by a test
+     *
+     * @param row The row of the test
+     * @param className The VM or fully-qualified name of the class
+     * @param methodName The name of the method
+     * @param desc The JVM descriptor of the method
+     */
+    public void add(int row, String className, String methodName, String desc) {
+        rows.get(row).set(column(CoverageIndex.toQualifiedName(className), methodName, desc));
+    }
+
+    /**
+     * Selects the tests that cover at least one of the changed classes or
+     * methods. A change is given as:
+     * <ul>
+     * <li>"org.apache.commons.io.IOUtils" for a whole class, with its nested
+     * classes</li>
+     * <li>"org.apache.commons.io.IOUtils#copy" for every overload of a
+     * method</li>
+     * <li>"org.apache.commons.io.IOUtils#copy(Ljava/io/InputStream;Ljava/io/OutputStream;)I"
+     * for a single method</li>
+     * </ul>
+     *
+     * @param changes The changed classes and methods
+     * @return The names of the tests to run, sorted
+     */
+    public SortedSet<String> selectTests(Collection<String> changes) {
+
+        // the columns of the changed methods
+        BitSet changed = new BitSet();
+        for (String change : changes) {
+            int hash = change.indexOf('#');
+            String className = CoverageIndex.toQualifiedName(hash < 0 ? change : change.substring(0, hash));
+            String method = hash < 0 ? null : change.substring(hash + 1);
+            int paren = method == null ? -1 : method.indexOf('(');
+            String methodName = paren < 0 ? method : method.substring(0, paren);
+            String desc = paren < 0 ? null : method.substring(paren);
+            for (int i = 0; i < classNames.size(); i++) {
+                if (matches(i, className, methodName, desc)) {
+                    changed.set(i);
+                }
+            }
+        }
+
+        SortedSet<String> selected = new TreeSet<>();
+        for (int row = 0; row < rows.size(); row++) {
+            if (rows.get(row).intersects(changed)) {
+                selected.add(tests.get(row));
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @return The names of the tests, in the order of the rows
+     */
+    public List<String> getTests() {
+        return tests;
+    }
+
+    /**
+     * @return Number of distinct methods covered by at least one test
+     */
+    public int getMethodCount() {
+        return classNames.size();
+    }
+
+    /**
+     * Writes the matrix to a file
+     *
+     * @param file The matrix file
+     * @throws IOException
+     */
+    public void save(File file) throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            write(out);
+        }
+    }
+
+    /**
+     * Reads a matrix from a file
+     *
+     * @param file The matrix file
+     * @return The matrix
+     * @throws IOException if the file cannot be read or is not a matrix file
+     */
+    public static TestImpactMatrix load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            TestImpactMatrix matrix = new TestImpactMatrix();
+            matrix.read(in);
+            return matrix;
+        }
+    }
+
+    /**
+     * @return The column of a method, added if it is new
+     */
+    private int column(String className, String methodName, String desc) {
+        String key = className + '#' + methodName + desc;
+        Integer column = columns.get(key);
+        if (column == null) {
+            column = classNames.size();
+            columns.put(key, column);
+            classNames.add(className);
+            methodNames.add(methodName);
+            methodDescs.add(desc);
+        }
+        return column;
+    }
+
+    /**
+     * @return true if the method of a column is one of the changed methods
+     */
+    private boolean matches(int column, String className, String methodName, String desc) {
+        String c = classNames.get(column);
+        if (!c.equals(className) && !(c.startsWith(className) && c.charAt(className.length()) == '$')) {
+            return false;
+        }
+        if (methodName == null) {
+            return true;
+        }
+        return methodNames.get(column).equals(methodName) && (desc == null || methodDescs.get(column).equals(desc));
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("not a test impact matrix file");
+        }
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        int methodCount = in.readInt();
+        for (int i = 0; i < methodCount; i++) {
+            column(strings[in.readInt()], strings[in.readInt()], strings[in.readInt()]);
+        }
+        int testCount = in.readInt();
+        for (int i = 0; i < testCount; i++) {
+            tests.add(in.readUTF());
+            long[] words = new long[in.readInt()];
+            for (int j = 0; j < words.length; j++) {
+                words[j] = in.readLong();
+            }
+            rows.add(BitSet.valueOf(words));
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+
+        // collect the string table
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        for (int i = 0; i < classNames.size(); i++) {
+            intern(classNames.get(i), strings, table);
+            intern(methodNames.get(i), strings, table);
+            intern(methodDescs.get(i), strings, table);
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(table.size());
+        for (String s : table) {
+            out.writeUTF(s);
+        }
+        out.writeInt(classNames.size());
+        for (int i = 0; i < classNames.size(); i++) {
+            out.writeInt(strings.get(classNames.get(i)));
+            out.writeInt(strings.get(methodNames.get(i)));
+            out.writeInt(strings.get(methodDescs.get(i)));
+        }
+        out.writeInt(tests.size());
+        for (int i = 0; i < tests.size(); i++) {
+            out.writeUTF(tests.get(i));
+            long[] words = rows.get(i).toLongArray();
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    private static void intern(String s, Map<String, Integer> strings, List<String> table) {
+        if (!strings.containsKey(s)) {
+            strings.put(s, table.size());
+            table.add(s);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return tests.size() + " tests x " + classNames.size() + " methods";
+    }
+
+}
@@ -0,0 +1,132 @@
+package assignment3;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * This class runs a representative IOUtils/FileUtils workload in a child JVM
+ * started by {@link ReductionVerifier}, against either the original or the
+ * reduced classes. It only depends on the JDK and commons-io, so that it can
+ * be put on the class path of any of the builds.
+ *
+ * With "startup" it only initializes IOUtils and FileUtils; with "init", a
+ * classes directory and a package, it initializes every class of the package
+ * and measures the time spent; otherwise it runs the workload the given
+ * number of times. In every case it prints a line with the number of loaded
+ * classes and the measured time: "loaded_classes=N workload_nanos=M".
+ *
+ * @author Cesar Soto-Valero
+ */
+public final class VerificationWorkload {
+
+    private VerificationWorkload() {
+    }
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+
+        if (args.length > 0 && args[0].equals("startup")) {
+            Class.forName("org.apache.commons.io.IOUtils", true, VerificationWorkload.class.getClassLoader());
+            FileUtils.getTempDirectory();
+            report(0);
+            return;
+        }
+        if (args.length > 2 && args[0].equals("init")) {
+            File packageDir = new File(args[1], args[2].replace('.', File.separatorChar));
+            report(initialize(packageDir, args[2] + "."));
+            return;
+        }
+
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        byte[] data = new byte[4 * 1024 * 1024];
+        new Random(42).nextBytes(data);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            lines.add("line " + i);
+        }
+
+        File dir = Files.createTempDirectory("junco-workload").toFile();
+        try {
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                run(dir, data, lines);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            report(best);
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    /**
+     * Copies the data between streams and files and reads it back
+     */
+    private static void run(File dir, byte[] data, List<String> lines) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+        IOUtils.copy(new ByteArrayInputStream(data), out);
+        byte[] copy = IOUtils.toByteArray(new ByteArrayInputStream(out.toByteArray()));
+        check(IOUtils.contentEquals(new ByteArrayInputStream(data), new ByteArrayInputStream(copy)));
+
+        File file = new File(dir, "data.bin");
+        File fileCopy = new File(dir, "copy.bin");
+        FileUtils.writeByteArrayToFile(file, data);
+        FileUtils.copyFile(file, fileCopy);
+        check(FileUtils.contentEquals(file, fileCopy));
+        check(FileUtils.readFileToByteArray(fileCopy).length == data.length);
+
+        File text = new File(dir, "lines.txt");
+        FileUtils.writeLines(text, "UTF-8", lines);
+        check(FileUtils.readLines(text, "UTF-8").size() == lines.size());
+        check(FileUtils.listFiles(dir, null, false).size() == 3);
+    }
+
+    /**
+     * Initializes the classes of a package and its sub-packages
+     *
+     * @return The time spent initializing them
+     */
+    private static long initialize(File dir, String prefix) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long nanos = 0;
+        for (File f : files) {
+            String name = f.getName();
+            if (f.isDirectory()) {
+                nanos += initialize(f, prefix + name + ".");
+            } else if (name.endsWith(".class")) {
+                long start = System.nanoTime();
+                try {
+                    Class.forName(prefix + name.substring(0, name.length() - ".class".length()), true, VerificationWorkload.class.getClassLoader());
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // the class cannot be initialized on its own in this build
+                }
+                nanos += System.nanoTime() - start;
+            }
+        }
+        return nanos;
+    }
+
+    private static void check(boolean condition) {
+        if (!condition) {
+            throw new IllegalStateException("the workload produced a wrong result");
+        }
+    }
+
+    private static void report(long nanos) {
+        System.out.println("loaded_classes=" + ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount()
+                + " workload_nanos=" + nanos);
+    }
+
+}
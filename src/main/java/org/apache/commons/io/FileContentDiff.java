@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds the first difference between the contents of two files.
+ * <p>
+ * Small files are read into heap buffers. Larger files are memory-mapped in
+ * windows, and the windows are compared in parallel on a
+ * <code>ForkJoinPool</code>. Once a difference has been found, the windows
+ * that follow it are no longer compared. Files that report a size of 0, such as
+ * the entries of the proc file system or FIFOs, are read as streams to their end.
+ * </p>
+ * <p>
+ * The mappings are not unmapped explicitly: they are released when they are garbage
+ * collected, and the platforms that lock mapped files keep the files locked until then.
+ * </p>
+ *
+ * @see FileUtils#indexOfDifference(File, File)
+ */
+class FileContentDiff {
+
+    /**
+     * The instance used by {@link FileUtils}. A mapped file cannot be deleted on Windows
+     * until the mapping is garbage collected, so files are never mapped there.
+     */
+    static final FileContentDiff DEFAULT = new FileContentDiff(
+            FilenameUtils.isSystemWindows() ? Long.MAX_VALUE : 1024 * 1024, 16 * 1024 * 1024);
+
+    /**
+     * The size of the blocks in which small files are read.
+     */
+    private static final int READ_BUFFER_SIZE = 1024 * 8;
+
+    private final long mappingThreshold;
+    private final int windowSize;
+
+    /**
+     * The pool on which the windows are compared, or null for the shared {@link Pool}.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates the comparison, which compares the windows on the shared pool.
+     *
+     * @param mappingThreshold the length from which the files are memory-mapped
+     * @param windowSize the size of the windows in which the files are mapped and compared
+     */
+    FileContentDiff(final long mappingThreshold, final int windowSize) {
+        this(mappingThreshold, windowSize, null);
+    }
+
+    /**
+     * Creates the comparison.
+     *
+     * @param mappingThreshold the length from which the files are memory-mapped
+     * @param windowSize the size of the windows in which the files are mapped and compared
+     * @param pool the pool on which the windows are compared, which the caller owns and shuts
+     * down, or null for the shared pool
+     */
+    FileContentDiff(final long mappingThreshold, final int windowSize, final ForkJoinPool pool) {
+        this.mappingThreshold = mappingThreshold;
+        this.windowSize = windowSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Finds the first difference between the contents of two files.
+     *
+     * @param file1 the first file
+     * @param file2 the second file
+     * @return the offset of the first byte that differs, the length of the shorter
+     * file if it is a prefix of the other, or -1 if the contents are equal
+     * @throws IOException in case of an I/O error
+     */
+    long indexOfDifference(final File file1, final File file2) throws IOException {
+        try (FileInputStream input1 = new FileInputStream(file1);
+             FileInputStream input2 = new FileInputStream(file2)) {
+            final FileChannel channel1 = input1.getChannel();
+            final FileChannel channel2 = input2.getChannel();
+            final long size1 = channel1.size();
+            final long size2 = channel2.size();
+            if (size1 == 0 || size2 == 0) {
+                // a size of 0 may stand for an unknown size - see IO-453
+                return compareStreams(input1, input2);
+            }
+            final long length = Math.min(size1, size2);
+            final long index = length < mappingThreshold ? compareRead(channel1, channel2, length)
+                    : compareMapped(channel1, channel2, length);
+            if (index == IOUtils.EOF && size1 != size2) {
+                return length;
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Compares the files by reading their streams to the end, for files whose size is not known.
+     */
+    private static long compareStreams(final InputStream input1, final InputStream input2) throws IOException {
+        final byte[] buffer1 = new byte[READ_BUFFER_SIZE];
+        final byte[] buffer2 = new byte[READ_BUFFER_SIZE];
+        long position = 0;
+        while (true) {
+            // the blocks are read fully, so they are shorter only at the end of the stream
+            final int n1 = IOUtils.read(input1, buffer1);
+            final int n2 = IOUtils.read(input2, buffer2);
+            final int n = Math.min(n1, n2);
+            final int index = mismatch(ByteBuffer.wrap(buffer1), ByteBuffer.wrap(buffer2), n);
+            if (index != IOUtils.EOF) {
+                return position + index;
+            }
+            if (n1 != n2) {
+                return position + n;
+            }
+            if (n < READ_BUFFER_SIZE) {
+                return IOUtils.EOF;
+            }
+            position += n;
+        }
+    }
+
+    /**
+     * Compares the files by reading them into heap buffers. A file that has become shorter than
+     * the length since its size was taken differs where it now ends.
+     */
+    static long compareRead(final FileChannel channel1, final FileChannel channel2, final long length)
+            throws IOException {
+        final ByteBuffer buffer1 = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        final ByteBuffer buffer2 = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        long position = 0;
+        while (position < length) {
+            final int n = (int) Math.min(READ_BUFFER_SIZE, length - position);
+            buffer1.clear().limit(n);
+            buffer2.clear().limit(n);
+            final int n1 = IOUtils.read(channel1, buffer1);
+            final int n2 = IOUtils.read(channel2, buffer2);
+            final int read = Math.min(n1, n2);
+            final int index = mismatch(buffer1, buffer2, read);
+            if (index != IOUtils.EOF) {
+                return position + index;
+            }
+            if (read < n) {
+                return position + read;
+            }
+            position += n;
+        }
+        return IOUtils.EOF;
+    }
+
+    /**
+     * Compares the files by mapping them in windows, in parallel when there are several windows.
+     */
+    private long compareMapped(final FileChannel channel1, final FileChannel channel2, final long length)
+            throws IOException {
+        final int windows = (int) ((length + windowSize - 1) / windowSize);
+        final Window all = new Window(channel1, channel2, length, 0, windows, new AtomicLong(Long.MAX_VALUE));
+        if (windows <= 1) {
+            return all.compareWindow(0);
+        }
+        try {
+            (pool != null ? pool : Pool.INSTANCE).invoke(all);
+        } catch (final RuntimeException e) {
+            // the pool may rethrow a copy of the exception thrown by a window
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if (t instanceof IOException) {
+                    throw (IOException) t;
+                }
+            }
+            throw e;
+        }
+        final long first = all.firstDifference.get();
+        return first == Long.MAX_VALUE ? IOUtils.EOF : first;
+    }
+
+    /**
+     * Finds the first difference between two buffers, eight bytes at a time.
+     *
+     * @return the index of the first difference, or -1 if the buffers are equal
+     */
+    private static int mismatch(final ByteBuffer buffer1, final ByteBuffer buffer2, final int length) {
+        int i = 0;
+        while (i + 8 <= length && buffer1.getLong(i) == buffer2.getLong(i)) {
+            i += 8;
+        }
+        for (; i < length; i++) {
+            if (buffer1.get(i) != buffer2.get(i)) {
+                return i;
+            }
+        }
+        return IOUtils.EOF;
+    }
+
+    /**
+     * Compares a range of windows, splitting it until there is one window per task.
+     */
+    private final class Window extends RecursiveTask<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel1;
+        private final transient FileChannel channel2;
+        private final long length;
+        private final int from;
+        private final int to;
+
+        /**
+         * The first difference found so far by any window, or Long.MAX_VALUE.
+         */
+        private final AtomicLong firstDifference;
+
+        Window(final FileChannel channel1, final FileChannel channel2, final long length, final int from,
+               final int to, final AtomicLong firstDifference) {
+            this.channel1 = channel1;
+            this.channel2 = channel2;
+            this.length = length;
+            this.from = from;
+            this.to = to;
+            this.firstDifference = firstDifference;
+        }
+
+        @Override
+        protected Void compute() {
+            if (to - from > 1) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new Window(channel1, channel2, length, from, middle, firstDifference),
+                        new Window(channel1, channel2, length, middle, to, firstDifference));
+                return null;
+            }
+            try {
+                final long index = compareWindow(from);
+                long first = firstDifference.get();
+                while (index != IOUtils.EOF && index < first && !firstDifference.compareAndSet(first, index)) {
+                    first = firstDifference.get();
+                }
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        }
+
+        /**
+         * Compares a window, unless a difference was already found before it.
+         *
+         * @return the offset of the first difference in the window, or -1
+         */
+        long compareWindow(final int window) throws IOException {
+            final long position = (long) window * windowSize;
+            if (firstDifference.get() < position) {
+                return IOUtils.EOF;
+            }
+            final int size = (int) Math.min(windowSize, length - position);
+            final ByteBuffer buffer1 = channel1.map(FileChannel.MapMode.READ_ONLY, position, size);
+            final ByteBuffer buffer2 = channel2.map(FileChannel.MapMode.READ_ONLY, position, size);
+            final int index = mismatch(buffer1, buffer2, size);
+            return index == IOUtils.EOF ? IOUtils.EOF : position + index;
+        }
+    }
+
+    /**
+     * The shared pool, created with the first large comparison. The common pool of Java 8 is
+     * not available on Java 7, so the pool has its own threads, one per processor: they are
+     * daemon threads, so they never keep the JVM running, and they are started on demand and
+     * end when they have been idle for a while, so the pool needs no shutdown. Their context
+     * class loader is cleared, so that they do not hold the class loader of the application
+     * that happened to start them.
+     */
+    private static final class Pool {
+        static final ForkJoinPool INSTANCE = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                    @Override
+                    public ForkJoinWorkerThread newThread(final ForkJoinPool pool) {
+                        final ForkJoinWorkerThread thread =
+                                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                        thread.setDaemon(true);
+                        thread.setContextClassLoader(null);
+                        thread.setName("commons-io-content-diff-" + thread.getPoolIndex());
+                        return thread;
+                    }
+                }, null, false);
+    }
+
+}
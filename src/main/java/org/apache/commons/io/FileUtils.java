@@ -725,7 +725,8 @@ public class FileUtils {
      * <p>
      * This method checks to see if the two files are different lengths
      * or if they point to the same file, before resorting to byte-by-byte
-     * comparison of the contents.
+     * comparison of the contents. Large files are memory-mapped and compared
+     * in parallel, except on Windows, see {@link #indexOfDifference(File, File)}.
      * <p>
      * Code origin: Avalon
      *
@@ -761,10 +762,45 @@ public class FileUtils {
             return true;
         }
 
-        try (InputStream input1 = new FileInputStream(file1);
-             InputStream input2 = new FileInputStream(file2)) {
-            return IOUtils.contentEquals(input1, input2);
+        return FileContentDiff.DEFAULT.indexOfDifference(file1, file2) == IOUtils.EOF;
+    }
+
+    /**
+     * Finds the offset of the first byte that differs between two files.
+     * <p>
+     * Files of 1 MB or more are memory-mapped in windows of 16 MB, and the
+     * windows are compared in parallel on a shared <code>ForkJoinPool</code>.
+     * The comparison stops at the windows that follow the first difference.
+     * Smaller files are read sequentially.
+     * <p>
+     * A mapping is released only when it is garbage collected. Windows locks
+     * a mapped file until then, so that it could not be deleted or renamed
+     * right after the comparison: there, the files are never mapped and are
+     * read sequentially whatever their size.
+     *
+     * @param file1 the first file
+     * @param file2 the second file
+     * @return the offset of the first byte that differs, the length of the
+     * shorter file if it is a prefix of the other, or -1 if the contents are equal
+     * @throws FileNotFoundException if either file does not exist
+     * @throws IOException in case of an I/O error or if either file is a directory
+     * @since 2.7
+     */
+    public static long indexOfDifference(final File file1, final File file2) throws IOException {
+        if (!file1.exists()) {
+            throw new FileNotFoundException("File '" + file1 + "' does not exist");
+        }
+        if (!file2.exists()) {
+            throw new FileNotFoundException("File '" + file2 + "' does not exist");
+        }
+        if (file1.isDirectory() || file2.isDirectory()) {
+            throw new IOException("Can't compare directories, only files");
+        }
+        if (file1.getCanonicalFile().equals(file2.getCanonicalFile())) {
+            // same file
+            return IOUtils.EOF;
         }
+        return FileContentDiff.DEFAULT.indexOfDifference(file1, file2);
     }
 
     //-----------------------------------------------------------------------
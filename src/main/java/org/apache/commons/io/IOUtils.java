@@ -25,6 +25,8 @@ import java.io.CharArrayWriter;
 import java.io.Closeable;
 import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -40,10 +42,12 @@ import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.Selector;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -82,12 +86,22 @@ import org.apache.commons.io.output.StringBuilderWriter;
  * <li>{@link #copyLarge(Reader, Writer, long, long, char[])}</li>
  * </ul>
  * For example, {@link #copy(InputStream, OutputStream)} calls {@link #copyLarge(InputStream, OutputStream)}
- * which calls {@link #copy(InputStream, OutputStream, int)} which creates the buffer and calls
+ * which takes the buffer of the current thread and calls
  * {@link #copyLarge(InputStream, OutputStream, byte[])}.
  * <p>
  * Applications can re-use buffers by using the underlying methods directly.
  * This may improve performance for applications that need to do a lot of copying.
  * <p>
+ * The copy and skip methods keep their default buffers in thread-locals, so that they do not
+ * allocate a buffer on each call. Each thread that has called them keeps up to 4K for the
+ * byte buffers and 8K for the char buffers of the copy methods, plus 2K and 4K for those of
+ * the skip methods, until the thread ends. The buffers are plain arrays, so they do not hold
+ * the class loader of this class, but the containers that look for thread-locals left behind
+ * by a web application, on the threads of their pools, report them when the application is
+ * undeployed. Applications that cannot afford this should pass their own buffers to the
+ * methods that take one, such as {@link #copyLarge(InputStream, OutputStream, byte[])} and
+ * {@link #copyLarge(Reader, Writer, char[])}.
+ * <p>
  * Wherever possible, the methods in this class do <em>not</em> flush or close
  * the stream. This is to avoid making non-portable assumptions about the
  * streams' origin and further use. Thus the caller is still responsible for
@@ -153,19 +167,39 @@ public class IOUtils {
      */
     private static final int SKIP_BUFFER_SIZE = 2048;
 
-    // Allocated in the relevant skip method if necessary.
+    /**
+     * The maximum number of bytes read from a channel at once by {@link #toByteArray(InputStream)},
+     * which bounds the temporary direct buffer used by the channel.
+     */
+    private static final int CHANNEL_READ_SIZE = 1024 * 1024;
+
     /*
-     * These buffers are static and are shared between threads.
-     * This is possible because the buffers are write-only - the contents are never read.
-     *
-     * N.B. there is no need to synchronize when creating these because:
-     * - we don't care if the buffer is created multiple times (the data is ignored)
-     * - we always use the same size buffer, so if it it is recreated it will still be OK
-     * (if the buffer size were variable, we would need to synch. to ensure some other thread
-     * did not create a smaller one)
+     * The buffers of the skip() methods, one per thread.
+     * The buffers are write-only - the contents are never read - so a nested skip on the
+     * same thread may use the buffer of the enclosing one.
+     */
+    private static final ThreadLocal<char[]> SKIP_CHAR_BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[SKIP_BUFFER_SIZE];
+        }
+    };
+    private static final ThreadLocal<byte[]> SKIP_BYTE_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[SKIP_BUFFER_SIZE];
+        }
+    };
+
+    /*
+     * The buffers of DEFAULT_BUFFER_SIZE used by the copy methods, one per thread, so that a
+     * copy does not allocate its buffer.
+     * A buffer is taken out of its thread-local while it is in use and put back afterwards:
+     * a nested copy on the same thread, from a stream that itself copies another stream,
+     * finds it empty and allocates its own buffer instead of overwriting the data being copied.
      */
-    private static char[] SKIP_CHAR_BUFFER;
-    private static byte[] SKIP_BYTE_BUFFER;
+    private static final ThreadLocal<byte[]> COPY_BYTE_BUFFER = new ThreadLocal<>();
+    private static final ThreadLocal<char[]> COPY_CHAR_BUFFER = new ThreadLocal<>();
 
     /**
      * Instances should NOT be constructed in standard programming.
@@ -176,6 +210,52 @@ public class IOUtils {
 
     //-----------------------------------------------------------------------
 
+    /**
+     * Takes the byte buffer of the current thread, or allocates one if it is in use.
+     *
+     * @return a buffer of {@link #DEFAULT_BUFFER_SIZE} to give back with {@link #releaseByteBuffer(byte[])}
+     */
+    private static byte[] takeByteBuffer() {
+        final byte[] buffer = COPY_BYTE_BUFFER.get();
+        if (buffer == null) {
+            return new byte[DEFAULT_BUFFER_SIZE];
+        }
+        COPY_BYTE_BUFFER.set(null);
+        return buffer;
+    }
+
+    /**
+     * Gives back a buffer taken with {@link #takeByteBuffer()}.
+     *
+     * @param buffer the buffer, no longer used by the caller
+     */
+    private static void releaseByteBuffer(final byte[] buffer) {
+        COPY_BYTE_BUFFER.set(buffer);
+    }
+
+    /**
+     * Takes the char buffer of the current thread, or allocates one if it is in use.
+     *
+     * @return a buffer of {@link #DEFAULT_BUFFER_SIZE} to give back with {@link #releaseCharBuffer(char[])}
+     */
+    private static char[] takeCharBuffer() {
+        final char[] buffer = COPY_CHAR_BUFFER.get();
+        if (buffer == null) {
+            return new char[DEFAULT_BUFFER_SIZE];
+        }
+        COPY_CHAR_BUFFER.set(null);
+        return buffer;
+    }
+
+    /**
+     * Gives back a buffer taken with {@link #takeCharBuffer()}.
+     *
+     * @param buffer the buffer, no longer used by the caller
+     */
+    private static void releaseCharBuffer(final char[] buffer) {
+        COPY_CHAR_BUFFER.set(buffer);
+    }
+
     /**
      * Closes a URLConnection.
      *
@@ -753,6 +833,10 @@ public class IOUtils {
      * <p>
      * This method buffers the input internally, so there is no need to use a
      * <code>BufferedInputStream</code>.
+     * <p>
+     * The bytes left in a <code>FileInputStream</code> are read from its channel
+     * straight into an array of their size. Other streams are read into buffers
+     * that grow with the content, which are copied once into the returned array.
      *
      * @param input the <code>InputStream</code> to read from
      * @return the requested byte array
@@ -760,8 +844,68 @@ public class IOUtils {
      * @throws IOException          if an I/O error occurs
      */
     public static byte[] toByteArray(final InputStream input) throws IOException {
+        if (input.getClass() == FileInputStream.class) {
+            final FileChannel channel = ((FileInputStream) input).getChannel();
+            long size;
+            try {
+                size = channel.size() - channel.position();
+            } catch (final IOException e) {
+                // not a seekable file, such as a pipe, a FIFO or a terminal
+                size = 0;
+            }
+            // a size of 0 may stand for an unknown size - see IO-453
+            if (size > 0 && size <= Integer.MAX_VALUE) {
+                final byte[] data = new byte[(int) size];
+                final int read = read(channel, data);
+                if (read < data.length) {
+                    // the file was truncated while it was read
+                    return Arrays.copyOf(data, read);
+                }
+                return appendRemaining(data, input);
+            }
+        }
         try (final ByteArrayOutputStream output = new ByteArrayOutputStream()) {
-            copy(input, output);
+            output.write(input);
+            return output.toByteArray();
+        }
+    }
+
+    /**
+     * Reads a channel into an array, in blocks of {@link #CHANNEL_READ_SIZE}.
+     *
+     * @param channel the channel to read from
+     * @param data the array to fill
+     * @return the number of bytes read, less than the length of the array only at the end of the channel
+     * @throws IOException if an I/O error occurs
+     */
+    private static int read(final FileChannel channel, final byte[] data) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.position() < data.length) {
+            buffer.limit(Math.min(data.length, buffer.position() + CHANNEL_READ_SIZE));
+            if (channel.read(buffer) == EOF) {
+                break;
+            }
+        }
+        return buffer.position();
+    }
+
+    /**
+     * Appends the bytes that follow the expected content of a stream, if it grew while it was read.
+     *
+     * @param data the expected content, read entirely
+     * @param input the stream to read the bytes that follow from
+     * @return the given array if the stream has no more bytes, otherwise the whole content
+     * @throws IOException if an I/O error occurs
+     */
+    private static byte[] appendRemaining(final byte[] data, final InputStream input) throws IOException {
+        final int next = input.read();
+        if (next == EOF) {
+            return data;
+        }
+        try (final ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            output.write(data, 0, data.length);
+            output.write(next);
+            output.write(input);
             return output.toByteArray();
         }
     }
@@ -796,6 +940,8 @@ public class IOUtils {
      * Gets the contents of an <code>InputStream</code> as a <code>byte[]</code>.
      * Use this method instead of <code>toByteArray(InputStream)</code>
      * when <code>InputStream</code> size is known
+     * <p>
+     * A <code>FileInputStream</code> is read from its channel straight into the array.
      *
      * @param input the <code>InputStream</code> to read from
      * @param size the size of <code>InputStream</code>
@@ -816,6 +962,13 @@ public class IOUtils {
         }
 
         final byte[] data = new byte[size];
+        if (input.getClass() == FileInputStream.class) {
+            final int read = read(((FileInputStream) input).getChannel(), data);
+            if (read != size) {
+                throw new IOException("Unexpected read size. current: " + read + ", expected: " + size);
+            }
+            return data;
+        }
         int offset = 0;
         int read;
 
@@ -2287,7 +2440,12 @@ public class IOUtils {
      */
     public static long copyLarge(final InputStream input, final OutputStream output)
             throws IOException {
-        return copy(input, output, DEFAULT_BUFFER_SIZE);
+        final byte[] buffer = takeByteBuffer();
+        try {
+            return copyLarge(input, output, buffer);
+        } finally {
+            releaseByteBuffer(buffer);
+        }
     }
 
     /**
@@ -2297,6 +2455,8 @@ public class IOUtils {
      * This method uses the provided buffer, so there is no need to use a
      * <code>BufferedInputStream</code>.
      * <p>
+     * When copying a <code>FileInputStream</code> to a <code>FileOutputStream</code>
+     * the bytes are transferred between their channels, without going through the buffer.
      *
      * @param input the <code>InputStream</code> to read from
      * @param output the <code>OutputStream</code> to write to
@@ -2308,7 +2468,7 @@ public class IOUtils {
      */
     public static long copyLarge(final InputStream input, final OutputStream output, final byte[] buffer)
             throws IOException {
-        long count = 0;
+        long count = transferFile(input, output, -1);
         int n;
         while (EOF != (n = input.read(buffer))) {
             output.write(buffer, 0, n);
@@ -2317,6 +2477,54 @@ public class IOUtils {
         return count;
     }
 
+    /**
+     * Transfers the bytes of a <code>FileInputStream</code> to a <code>FileOutputStream</code>
+     * with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+     * so that they are copied by the operating system without going through the Java heap.
+     * <p>
+     * Only the bytes up to the size of the file when the transfer starts are transferred,
+     * and the position of the input is moved past them. The caller copies whatever
+     * follows them, as for a file that is still growing or a channel without a size.
+     * Any other stream, a subclass among them, and any input that is not seekable,
+     * such as a pipe, are left untouched.
+     *
+     * @param input the <code>InputStream</code> to read from
+     * @param output the <code>OutputStream</code> to write to
+     * @param length the maximum number of bytes to transfer, -ve means all
+     * @return the number of bytes transferred
+     * @throws IOException if an I/O error occurs
+     */
+    private static long transferFile(final InputStream input, final OutputStream output, final long length)
+            throws IOException {
+        if (input.getClass() != FileInputStream.class || output.getClass() != FileOutputStream.class) {
+            return 0;
+        }
+        final FileChannel source = ((FileInputStream) input).getChannel();
+        final FileChannel target = ((FileOutputStream) output).getChannel();
+        final long start;
+        long end;
+        try {
+            start = source.position();
+            end = source.size();
+        } catch (final IOException e) {
+            // not a seekable file, such as a pipe, a FIFO or a terminal
+            return 0;
+        }
+        if (length > 0 && length < end - start) {
+            end = start + length;
+        }
+        long position = start;
+        while (position < end) {
+            final long n = source.transferTo(position, end - position, target);
+            if (n <= 0) {
+                break;
+            }
+            position += n;
+        }
+        source.position(position);
+        return position - start;
+    }
+
     /**
      * Copies some or all bytes from a large (over 2GB) <code>InputStream</code> to an
      * <code>OutputStream</code>, optionally skipping input bytes.
@@ -2343,7 +2551,12 @@ public class IOUtils {
      */
     public static long copyLarge(final InputStream input, final OutputStream output, final long inputOffset,
                                  final long length) throws IOException {
-        return copyLarge(input, output, inputOffset, length, new byte[DEFAULT_BUFFER_SIZE]);
+        final byte[] buffer = takeByteBuffer();
+        try {
+            return copyLarge(input, output, inputOffset, length, buffer);
+        } finally {
+            releaseByteBuffer(buffer);
+        }
     }
 
     /**
@@ -2358,6 +2571,10 @@ public class IOUtils {
      * This means that the method may be considerably less efficient than using the actual skip implementation,
      * this is done to guarantee that the correct number of characters are skipped.
      * </p>
+     * <p>
+     * When copying a <code>FileInputStream</code> to a <code>FileOutputStream</code>
+     * the bytes are transferred between their channels, without going through the buffer.
+     * </p>
      *
      * @param input the <code>InputStream</code> to read from
      * @param output the <code>OutputStream</code> to write to
@@ -2378,13 +2595,16 @@ public class IOUtils {
         if (length == 0) {
             return 0;
         }
+        long totalRead = transferFile(input, output, length);
+        if (totalRead == length) {
+            return totalRead;
+        }
         final int bufferLength = buffer.length;
         int bytesToRead = bufferLength;
-        if (length > 0 && length < bufferLength) {
-            bytesToRead = (int) length;
+        if (length > 0 && length - totalRead < bufferLength) {
+            bytesToRead = (int) (length - totalRead);
         }
         int read;
-        long totalRead = 0;
         while (bytesToRead > 0 && EOF != (read = input.read(buffer, 0, bytesToRead))) {
             output.write(buffer, 0, read);
             totalRead += read;
@@ -2512,7 +2732,12 @@ public class IOUtils {
      * @since 1.3
      */
     public static long copyLarge(final Reader input, final Writer output) throws IOException {
-        return copyLarge(input, output, new char[DEFAULT_BUFFER_SIZE]);
+        final char[] buffer = takeCharBuffer();
+        try {
+            return copyLarge(input, output, buffer);
+        } finally {
+            releaseCharBuffer(buffer);
+        }
     }
 
     /**
@@ -2561,7 +2786,12 @@ public class IOUtils {
      */
     public static long copyLarge(final Reader input, final Writer output, final long inputOffset, final long length)
             throws IOException {
-        return copyLarge(input, output, inputOffset, length, new char[DEFAULT_BUFFER_SIZE]);
+        final char[] buffer = takeCharBuffer();
+        try {
+            return copyLarge(input, output, inputOffset, length, buffer);
+        } finally {
+            releaseCharBuffer(buffer);
+        }
     }
 
     /**
@@ -2705,8 +2935,10 @@ public class IOUtils {
      * Compares the contents of two Streams to determine if they are equal or
      * not.
      * <p>
-     * This method buffers the input internally using
-     * <code>BufferedInputStream</code> if they are not already buffered.
+     * This method reads the streams in blocks into an internal buffer, so
+     * there is no need to use a <code>BufferedInputStream</code>. Streams
+     * whose remaining length is known, such as <code>ByteArrayInputStream</code>,
+     * are not read when their lengths differ.
      *
      * @param input1 the first stream
      * @param input2 the second stream
@@ -2715,37 +2947,90 @@ public class IOUtils {
      * @throws NullPointerException if either input is null
      * @throws IOException          if an I/O error occurs
      */
-    public static boolean contentEquals(InputStream input1, InputStream input2)
+    public static boolean contentEquals(final InputStream input1, final InputStream input2)
             throws IOException {
         if (input1 == input2) {
             return true;
         }
-        if (!(input1 instanceof BufferedInputStream)) {
-            input1 = new BufferedInputStream(input1);
+        final long length1 = remainingLength(input1);
+        final long length2 = remainingLength(input2);
+        if (length1 != EOF && length2 != EOF && length1 != length2) {
+            return false;
         }
-        if (!(input2 instanceof BufferedInputStream)) {
-            input2 = new BufferedInputStream(input2);
+
+        // each stream is read into one half of the buffer
+        final byte[] buffer = takeByteBuffer();
+        try {
+            final int half = buffer.length / 2;
+            while (true) {
+                final int n1 = read(input1, buffer, 0, half);
+                final int n2 = read(input2, buffer, half, half);
+                // the blocks are read fully, so they are shorter only at the end of the stream
+                if (n1 != n2 || mismatch(buffer, 0, half, n1) != EOF) {
+                    return false;
+                }
+                if (n1 < half) {
+                    return true;
+                }
+            }
+        } finally {
+            releaseByteBuffer(buffer);
         }
+    }
+
+    /**
+     * Returns the number of bytes left in a stream, when the stream knows it exactly.
+     *
+     * @param input the stream
+     * @return the number of bytes left, or -1 if it is not known
+     */
+    private static long remainingLength(final InputStream input) {
+        // the available bytes of other streams are only an estimate
+        return input.getClass() == ByteArrayInputStream.class ? ((ByteArrayInputStream) input).available() : EOF;
+    }
 
-        int ch = input1.read();
-        while (EOF != ch) {
-            final int ch2 = input2.read();
-            if (ch != ch2) {
-                return false;
+    /**
+     * Finds the first difference between two ranges of a buffer.
+     *
+     * @param buffer the buffer
+     * @param offset1 the start of the first range
+     * @param offset2 the start of the second range
+     * @param length the length of the ranges
+     * @return the index in the ranges of the first difference, or -1 if they are equal
+     */
+    private static int mismatch(final byte[] buffer, final int offset1, final int offset2, final int length) {
+        for (int i = 0; i < length; i++) {
+            if (buffer[offset1 + i] != buffer[offset2 + i]) {
+                return i;
             }
-            ch = input1.read();
         }
+        return EOF;
+    }
 
-        final int ch2 = input2.read();
-        return ch2 == EOF;
+    /**
+     * Finds the first difference between two ranges of a buffer.
+     *
+     * @param buffer the buffer
+     * @param offset1 the start of the first range
+     * @param offset2 the start of the second range
+     * @param length the length of the ranges
+     * @return the index in the ranges of the first difference, or -1 if they are equal
+     */
+    private static int mismatch(final char[] buffer, final int offset1, final int offset2, final int length) {
+        for (int i = 0; i < length; i++) {
+            if (buffer[offset1 + i] != buffer[offset2 + i]) {
+                return i;
+            }
+        }
+        return EOF;
     }
 
     /**
      * Compares the contents of two Readers to determine if they are equal or
      * not.
      * <p>
-     * This method buffers the input internally using
-     * <code>BufferedReader</code> if they are not already buffered.
+     * This method reads the readers in blocks into an internal buffer, so
+     * there is no need to use a <code>BufferedReader</code>.
      *
      * @param input1 the first reader
      * @param input2 the second reader
@@ -2755,26 +3040,30 @@ public class IOUtils {
      * @throws IOException          if an I/O error occurs
      * @since 1.1
      */
-    public static boolean contentEquals(Reader input1, Reader input2)
+    public static boolean contentEquals(final Reader input1, final Reader input2)
             throws IOException {
         if (input1 == input2) {
             return true;
         }
 
-        input1 = toBufferedReader(input1);
-        input2 = toBufferedReader(input2);
-
-        int ch = input1.read();
-        while (EOF != ch) {
-            final int ch2 = input2.read();
-            if (ch != ch2) {
-                return false;
+        // each reader is read into one half of the buffer
+        final char[] buffer = takeCharBuffer();
+        try {
+            final int half = buffer.length / 2;
+            while (true) {
+                final int n1 = read(input1, buffer, 0, half);
+                final int n2 = read(input2, buffer, half, half);
+                // the blocks are read fully, so they are shorter only at the end of the reader
+                if (n1 != n2 || mismatch(buffer, 0, half, n1) != EOF) {
+                    return false;
+                }
+                if (n1 < half) {
+                    return true;
+                }
             }
-            ch = input1.read();
+        } finally {
+            releaseCharBuffer(buffer);
         }
-
-        final int ch2 = input2.read();
-        return ch2 == EOF;
     }
 
     /**
@@ -2833,18 +3122,11 @@ public class IOUtils {
         if (toSkip < 0) {
             throw new IllegalArgumentException("Skip count must be non-negative, actual: " + toSkip);
         }
-        /*
-         * N.B. no need to synchronize this because: - we don't care if the buffer is created multiple times (the data
-         * is ignored) - we always use the same size buffer, so if it it is recreated it will still be OK (if the buffer
-         * size were variable, we would need to synch. to ensure some other thread did not create a smaller one)
-         */
-        if (SKIP_BYTE_BUFFER == null) {
-            SKIP_BYTE_BUFFER = new byte[SKIP_BUFFER_SIZE];
-        }
+        final byte[] skipBuffer = SKIP_BYTE_BUFFER.get();
         long remain = toSkip;
         while (remain > 0) {
             // See https://issues.apache.org/jira/browse/IO-203 for why we use read() rather than delegating to skip()
-            final long n = input.read(SKIP_BYTE_BUFFER, 0, (int) Math.min(remain, SKIP_BUFFER_SIZE));
+            final long n = input.read(skipBuffer, 0, (int) Math.min(remain, SKIP_BUFFER_SIZE));
             if (n < 0) { // EOF
                 break;
             }
@@ -2908,18 +3190,11 @@ public class IOUtils {
         if (toSkip < 0) {
             throw new IllegalArgumentException("Skip count must be non-negative, actual: " + toSkip);
         }
-        /*
-         * N.B. no need to synchronize this because: - we don't care if the buffer is created multiple times (the data
-         * is ignored) - we always use the same size buffer, so if it it is recreated it will still be OK (if the buffer
-         * size were variable, we would need to synch. to ensure some other thread did not create a smaller one)
-         */
-        if (SKIP_CHAR_BUFFER == null) {
-            SKIP_CHAR_BUFFER = new char[SKIP_BUFFER_SIZE];
-        }
+        final char[] skipBuffer = SKIP_CHAR_BUFFER.get();
         long remain = toSkip;
         while (remain > 0) {
             // See https://issues.apache.org/jira/browse/IO-203 for why we use read() rather than delegating to skip()
-            final long n = input.read(SKIP_CHAR_BUFFER, 0, (int) Math.min(remain, SKIP_BUFFER_SIZE));
+            final long n = input.read(skipBuffer, 0, (int) Math.min(remain, SKIP_BUFFER_SIZE));
             if (n < 0) { // EOF
                 break;
             }
@@ -0,0 +1,154 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import classes.Calculator;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AssignmentRunnerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void defaultsAreTakenFromTheBuildDirectory() {
+        List<AssignmentRunner.Options> modules = AssignmentRunner.parse(new String[]{"-t", "core/target"});
+
+        assertEquals(1, modules.size());
+        AssignmentRunner.Options options = modules.get(0);
+        assertEquals("src/main/java/org", options.inputPath);
+        assertEquals(new File("core/target/site/junco").getPath(), options.getCoveragePath());
+        assertEquals(new File("core/target/classes").getPath(), options.getBuiltClassesPath());
+        assertEquals(1, options.parallelism);
+        assertFalse(options.pruneLines);
+        assertEquals(Arrays.asList("org.apache.commons.io."), options.bundle);
+    }
+
+    @Test
+    public void modulesStartWithTheOptionsOfThePreviousOne() {
+        List<AssignmentRunner.Options> modules = AssignmentRunner.parse(new String[]{
+            "-i", "a/src", "-o", "a/out", "-t", "a/target", "-j", "4", "-m", "lines", "--bundle", "a.", "--bundle", "b.",
+            "--",
+            "-i", "b/src", "-o", "b/out", "-t", "b/target", "-c", "b/coverage"});
+
+        assertEquals(2, modules.size());
+        AssignmentRunner.Options first = modules.get(0);
+        assertEquals("a/out", first.outputPath);
+        assertEquals(new File("a/target/classes").getPath(), first.getBuiltClassesPath());
+        assertEquals(Arrays.asList("a.", "b."), first.bundle);
+
+        AssignmentRunner.Options second = modules.get(1);
+        assertEquals("b/src", second.inputPath);
+        assertEquals("b/coverage", second.getCoveragePath());
+        assertEquals(new File("b/target/classes").getPath(), second.getBuiltClassesPath());
+        assertEquals(4, second.parallelism);
+        assertTrue(second.pruneLines);
+        assertEquals(Arrays.asList("a.", "b."), second.bundle);
+    }
+
+    @Test
+    public void theOtherReductionsAreOptions() {
+        List<AssignmentRunner.Options> modules = AssignmentRunner.parse(new String[]{
+            "--entry-point", "**#main([Ljava/lang/String;)V", "--entry-point", "a.Api", "--jar", "stub",
+            "--changed", "a.Api#run",
+            "--",
+            "--jar", "remove"});
+
+        AssignmentRunner.Options first = modules.get(0);
+        assertEquals(Arrays.asList("**#main([Ljava/lang/String;)V", "a.Api"), first.entryPoints);
+        assertEquals(BytecodeReducer.Mode.STUB, first.jarMode);
+        assertEquals(Arrays.asList("a.Api#run"), first.changes);
+
+        AssignmentRunner.Options second = modules.get(1);
+        assertEquals(first.entryPoints, second.entryPoints);
+        assertEquals(BytecodeReducer.Mode.REMOVE, second.jarMode);
+
+        AssignmentRunner.Options defaults = AssignmentRunner.parse(new String[0]).get(0);
+        assertTrue(defaults.entryPoints.isEmpty());
+        assertNull(defaults.jarMode);
+        assertTrue(defaults.changes.isEmpty());
+    }
+
+    @Test
+    public void theJarAndTheMatrixAreWrittenToTheBuildDirectory() throws Exception {
+        File target = folder.newFolder("target");
+        CoverageFixture fixture = new CoverageFixture(target).addClass(Calculator.class);
+        fixture.writeExecFile("addTest", Calculator.class, "add");
+        File input = new File(folder.getRoot(), "src");
+        new File(input, "classes").mkdirs();
+        Files.write(new File(input, "classes/Calculator.java").toPath(), (""
+                + "package classes;\n"
+                + "public class Calculator {\n"
+                + "    public double add(double number1, double number2) {\n"
+                + "        return number1 + number2;\n"
+                + "    }\n"
+                + "    public double multiply(double number1, double number2) {\n"
+                + "        return number1 * number2;\n"
+                + "    }\n"
+                + "}\n").getBytes(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(out, true));
+        try {
+            AssignmentRunner.run(AssignmentRunner.parse(new String[]{
+                "-i", input.getPath(), "-o", new File(folder.getRoot(), "output").getPath(), "-t", target.getPath(),
+                "-c", fixture.getCoveragePath(), "-b", fixture.getClassesPath(), "--bundle", "classes.", "-q",
+                "--jar", "remove", "--changed", "classes.Calculator#add"}).get(0));
+        } finally {
+            System.setOut(stdout);
+        }
+
+        File original = new File(target, "original.jar");
+        File jar = new File(target, "reduced.jar");
+        assertTrue(jar.length() < original.length());
+        String printed = out.toString();
+        assertTrue(printed.contains(original + ": " + original.length() + " bytes"));
+        assertTrue(printed.contains(jar + ": " + jar.length() + " bytes ("));
+        assertTrue(printed.contains("% smaller)"));
+        TestImpactMatrix matrix = TestImpactMatrix.load(new File(target, "junco-matrix.bin"));
+        assertEquals("[addTest]", matrix.selectTests(Arrays.asList("classes.Calculator#add")).toString());
+        String reduced = new String(Files.readAllBytes(new File(folder.getRoot(), "output/classes/Calculator.java").toPath()), StandardCharsets.UTF_8);
+        assertFalse(reduced.contains("double multiply("));
+        assertTrue(reduced.contains("double add("));
+    }
+
+    @Test
+    public void theOldArgumentsAreAccepted() {
+        AssignmentRunner.Options options = AssignmentRunner.parse(new String[]{"8", "lines"}).get(0);
+
+        assertEquals(8, options.parallelism);
+        assertTrue(options.pruneLines);
+    }
+
+    @Test
+    public void invalidArgumentsAreRejected() {
+        String[][] invalid = {
+            {"-j", "0"},
+            {"-m", "classes"},
+            {"--jar", "REMOVE"},
+            {"--changed"},
+            {"--output"},
+            {"--verbose"},
+            {"4", "fields"}
+        };
+        for (String[] args : invalid) {
+            try {
+                AssignmentRunner.parse(args);
+                fail(Arrays.toString(args));
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        assertTrue(AssignmentRunner.parse(new String[]{"-h"}).isEmpty());
+    }
+
+}
@@ -0,0 +1,206 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.jacoco.core.analysis.ICounter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BranchPrunerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void branchesThatWereNeverExecutedAreReplaced() throws Exception {
+        File input = folder.newFolder("src");
+        File dir = new File(input, "sample");
+        dir.mkdirs();
+        Files.write(new File(dir, "Branches.java").toPath(), (""
+                + "package sample;\n"
+                + "public class Branches {\n"
+                + "    public int sign(int x) {\n"
+                + "        if (x < 0) {\n"
+                + "            return -1;\n"
+                + "        }\n"
+                + "        if (x == 0) {\n"
+                + "            x = 1;\n"
+                + "        } else {\n"
+                + "            x = 2;\n"
+                + "        }\n"
+                + "        try {\n"
+                + "            x = Integer.parseInt(\"\" + x);\n"
+                + "        } catch (NumberFormatException e) {\n"
+                + "            x = 3;\n"
+                + "        }\n"
+                + "        return x;\n"
+                + "    }\n"
+                + "}\n").getBytes(StandardCharsets.UTF_8));
+
+        // the coverage of sign(5)
+        CoverageIndex index = new CoverageIndex();
+        index.add("sample/Branches", "sign", "(I)I");
+        LineCoverage lines = new LineCoverage();
+        for (int line : new int[]{4, 7, 10, 13, 17}) {
+            lines.add("sample/Branches", line, ICounter.FULLY_COVERED);
+        }
+        for (int line : new int[]{5, 8, 14, 15}) {
+            lines.add("sample/Branches", line, ICounter.NOT_COVERED);
+        }
+        File output = new File(folder.getRoot(), "output");
+        ParallelSpoonRunner runner = new ParallelSpoonRunner(input.getPath(), output.getPath(), "missing", index, 1);
+        runner.setCoveredLines(lines);
+
+        runner.run();
+
+        File reduced = new File(output, "sample/Branches.java");
+        String source = new String(Files.readAllBytes(reduced.toPath()), StandardCharsets.UTF_8);
+        assertTrue(source.contains("3 branch(es) of method \"sign\""));
+        assertFalse(source.contains("return -1"));
+        assertFalse(source.contains("x = 1"));
+        assertTrue(source.contains("x = 2"));
+        assertFalse(source.contains("x = 3"));
+
+        // the code after the pruned branches is still reachable
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        File classes = folder.newFolder("classes");
+        assertEquals(source, 0, compiler.run(null, null, null, "-d", classes.getPath(), reduced.getPath()));
+    }
+
+    @Test
+    public void breakThatExitsALoopIsKept() throws Exception {
+        String source = reduce(""
+                + "package sample;\n"
+                + "public class Branches {\n"
+                + "    public int loop(int x) {\n"
+                + "        while (true) {\n"
+                + "            if (x > 10) {\n"
+                + "                break;\n"
+                + "            }\n"
+                + "            if (x > 5) {\n"
+                + "                return x;\n"
+                + "            }\n"
+                + "            x++;\n"
+                + "        }\n"
+                + "        return -1;\n"
+                + "    }\n"
+                + "}\n", new String[]{"loop", "(I)I"}, new int[]{4, 5, 8, 9, 11}, new int[]{6, 13});
+
+        // the break is the only exit of the loop, without it the last return is unreachable
+        assertTrue(source.contains("break;"));
+        assertTrue(source.contains("return -1"));
+    }
+
+    @Test
+    public void branchThatEndsInAnIfElseIsReplacedWithAThrow() throws Exception {
+        String source = reduce(""
+                + "package sample;\n"
+                + "public class Branches {\n"
+                + "    public int sign(int x) {\n"
+                + "        if (x > 0) {\n"
+                + "            return 1;\n"
+                + "        } else {\n"
+                + "            if (x == 0) {\n"
+                + "                return 0;\n"
+                + "            } else {\n"
+                + "                return -1;\n"
+                + "            }\n"
+                + "        }\n"
+                + "    }\n"
+                + "}\n", new String[]{"sign", "(I)I"}, new int[]{4, 5}, new int[]{7, 8, 10});
+
+        // the else arm cannot complete normally, neither can its replacement
+        assertTrue(source.contains("1 branch(es) of method \"sign\""));
+        assertFalse(source.contains("return 0"));
+    }
+
+    @Test
+    public void branchThatEndsInABlockThatReturnsIsReplacedWithAThrow() throws Exception {
+        String source = reduce(""
+                + "package sample;\n"
+                + "public class Branches {\n"
+                + "    public int locked(int x) {\n"
+                + "        if (x > 0) {\n"
+                + "            return x;\n"
+                + "        } else {\n"
+                + "            synchronized (this) {\n"
+                + "                return -x;\n"
+                + "            }\n"
+                + "        }\n"
+                + "    }\n"
+                + "    public int parse(String s) {\n"
+                + "        if (s == null) {\n"
+                + "            return 0;\n"
+                + "        } else {\n"
+                + "            try {\n"
+                + "                return Integer.parseInt(s);\n"
+                + "            } finally {\n"
+                + "                s = null;\n"
+                + "            }\n"
+                + "        }\n"
+                + "    }\n"
+                + "}\n", new String[]{"locked", "(I)I", "parse", "(Ljava/lang/String;)I"},
+                new int[]{4, 5, 13, 14}, new int[]{7, 8, 16, 17, 19});
+
+        assertFalse(source.contains("return -x"));
+        assertFalse(source.contains("parseInt"));
+    }
+
+    /**
+     * Prunes the branches of a class and checks that the reduced class
+     * compiles
+     *
+     * @param code The source of sample.Branches
+     * @param methods The names and descriptors of the executed methods
+     * @param covered The lines that were executed
+     * @param notCovered The lines that were not executed
+     * @return The reduced source
+     */
+    private String reduce(String code, String[] methods, int[] covered, int[] notCovered) throws Exception {
+        File input = folder.newFolder("src");
+        File dir = new File(input, "sample");
+        dir.mkdirs();
+        Files.write(new File(dir, "Branches.java").toPath(), code.getBytes(StandardCharsets.UTF_8));
+
+        CoverageIndex index = new CoverageIndex();
+        for (int i = 0; i < methods.length; i += 2) {
+            index.add("sample/Branches", methods[i], methods[i + 1]);
+        }
+        LineCoverage lines = new LineCoverage();
+        for (int line : covered) {
+            lines.add("sample/Branches", line, ICounter.FULLY_COVERED);
+        }
+        for (int line : notCovered) {
+            lines.add("sample/Branches", line, ICounter.NOT_COVERED);
+        }
+        File output = new File(folder.getRoot(), "output");
+        ParallelSpoonRunner runner = new ParallelSpoonRunner(input.getPath(), output.getPath(), "missing", index, 1);
+        runner.setCoveredLines(lines);
+
+        runner.run();
+
+        File reduced = new File(output, "sample/Branches.java");
+        String source = new String(Files.readAllBytes(reduced.toPath()), StandardCharsets.UTF_8);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        File classes = folder.newFolder("classes");
+        assertEquals(source, 0, compiler.run(null, null, null, "-d", classes.getPath(), reduced.getPath()));
+        return source;
+    }
+
+    @Test
+    public void linesOfSeveralTestsAreMerged() {
+        LineCoverage lines = new LineCoverage();
+        lines.add("sample.Branches", 4, ICounter.NOT_COVERED);
+        lines.add("sample.Branches", 4, ICounter.FULLY_COVERED);
+
+        assertEquals(ICounter.PARTLY_COVERED, lines.getStatus("sample.Branches", 4));
+        assertEquals(ICounter.EMPTY, lines.getStatus("sample.Branches", 100));
+        assertFalse(lines.hasLines("sample.Other"));
+    }
+
+}
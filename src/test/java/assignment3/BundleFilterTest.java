@@ -0,0 +1,69 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class BundleFilterTest {
+
+    @Test
+    public void emptyBundleContainsEveryClass() {
+        BundleFilter filter = new BundleFilter(Collections.<String>emptyList());
+
+        assertTrue(filter.isEmpty());
+        assertTrue(filter.contains("org.apache.commons.io.IOUtils"));
+    }
+
+    @Test
+    public void classNamesMatchTheClassAndItsNestedClasses() {
+        BundleFilter filter = new BundleFilter(Arrays.asList("classes.Calculator"));
+
+        assertTrue(filter.contains("classes.Calculator"));
+        assertTrue(filter.contains("classes/Calculator$1"));
+        assertFalse(filter.contains("classes.Calculator2"));
+    }
+
+    @Test
+    public void packagePrefixesMatchTheSubPackages() {
+        BundleFilter filter = new BundleFilter(Arrays.asList("org.apache.commons.io."));
+
+        assertTrue(filter.contains("org.apache.commons.io.IOUtils"));
+        assertTrue(filter.contains("org/apache/commons/io/input/NullReader"));
+        assertFalse(filter.contains("org.apache.commons.iox.Foo"));
+    }
+
+    @Test
+    public void globsMatchWithinOrAcrossPackages() {
+        BundleFilter filter = new BundleFilter(Arrays.asList("org.apache.commons.io.*Utils", "classes.**"));
+
+        assertTrue(filter.contains("org.apache.commons.io.FileUtils"));
+        assertFalse(filter.contains("org.apache.commons.io.input.FooUtils"));
+        assertTrue(filter.contains("classes.sub.Calculator"));
+        assertFalse(filter.contains("testclasses.CalculatorTest"));
+    }
+
+    @Test
+    public void shardsSplitTheBundleWithTheNestedClasses() {
+        BundleFilter filter = new BundleFilter(Arrays.asList("org.apache.commons.io."));
+        BundleFilter[] shards = {filter.shard(0, 3), filter.shard(1, 3), filter.shard(2, 3)};
+        String[] names = {"org.apache.commons.io.IOUtils", "org.apache.commons.io.FileUtils",
+            "org.apache.commons.io.FilenameUtils", "org.apache.commons.io.input.NullReader"};
+
+        for (String name : names) {
+            int count = 0;
+            for (BundleFilter shard : shards) {
+                if (shard.contains(name)) {
+                    count++;
+                    assertTrue(shard.contains(name + "$1"));
+                }
+            }
+            assertEquals(1, count);
+        }
+        for (BundleFilter shard : shards) {
+            assertFalse(shard.isEmpty());
+            assertFalse(shard.contains("classes.Calculator"));
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import classes.Calculator;
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BytecodeReducerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void uncoveredMethodsAreRemoved() throws Exception {
+        Class<?> reduced = reduce(BytecodeReducer.Mode.REMOVE);
+
+        Object calculator = reduced.newInstance();
+        assertEquals(3.0, (Double) reduced.getMethod("add", double.class, double.class).invoke(calculator, 1.0, 2.0), 0.0);
+        for (Method method : reduced.getDeclaredMethods()) {
+            assertEquals("add", method.getName());
+        }
+    }
+
+    @Test
+    public void uncoveredMethodsAreStubbed() throws Exception {
+        Class<?> reduced = reduce(BytecodeReducer.Mode.STUB);
+
+        Object calculator = reduced.newInstance();
+        assertEquals(3.0, (Double) reduced.getMethod("add", double.class, double.class).invoke(calculator, 1.0, 2.0), 0.0);
+        try {
+            reduced.getMethod("divide", double.class, double.class).invoke(calculator, 1.0, 2.0);
+            fail();
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof UnsupportedOperationException);
+        }
+    }
+
+    @Test
+    public void classesWithoutCoverageAreKept() throws Exception {
+        BytecodeReducer reducer = new BytecodeReducer(new CoverageIndex(), BytecodeReducer.Mode.REMOVE);
+        CoverageFixture fixture = new CoverageFixture(folder.getRoot()).addClass(Calculator.class);
+
+        reducer.reduce(new File(fixture.getClassesPath()), new File(folder.getRoot(), "reduced.jar"));
+
+        assertEquals(0, reducer.getReducedClasses());
+        assertEquals(0, reducer.getReducedMethods());
+    }
+
+    /**
+     * Reduces Calculator with the coverage of a test that only calls add and
+     * loads the reduced class from the jar
+     */
+    private Class<?> reduce(BytecodeReducer.Mode mode) throws Exception {
+        CoverageFixture fixture = new CoverageFixture(folder.getRoot()).addClass(Calculator.class);
+        fixture.writeExecFile("addTest", Calculator.class, "add");
+        JuncoProcessor processor = new JuncoProcessor(Collections.<String>emptyList(), fixture.getCoveragePath(), fixture.getClassesPath());
+        BytecodeReducer reducer = new BytecodeReducer(processor.processIndex(), mode);
+        File jar = new File(folder.getRoot(), "reduced.jar");
+
+        reducer.reduce(new File(fixture.getClassesPath()), jar);
+
+        assertEquals(1, reducer.getReducedClasses());
+        assertEquals(3, reducer.getReducedMethods());
+        URLClassLoader loader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, null);
+        return loader.loadClass(Calculator.class.getName());
+    }
+
+}
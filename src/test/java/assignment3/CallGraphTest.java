@@ -0,0 +1,169 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CallGraphTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String SHAPE = Shape.class.getName();
+
+    private static final String CIRCLE = Circle.class.getName();
+
+    private static final String SQUARE = Square.class.getName();
+
+    private static final String CALLER = Caller.class.getName();
+
+    private static final String NAMES = Names.class.getName();
+
+    private CoverageFixture fixture;
+
+    private CallGraph graph;
+
+    @Before
+    public void instantiate() throws Exception {
+        fixture = new CoverageFixture(folder.getRoot())
+                .addClass(Shape.class)
+                .addClass(Circle.class)
+                .addClass(Square.class)
+                .addClass(Caller.class)
+                .addClass(Names.class);
+        graph = CallGraph.build(ClassFileCache.load(fixture.getClassesPath()));
+    }
+
+    @Test
+    public void interfaceCallsReachEveryImplementation() {
+        CoverageIndex covered = new CoverageIndex();
+        covered.add(CALLER, "total", "([L" + SHAPE.replace('.', '/') + ";)D");
+
+        CoverageIndex reachable = graph.reachable(covered, Collections.<String>emptyList());
+
+        assertTrue(reachable.isCovered(CALLER, "total"));
+        assertTrue(reachable.isCovered(CIRCLE, "area", "()D"));
+        assertTrue(reachable.isCovered(SQUARE, "area", "()D"));
+        assertTrue(reachable.isCovered(SQUARE, "side", "()D"));
+        assertFalse(reachable.isCovered(CALLER, "unused"));
+        assertFalse(reachable.isCovered(CIRCLE, "radius"));
+    }
+
+    @Test
+    public void overridesOfLibraryMethodsAreKept() {
+        CoverageIndex covered = new CoverageIndex();
+        covered.add(CIRCLE, "area", "()D");
+
+        CoverageIndex reachable = graph.reachable(covered, Collections.<String>emptyList());
+
+        assertTrue(reachable.isCovered(CIRCLE, "toString", "()Ljava/lang/String;"));
+        assertFalse(reachable.hasCoverage(SQUARE));
+    }
+
+    @Test
+    public void entryPointsAreRoots() {
+        CoverageIndex reachable = graph.reachable(new CoverageIndex(), Arrays.asList("**$Caller#unused", "**$Circle#radius()D"));
+
+        assertTrue(reachable.isCovered(CALLER, "unused"));
+        assertTrue(reachable.isCovered(CIRCLE, "radius"));
+        assertFalse(reachable.isCovered(CALLER, "total"));
+    }
+
+    @Test
+    public void staticFieldsReachTheStaticInitializer() {
+        CoverageIndex covered = new CoverageIndex();
+        covered.add(CALLER, "count", "()I");
+
+        CoverageIndex reachable = graph.reachable(covered, Collections.<String>emptyList());
+
+        assertTrue(reachable.isCovered(NAMES, "<clinit>", "()V"));
+        assertTrue(reachable.isCovered(NAMES, "load", "()Ljava/util/List;"));
+        assertFalse(reachable.isCovered(NAMES, "unused"));
+    }
+
+    @Test
+    public void reducedJarKeepsTheReachableMethods() throws Exception {
+        CoverageIndex covered = new CoverageIndex();
+        covered.add(CALLER, "total", "([L" + SHAPE.replace('.', '/') + ";)D");
+        BytecodeReducer coverageOnly = new BytecodeReducer(covered, BytecodeReducer.Mode.REMOVE);
+        BytecodeReducer reachableOnly = new BytecodeReducer(graph.reachable(covered, Collections.<String>emptyList()), BytecodeReducer.Mode.REMOVE);
+
+        coverageOnly.reduce(new File(fixture.getClassesPath()), new File(folder.getRoot(), "coverage.jar"));
+        reachableOnly.reduce(new File(fixture.getClassesPath()), new File(folder.getRoot(), "reachable.jar"));
+
+        // with the coverage only Caller is reduced, with the call graph Circle is reduced too
+        assertEquals(2, coverageOnly.getReducedMethods());
+        assertEquals(3, reachableOnly.getReducedMethods());
+    }
+
+    public interface Shape {
+
+        double area();
+    }
+
+    public static class Circle implements Shape {
+
+        @Override
+        public double area() {
+            return 3.14;
+        }
+
+        public double radius() {
+            return 1;
+        }
+
+        @Override
+        public String toString() {
+            return "circle";
+        }
+    }
+
+    public static class Square implements Shape {
+
+        @Override
+        public double area() {
+            return side() * side();
+        }
+
+        private double side() {
+            return 2;
+        }
+    }
+
+    public static class Caller {
+
+        public double total(Shape[] shapes) {
+            double total = 0;
+            for (Shape shape : shapes) {
+                total += shape.area();
+            }
+            return total;
+        }
+
+        public void unused() {
+        }
+
+        public int count() {
+            return Names.ALL.size();
+        }
+    }
+
+    public static class Names {
+
+        static final List<String> ALL = load();
+
+        private static List<String> load() {
+            return Arrays.asList("circle", "square");
+        }
+
+        public void unused() {
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import classes.Calculator;
+import classes.Calculator2;
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import org.jacoco.core.analysis.ICounter;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CoverageCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CoverageFixture fixture;
+
+    private File index;
+
+    @Before
+    public void instantiate() throws Exception {
+        fixture = new CoverageFixture(folder.getRoot())
+                .addClass(Calculator.class)
+                .addClass(Calculator2.class);
+        fixture.writeExecFile("addTest", Calculator.class, "add");
+        fixture.writeExecFile("multiplyTest", Calculator.class, "multiply");
+        fixture.writeExecFile("substractTest", Calculator2.class, "substract");
+        index = new File(folder.getRoot(), "target/junco-coverage.idx");
+    }
+
+    @Test
+    public void secondRunReusesEveryClass() throws Exception {
+        CoverageCache first = CoverageCache.open(index);
+        HashMap<String, Collection<String>> firstResult = processUnion(first);
+        assertEquals(0, first.getHits());
+        assertEquals(3, first.getMisses());
+        assertTrue(index.exists());
+
+        CoverageCache second = CoverageCache.open(index);
+        HashMap<String, Collection<String>> secondResult = processUnion(second);
+        assertEquals(3, second.getHits());
+        assertEquals(0, second.getMisses());
+
+        assertEquals(processUnion(null), firstResult);
+        assertEquals(firstResult, secondResult);
+    }
+
+    @Test
+    public void changedCoverageFileIsAnalyzedAgain() throws Exception {
+        processUnion(CoverageCache.open(index));
+
+        fixture.writeExecFile("multiplyTest", Calculator.class, "multiply", "divide");
+
+        CoverageCache cache = CoverageCache.open(index);
+        HashMap<String, Collection<String>> result = processUnion(cache);
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertTrue(result.get("Calculator").contains("divide"));
+    }
+
+    @Test
+    public void classesNotUsedInARunAreDropped() throws Exception {
+        processUnion(CoverageCache.open(index));
+
+        File calculator2 = new File(fixture.getClassesPath(), "classes/Calculator2.class");
+        assertTrue(calculator2.delete());
+        CoverageCache withoutCalculator2 = CoverageCache.open(index);
+        processUnion(withoutCalculator2);
+        assertEquals(2, withoutCalculator2.getHits());
+
+        // the record of the class was not saved by the run without it
+        fixture.addClass(Calculator2.class);
+        CoverageCache cache = CoverageCache.open(index);
+        processUnion(cache);
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void linesAreTakenFromTheCache() throws Exception {
+        JuncoProcessor uncached = new JuncoProcessor(Collections.<String>emptyList(), fixture.getCoveragePath(), fixture.getClassesPath());
+        LineCoverage expected = uncached.processLines();
+
+        for (int run = 0; run < 2; run++) {
+            JuncoProcessor processor = new JuncoProcessor(Collections.<String>emptyList(), fixture.getCoveragePath(), fixture.getClassesPath());
+            CoverageCache cache = CoverageCache.open(index);
+            processor.setCoverageCache(cache);
+            LineCoverage lines = new LineCoverage();
+            processor.processIndex(lines);
+            assertEquals(run == 0 ? 0 : 3, cache.getHits());
+
+            for (int line = 0; line < 40; line++) {
+                int status = expected.getStatus("classes.Calculator", line);
+                int cached = lines.getStatus("classes.Calculator", line);
+                if (status == ICounter.EMPTY || status == ICounter.NOT_COVERED) {
+                    assertEquals(status, cached);
+                } else {
+                    // the lines executed by some of the files only are partly covered
+                    assertTrue((cached & ICounter.FULLY_COVERED) != 0);
+                }
+            }
+        }
+    }
+
+    private HashMap<String, Collection<String>> processUnion(CoverageCache cache) throws Exception {
+        JuncoProcessor processor = new JuncoProcessor(Collections.<String>emptyList(), fixture.getCoveragePath(), fixture.getClassesPath());
+        processor.setCoverageCache(cache);
+        return processor.processUnion();
+    }
+
+}
@@ -0,0 +1,171 @@
+package assignment3;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+
+/**
+ * Builds a small Junco-like layout for the tests: a directory with the built
+ * classes and a directory with one .exec file per test case. The .exec files
+ * are recorded by running JaCoCo-instrumented copies of the classes.
+ *
+ * @author Cesar Soto-Valero
+ */
+public class CoverageFixture {
+
+    /**
+     * Directory with the built classes
+     */
+    private final File classesDir;
+
+    /**
+     * Directory with the coverage files
+     */
+    private final File coverageDir;
+
+    /**
+     * Creates the fixture in the given directory
+     *
+     * @param root The root directory of the fixture
+     */
+    public CoverageFixture(File root) {
+        this.classesDir = new File(root, "classes");
+        this.coverageDir = new File(root, "junco");
+        classesDir.mkdirs();
+        coverageDir.mkdirs();
+    }
+
+    /**
+     * @return Path to the built classes
+     */
+    public String getClassesPath() {
+        return classesDir.getPath();
+    }
+
+    /**
+     * @return Path to the coverage files
+     */
+    public String getCoveragePath() {
+        return coverageDir.getPath();
+    }
+
+    /**
+     * Copies the class file of a type into the built classes
+     *
+     * @param type The class to copy
+     * @return The fixture
+     * @throws IOException
+     */
+    public CoverageFixture addClass(Class<?> type) throws IOException {
+        File target = new File(classesDir, resourceName(type));
+        target.getParentFile().mkdirs();
+        Files.write(target.toPath(), classBytes(type));
+        return this;
+    }
+
+    /**
+     * Records the coverage of a test case that calls the given methods on a
+     * new instance of the type
+     *
+     * @param testName The name of the test case, used as the name of the file
+     * @param type The class under test
+     * @param methodNames The methods called by the test case
+     * @return The .exec file
+     * @throws Exception
+     */
+    public File writeExecFile(String testName, Class<?> type, String... methodNames) throws Exception {
+        LoggerRuntime runtime = new LoggerRuntime();
+        RuntimeData data = new RuntimeData();
+        runtime.startup(data);
+        try {
+            byte[] instrumented = new Instrumenter(runtime).instrument(classBytes(type), type.getName());
+            Class<?> copy = new FixtureClassLoader(type.getName(), instrumented).loadClass(type.getName());
+            Object instance = copy.newInstance();
+            for (String methodName : methodNames) {
+                invoke(instance, methodName);
+            }
+
+            File execFile = new File(coverageDir, testName + ".exec");
+            try (OutputStream out = new FileOutputStream(execFile)) {
+                ExecutionDataWriter writer = new ExecutionDataWriter(out);
+                data.setSessionId(testName);
+                data.collect(writer, writer, false);
+            }
+            return execFile;
+        } finally {
+            runtime.shutdown();
+        }
+    }
+
+    /**
+     * Calls the first method with the given name, with default arguments
+     */
+    private static void invoke(Object instance, String methodName) throws Exception {
+        for (Method method : instance.getClass().getMethods()) {
+            if (method.getName().equals(methodName)) {
+                Class<?>[] types = method.getParameterTypes();
+                Object[] args = new Object[types.length];
+                for (int i = 0; i < types.length; i++) {
+                    args[i] = types[i] == double.class ? 1.0 : types[i] == int.class ? (Object) 1 : null;
+                }
+                method.invoke(instance, args);
+                return;
+            }
+        }
+        throw new NoSuchMethodException(methodName);
+    }
+
+    private static String resourceName(Class<?> type) {
+        return type.getName().replace('.', '/') + ".class";
+    }
+
+    private static byte[] classBytes(Class<?> type) throws IOException {
+        try (InputStream in = type.getClassLoader().getResourceAsStream(resourceName(type))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Defines the instrumented copy of a class before its parent does
+     */
+    private static class FixtureClassLoader extends ClassLoader {
+
+        private final String name;
+
+        private final byte[] bytes;
+
+        FixtureClassLoader(String name, byte[] bytes) {
+            super(CoverageFixture.class.getClassLoader());
+            this.name = name;
+            this.bytes = bytes;
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String className, boolean resolve) throws ClassNotFoundException {
+            if (className.equals(name)) {
+                Class<?> c = findLoadedClass(className);
+                if (c == null) {
+                    c = defineClass(className, bytes, 0, bytes.length);
+                }
+                return c;
+            }
+            return super.loadClass(className, resolve);
+        }
+    }
+
+}
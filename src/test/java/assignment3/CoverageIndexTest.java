@@ -0,0 +1,90 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import classes.Calculator;
+import java.io.File;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CoverageIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void classesWithTheSameSimpleNameDoNotCollide() {
+        CoverageIndex index = new CoverageIndex();
+        index.add("org/apache/commons/io/input/NullReader", "read", "()I");
+
+        assertTrue(index.hasCoverage("org.apache.commons.io.input.NullReader"));
+        assertTrue(index.isCovered("org.apache.commons.io.input.NullReader", "read", "()I"));
+        assertFalse(index.hasCoverage("org.apache.commons.io.output.NullReader"));
+        assertFalse(index.isCovered("org.apache.commons.io.output.NullReader", "read", "()I"));
+    }
+
+    @Test
+    public void overloadsAreToldApart() {
+        CoverageIndex index = new CoverageIndex();
+        index.add("org.apache.commons.io.IOUtils", "write", "([BLjava/io/OutputStream;)V");
+
+        assertTrue(index.isCovered("org.apache.commons.io.IOUtils", "write"));
+        assertTrue(index.isCovered("org.apache.commons.io.IOUtils", "write", "([BLjava/io/OutputStream;)V"));
+        assertFalse(index.isCovered("org.apache.commons.io.IOUtils", "write", "([CLjava/io/Writer;)V"));
+        assertFalse(index.isCovered("org.apache.commons.io.IOUtils", "copy"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void indexGrowsPastItsInitialCapacity() {
+        CoverageIndex index = new CoverageIndex();
+        for (int i = 0; i < 1000; i++) {
+            index.add("a.B", "m" + i, "()V");
+            index.add("a.B", "m" + i, "()V");
+        }
+
+        assertEquals(1000, index.size());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(index.isCovered("a.B", "m" + i, "()V"));
+        }
+        assertFalse(index.isCovered("a.B", "m1000", "()V"));
+    }
+
+    @Test
+    public void processorIndexesTheCoveredMethods() throws Exception {
+        CoverageFixture fixture = new CoverageFixture(folder.getRoot()).addClass(Calculator.class);
+        fixture.writeExecFile("addTest", Calculator.class, "add");
+        JuncoProcessor processor = new JuncoProcessor(Collections.<String>emptyList(), fixture.getCoveragePath(), fixture.getClassesPath());
+
+        CoverageIndex index = processor.processIndex();
+
+        assertTrue(index.isCovered("classes.Calculator", "add", "(DD)D"));
+        assertTrue(index.isCovered("classes.Calculator", "<init>", "()V"));
+        assertFalse(index.isCovered("classes.Calculator", "divide"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void indexesAreSavedAndMerged() throws Exception {
+        CoverageIndex first = new CoverageIndex();
+        first.add("org/apache/commons/io/IOUtils", "copy", "(Ljava/io/InputStream;Ljava/io/OutputStream;)I");
+        first.add("org.apache.commons.io.IOUtils", "toByteArray", "(Ljava/io/InputStream;)[B");
+        CoverageIndex second = new CoverageIndex();
+        second.add("org.apache.commons.io.IOUtils", "copy", "(Ljava/io/InputStream;Ljava/io/OutputStream;)I");
+        second.add("org.apache.commons.io.FileUtils", "copyFile", "(Ljava/io/File;Ljava/io/File;)V");
+        File file = folder.newFile("coverage.idx");
+
+        second.save(file);
+        CoverageIndex merged = new CoverageIndex();
+        merged.addAll(first);
+        merged.addAll(CoverageIndex.load(file));
+
+        assertEquals(3, merged.size());
+        assertTrue(merged.isCovered("org.apache.commons.io.IOUtils", "copy", "(Ljava/io/InputStream;Ljava/io/OutputStream;)I"));
+        assertTrue(merged.isCovered("org.apache.commons.io.IOUtils", "toByteArray"));
+        assertTrue(merged.isCovered("org.apache.commons.io.FileUtils", "copyFile", "(Ljava/io/File;Ljava/io/File;)V"));
+        assertFalse(merged.isCovered("org.apache.commons.io.FileUtils", "copyFile", "(Ljava/io/File;Ljava/io/OutputStream;)J"));
+    }
+
+}
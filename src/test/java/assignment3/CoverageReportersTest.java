@@ -0,0 +1,62 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import classes.Calculator;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CoverageReportersTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JuncoProcessor processor;
+
+    @Before
+    public void instantiate() throws Exception {
+        CoverageFixture fixture = new CoverageFixture(folder.getRoot()).addClass(Calculator.class);
+        fixture.writeExecFile("addTest", Calculator.class, "add");
+        processor = new JuncoProcessor(Collections.<String>emptyList(), fixture.getCoveragePath(), fixture.getClassesPath());
+    }
+
+    @Test
+    public void fileReporterWritesEveryMethod() throws Exception {
+        File report = new File(folder.getRoot(), "report.txt");
+        try (CoverageReporter reporter = CoverageReporters.file(report)) {
+            processor.setReporter(reporter);
+            processor.process();
+        }
+
+        String content = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+        assertTrue(content.contains("Analyzing class: classes.Calculator\n"));
+        assertTrue(content.contains("Analyzing method: add\n  ===> FULLY_COVERED\n"));
+        assertTrue(content.contains("Analyzing method: divide\n  ===> NOT_COVERED\n"));
+        assertTrue(content.contains("3 of 5 methods missed\n"));
+    }
+
+    @Test
+    public void summaryReporterPrintsOnlyTheTotals() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        processor.setReporter(CoverageReporters.summary(new PrintStream(out, true, "UTF-8")));
+
+        processor.process();
+
+        assertEquals(String.format("1 classes: 2 methods fully covered, 0 partly covered, 3 not covered, 0 empty%n"), out.toString("UTF-8"));
+    }
+
+    @Test
+    public void noReporterKeepsTheResults() throws Exception {
+        processor.setReporter(CoverageReporters.none());
+
+        assertEquals(3, processor.process().size());
+    }
+
+}
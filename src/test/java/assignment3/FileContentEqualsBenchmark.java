@@ -0,0 +1,101 @@
+package assignment3;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Wall-clock benchmark of FileUtils.contentEquals, which memory-maps large
+ * files and compares their windows in parallel, against the comparison of
+ * their streams with IOUtils.contentEquals that it replaces. It compares two
+ * equal files, then the same files with a difference in their first window.
+ * The files are written in the temporary directory and deleted at the end.
+ *
+ * Usage: FileContentEqualsBenchmark [gigabytes] [iterations]
+ *
+ * @author Cesar Soto-Valero
+ */
+public class FileContentEqualsBenchmark {
+
+    public static void main(String[] args) throws IOException {
+
+        double gigabytes = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        long length = (long) (gigabytes * 1024 * 1024 * 1024);
+
+        File dir = Files.createTempDirectory("junco-diff").toFile();
+        try {
+            File file1 = new File(dir, "file1.bin");
+            File file2 = new File(dir, "file2.bin");
+            write(file1, length);
+            write(file2, length);
+            System.out.printf("processors: %d, files: %.1f GB%n", Runtime.getRuntime().availableProcessors(), gigabytes);
+
+            // warm up both comparisons once
+            compare(file1, file2, false, true);
+            compare(file1, file2, true, true);
+            report("equal files", file1, file2, true, iterations);
+
+            try (RandomAccessFile f = new RandomAccessFile(file2, "rw")) {
+                f.seek(length / 1000);
+                f.write(~f.read());
+            }
+            report("difference at 0.1%", file1, file2, false, iterations);
+            System.out.println("index of the difference: " + FileUtils.indexOfDifference(file1, file2));
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    private static void report(String name, File file1, File file2, boolean equal, int iterations) throws IOException {
+        long streams = 0;
+        long mapped = 0;
+        for (int i = 0; i < iterations; i++) {
+            streams += compare(file1, file2, false, equal);
+            mapped += compare(file1, file2, true, equal);
+        }
+        System.out.printf("%s: streams %d ms/op, mapped %d ms/op, speedup %.2fx%n",
+                name, streams / iterations, mapped / iterations, (double) streams / mapped);
+    }
+
+    /**
+     * Compares the files
+     *
+     * @return The time in milliseconds
+     */
+    private static long compare(File file1, File file2, boolean mapped, boolean equal) throws IOException {
+        long start = System.nanoTime();
+        boolean result;
+        if (mapped) {
+            result = FileUtils.contentEquals(file1, file2);
+        } else {
+            try (InputStream input1 = new FileInputStream(file1); InputStream input2 = new FileInputStream(file2)) {
+                result = IOUtils.contentEquals(input1, input2);
+            }
+        }
+        if (result != equal) {
+            throw new IllegalStateException("wrong result");
+        }
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    /**
+     * Writes a file of random bytes, the same for every file of the same length
+     */
+    private static void write(File file, long length) throws IOException {
+        byte[] block = new byte[1 << 20];
+        new Random(42).nextBytes(block);
+        try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+            for (long written = 0; written < length; written += block.length) {
+                f.write(block, 0, (int) Math.min(block.length, length - written));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package assignment3;
+
+import java.io.ByteArrayInputStream;
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.io.output.NullWriter;
+
+/**
+ * Benchmark of the allocations of the IOUtils copies, which take their
+ * buffer from the current thread, against the same copies with a buffer
+ * allocated for each call. It reports the bytes allocated per copy, as
+ * measured by the JVM for the current thread, and the time per copy.
+ *
+ * Usage: IOUtilsBufferBenchmark [bytes per copy] [copies]
+ *
+ * @author Cesar Soto-Valero
+ */
+public class IOUtilsBufferBenchmark {
+
+    /**
+     * The buffer size of IOUtils, for the copies that allocate it
+     */
+    private static final int BUFFER_SIZE = 4096;
+
+    public static void main(String[] args) throws IOException {
+
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int copies = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+
+        final byte[] bytes = new byte[size];
+        final char[] chars = new char[size];
+        Arrays.fill(bytes, (byte) 'x');
+        Arrays.fill(chars, 'x');
+
+        Copy[] cases = {
+            new Copy("bytes, allocated buffer") {
+                @Override
+                void run() throws IOException {
+                    IOUtils.copyLarge(new ByteArrayInputStream(bytes), NullOutputStream.NULL_OUTPUT_STREAM, new byte[BUFFER_SIZE]);
+                }
+            },
+            new Copy("bytes, thread buffer") {
+                @Override
+                void run() throws IOException {
+                    IOUtils.copyLarge(new ByteArrayInputStream(bytes), NullOutputStream.NULL_OUTPUT_STREAM);
+                }
+            },
+            new Copy("chars, allocated buffer") {
+                @Override
+                void run() throws IOException {
+                    IOUtils.copyLarge(new CharArrayReader(chars), NullWriter.NULL_WRITER, new char[BUFFER_SIZE]);
+                }
+            },
+            new Copy("chars, thread buffer") {
+                @Override
+                void run() throws IOException {
+                    IOUtils.copyLarge(new CharArrayReader(chars), NullWriter.NULL_WRITER);
+                }
+            }
+        };
+
+        // warm up every case once
+        for (Copy c : cases) {
+            c.measure(copies);
+        }
+        for (Copy c : cases) {
+            c.measure(copies);
+            System.out.printf("%s: %d bytes/op, %d ns/op%n", c.name, c.allocated / copies, c.nanos / copies);
+        }
+    }
+
+    /**
+     * The bytes allocated by the current thread since it started
+     */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private abstract static class Copy {
+
+        private final String name;
+
+        private long allocated;
+
+        private long nanos;
+
+        Copy(String name) {
+            this.name = name;
+        }
+
+        abstract void run() throws IOException;
+
+        void measure(int copies) throws IOException {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < copies; i++) {
+                run();
+            }
+            nanos = System.nanoTime() - start;
+            allocated = allocatedBytes() - bytes;
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+package assignment3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Random;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Wall-clock benchmark of the block-wise IOUtils.contentEquals against the
+ * comparison of one byte or char per read through BufferedInputStream and
+ * BufferedReader that it replaces. The inputs are generated while they are
+ * read, so that multi-GB inputs need neither memory nor disk.
+ *
+ * Usage: IOUtilsContentEqualsBenchmark [gigabytes] [iterations]
+ *
+ * @author Cesar Soto-Valero
+ */
+public class IOUtilsContentEqualsBenchmark {
+
+    public static void main(String[] args) throws IOException {
+
+        double gigabytes = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        long length = (long) (gigabytes * 1024 * 1024 * 1024);
+
+        byte[] pattern = new byte[1 << 20];
+        new Random(42).nextBytes(pattern);
+        char[] chars = new char[pattern.length];
+        for (int i = 0; i < pattern.length; i++) {
+            chars[i] = (char) pattern[i];
+        }
+
+        // warm up every comparison on a small input
+        compare(pattern, chars, length / 64, false);
+        compare(pattern, chars, length / 64, true);
+
+        long[] byteByByte = new long[2];
+        long[] blocks = new long[2];
+        for (int i = 0; i < iterations; i++) {
+            add(byteByByte, compare(pattern, chars, length, false));
+            add(blocks, compare(pattern, chars, length, true));
+        }
+        System.out.printf("streams (%.1f GB): one byte per read %d ms/op, blocks %d ms/op, speedup %.2fx%n",
+                gigabytes, byteByByte[0] / iterations, blocks[0] / iterations, (double) byteByByte[0] / blocks[0]);
+        System.out.printf("readers (%.1f G chars): one char per read %d ms/op, blocks %d ms/op, speedup %.2fx%n",
+                gigabytes, byteByByte[1] / iterations, blocks[1] / iterations, (double) byteByByte[1] / blocks[1]);
+    }
+
+    private static void add(long[] total, long[] times) {
+        total[0] += times[0];
+        total[1] += times[1];
+    }
+
+    /**
+     * Compares two equal streams and two equal readers of the given length
+     *
+     * @return The times of the streams and of the readers in milliseconds
+     */
+    private static long[] compare(byte[] pattern, char[] chars, long length, boolean blocks) throws IOException {
+        long start = System.nanoTime();
+        InputStream input1 = new PatternInputStream(pattern, length);
+        InputStream input2 = new PatternInputStream(pattern, length);
+        if (!(blocks ? IOUtils.contentEquals(input1, input2) : contentEqualsByteByByte(input1, input2))) {
+            throw new IllegalStateException("the streams differ");
+        }
+        long streams = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Reader reader1 = new PatternReader(chars, length);
+        Reader reader2 = new PatternReader(chars, length);
+        if (!(blocks ? IOUtils.contentEquals(reader1, reader2) : contentEqualsCharByChar(reader1, reader2))) {
+            throw new IllegalStateException("the readers differ");
+        }
+        long readers = System.nanoTime() - start;
+        return new long[]{streams / 1000000, readers / 1000000};
+    }
+
+    /**
+     * The comparison of IOUtils before the blocks
+     */
+    private static boolean contentEqualsByteByByte(InputStream input1, InputStream input2) throws IOException {
+        input1 = new BufferedInputStream(input1);
+        input2 = new BufferedInputStream(input2);
+        int ch = input1.read();
+        while (ch != -1) {
+            if (ch != input2.read()) {
+                return false;
+            }
+            ch = input1.read();
+        }
+        return input2.read() == -1;
+    }
+
+    /**
+     * The comparison of IOUtils before the blocks
+     */
+    private static boolean contentEqualsCharByChar(Reader input1, Reader input2) throws IOException {
+        input1 = new BufferedReader(input1);
+        input2 = new BufferedReader(input2);
+        int ch = input1.read();
+        while (ch != -1) {
+            if (ch != input2.read()) {
+                return false;
+            }
+            ch = input1.read();
+        }
+        return input2.read() == -1;
+    }
+
+    /**
+     * A stream that repeats a pattern up to a length
+     */
+    private static final class PatternInputStream extends InputStream {
+
+        private final byte[] pattern;
+
+        private long remaining;
+
+        private int position;
+
+        PatternInputStream(byte[] pattern, long length) {
+            this.pattern = pattern;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining == 0) {
+                return -1;
+            }
+            int n = (int) Math.min(Math.min(len, pattern.length - position), remaining);
+            System.arraycopy(pattern, position, b, off, n);
+            position = (position + n) % pattern.length;
+            remaining -= n;
+            return n;
+        }
+    }
+
+    /**
+     * A reader that repeats a pattern up to a length
+     */
+    private static final class PatternReader extends Reader {
+
+        private final char[] pattern;
+
+        private long remaining;
+
+        private int position;
+
+        PatternReader(char[] pattern, long length) {
+            this.pattern = pattern;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read(char[] b, int off, int len) {
+            if (remaining == 0) {
+                return -1;
+            }
+            int n = (int) Math.min(Math.min(len, pattern.length - position), remaining);
+            System.arraycopy(pattern, position, b, off, n);
+            position = (position + n) % pattern.length;
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+package assignment3;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.file.Files;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Wall-clock benchmark of IOUtils.copyLarge against a plain read/write loop
+ * through a heap buffer, for a file copied to a file, a file copied to a
+ * loopback socket standing in for a network stream, and a pipe copied to a
+ * file. Only the file-to-file copy can use the channel transfer; the other
+ * cases show that the stream copy is not slowed down by it.
+ *
+ * Usage: IOUtilsCopyBenchmark [megabytes] [iterations]
+ *
+ * @author Cesar Soto-Valero
+ */
+public class IOUtilsCopyBenchmark {
+
+    /**
+     * The buffer size of IOUtils, for the baseline
+     */
+    private static final int BUFFER_SIZE = 4096;
+
+    public static void main(String[] args) throws Exception {
+
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        File dir = Files.createTempDirectory("junco-copy").toFile();
+        try {
+            byte[] data = new byte[megabytes * 1024 * 1024];
+            new Random(42).nextBytes(data);
+            File source = new File(dir, "source.bin");
+            FileUtils.writeByteArrayToFile(source, data);
+
+            for (Copy copy : new Copy[]{new FileToFile(source, dir), new FileToSocket(source), new PipeToFile(data, dir)}) {
+                // warm up both paths once
+                copy.run(false);
+                copy.run(true);
+                long baseline = time(copy, false, iterations);
+                long copyLarge = time(copy, true, iterations);
+                System.out.printf("%s: read/write loop %d ms/op, copyLarge %d ms/op, speedup %.2fx%n",
+                        copy, baseline / iterations, copyLarge / iterations, (double) baseline / copyLarge);
+            }
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    /**
+     * Measures a copy
+     *
+     * @return The total time in milliseconds
+     */
+    private static long time(Copy copy, boolean copyLarge, int iterations) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            copy.run(copyLarge);
+        }
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    /**
+     * Copies the input to the output, with IOUtils.copyLarge or with the
+     * read/write loop it replaces
+     */
+    private static long copy(InputStream input, OutputStream output, boolean copyLarge) throws IOException {
+        if (copyLarge) {
+            return IOUtils.copyLarge(input, output);
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long count = 0;
+        int n;
+        while ((n = input.read(buffer)) != -1) {
+            output.write(buffer, 0, n);
+            count += n;
+        }
+        return count;
+    }
+
+    private interface Copy {
+
+        void run(boolean copyLarge) throws Exception;
+    }
+
+    private static final class FileToFile implements Copy {
+
+        private final File source;
+
+        private final File target;
+
+        FileToFile(File source, File dir) {
+            this.source = source;
+            this.target = new File(dir, "target.bin");
+        }
+
+        @Override
+        public void run(boolean copyLarge) throws IOException {
+            try (InputStream in = new FileInputStream(source); OutputStream out = new FileOutputStream(target)) {
+                copy(in, out, copyLarge);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "file to file";
+        }
+    }
+
+    private static final class FileToSocket implements Copy {
+
+        private final File source;
+
+        FileToSocket(File source) {
+            this.source = source;
+        }
+
+        @Override
+        public void run(boolean copyLarge) throws Exception {
+            try (final ServerSocket server = new ServerSocket(0)) {
+                Thread drain = new Thread() {
+                    @Override
+                    public void run() {
+                        try (Socket peer = server.accept()) {
+                            IOUtils.skip(peer.getInputStream(), Long.MAX_VALUE);
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                };
+                drain.start();
+                try (InputStream in = new FileInputStream(source); Socket socket = new Socket(server.getInetAddress(), server.getLocalPort())) {
+                    copy(in, socket.getOutputStream(), copyLarge);
+                }
+                drain.join();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "file to socket";
+        }
+    }
+
+    private static final class PipeToFile implements Copy {
+
+        private final byte[] data;
+
+        private final File target;
+
+        PipeToFile(byte[] data, File dir) {
+            this.data = data;
+            this.target = new File(dir, "piped.bin");
+        }
+
+        @Override
+        public void run(boolean copyLarge) throws Exception {
+            final Pipe pipe = Pipe.open();
+            Thread writer = new Thread() {
+                @Override
+                public void run() {
+                    try (OutputStream out = Channels.newOutputStream(pipe.sink())) {
+                        out.write(data);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+            writer.start();
+            try (InputStream in = Channels.newInputStream(pipe.source()); OutputStream out = new FileOutputStream(target)) {
+                copy(in, out, copyLarge);
+            }
+            writer.join();
+        }
+
+        @Override
+        public String toString() {
+            return "pipe to file";
+        }
+    }
+
+}
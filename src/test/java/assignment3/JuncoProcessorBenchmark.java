@@ -0,0 +1,61 @@
+package assignment3;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * Wall-clock benchmark of the sequential and the parallel analysis of the
+ * Junco coverage files. Run it after the Maven build has produced the
+ * coverage files.
+ *
+ * Usage: JuncoProcessorBenchmark [coveragePath] [builtClassesPath]
+ * [parallelism] [iterations]
+ *
+ * @author Cesar Soto-Valero
+ */
+public class JuncoProcessorBenchmark {
+
+    public static void main(String[] args) throws IOException {
+
+        String coveragePath = args.length > 0 ? args[0] : "target/site/junco";
+        String builtClassesPath = args.length > 1 ? args[1] : "target/classes";
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        JuncoProcessor p = new JuncoProcessor(Collections.<String>emptyList(), coveragePath, builtClassesPath);
+        System.out.println("coverage files: " + p.listExecFiles().size());
+
+        // warm up both paths once
+        p.setParallelism(1);
+        HashMap<String, Collection<String>> sequential = p.process3();
+        p.setParallelism(parallelism);
+        HashMap<String, Collection<String>> parallel = p.process3();
+        if (!sequential.equals(parallel)) {
+            throw new IllegalStateException("parallel results differ from the sequential ones");
+        }
+
+        long sequentialTime = time(p, 1, iterations);
+        long parallelTime = time(p, parallelism, iterations);
+
+        System.out.printf("sequential: %d ms/op%n", sequentialTime / iterations);
+        System.out.printf("parallel (%d threads): %d ms/op%n", parallelism, parallelTime / iterations);
+        System.out.printf("speedup: %.2fx%n", (double) sequentialTime / parallelTime);
+    }
+
+    /**
+     * Measures the analysis of all the coverage files
+     *
+     * @return The total time in milliseconds
+     */
+    private static long time(JuncoProcessor p, int parallelism, int iterations) throws IOException {
+        p.setParallelism(parallelism);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            p.process3();
+        }
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+}
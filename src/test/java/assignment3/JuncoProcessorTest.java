@@ -0,0 +1,97 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import classes.Calculator;
+import classes.Calculator2;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import org.jacoco.core.analysis.ICounter;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JuncoProcessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CoverageFixture fixture;
+
+    private JuncoProcessor processor;
+
+    @Before
+    public void instantiate() throws Exception {
+        fixture = new CoverageFixture(folder.getRoot())
+                .addClass(Calculator.class)
+                .addClass(Calculator2.class);
+        fixture.writeExecFile("addTest", Calculator.class, "add");
+        fixture.writeExecFile("multiplyTest", Calculator.class, "multiply");
+        fixture.writeExecFile("substractTest", Calculator2.class, "substract");
+        processor = new JuncoProcessor(Collections.<String>emptyList(), fixture.getCoveragePath(), fixture.getClassesPath());
+    }
+
+    @Test
+    public void unionKeepsTheMethodsOfEveryFile() throws Exception {
+        HashMap<String, Collection<String>> union = processor.processUnion();
+
+        assertEquals(new HashSet<>(Arrays.asList("<init>", "add", "multiply")), new HashSet<>(union.get("Calculator")));
+        assertEquals(new HashSet<>(Arrays.asList("<init>", "substract")), new HashSet<>(union.get("Calculator2")));
+    }
+
+    @Test
+    public void perFileCoverageIsNotClobberedByLaterFiles() throws Exception {
+        HashMap<String, Collection<String>> perFile = processor.process2();
+
+        assertEquals(new HashSet<>(processor.processUnion().get("Calculator")), new HashSet<>(perFile.get("Calculator")));
+        assertFalse(perFile.get("Calculator").contains("divide"));
+    }
+
+    @Test
+    public void parallelAnalysisMatchesSequentialAnalysis() throws Exception {
+        HashMap<String, Collection<String>> sequential = processor.process3();
+        processor.setParallelism(3);
+        HashMap<String, Collection<String>> parallel = processor.process3();
+
+        assertEquals(sequential, parallel);
+        assertEquals(Arrays.asList("classes.Calculator"), parallel.get("addTest"));
+        assertEquals(Arrays.asList("classes.Calculator2"), parallel.get("substractTest"));
+    }
+
+    @Test
+    public void classesOutsideTheBundleAreNotAnalyzed() throws Exception {
+        JuncoProcessor bundled = new JuncoProcessor(Arrays.asList("classes.Calculator"), fixture.getCoveragePath(), fixture.getClassesPath());
+
+        HashMap<String, Collection<String>> coverage = bundled.process3();
+
+        assertEquals(Arrays.asList("classes.Calculator"), coverage.get("addTest"));
+        assertNull(coverage.get("substractTest"));
+        assertEquals(1, bundled.getClassFileCache().getSkipped());
+    }
+
+    @Test
+    public void linesExecutedByAnyTestAreCovered() throws Exception {
+        LineCoverage lines = processor.processLines();
+
+        assertEquals(ICounter.FULLY_COVERED, lines.getStatus("classes.Calculator", 8));
+        assertEquals(ICounter.FULLY_COVERED, lines.getStatus("classes.Calculator", 16));
+        assertEquals(ICounter.NOT_COVERED, lines.getStatus("classes.Calculator", 20));
+        assertEquals(ICounter.EMPTY, lines.getStatus("classes.Calculator", 10));
+    }
+
+    @Test
+    public void analysisPhasesAreMeasured() throws Exception {
+        processor.processIndex();
+
+        ReductionMetrics metrics = processor.getMetrics();
+        assertEquals(3, metrics.getCount(ReductionMetrics.EXEC_FILES));
+        assertEquals(2, metrics.getCount(ReductionMetrics.CLASSES_ANALYZED));
+        assertTrue(metrics.getNanos(ReductionMetrics.CLASS_PARSING) > 0);
+        assertTrue(metrics.getNanos(ReductionMetrics.EXEC_LOADING) > 0);
+        assertTrue(metrics.getNanos(ReductionMetrics.ANALYSIS) > 0);
+    }
+
+}
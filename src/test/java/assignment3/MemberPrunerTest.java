@@ -0,0 +1,171 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MemberPrunerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void membersLeftUnusedAreRemoved() throws Exception {
+        File input = folder.newFolder("src");
+        File dir = new File(input, "sample");
+        dir.mkdirs();
+        Files.write(new File(dir, "Members.java").toPath(), (""
+                + "package sample;\n"
+                + "public class Members implements java.io.Serializable {\n"
+                + "    private static final long serialVersionUID = 1L;\n"
+                + "    public static final int PUBLIC_CONSTANT = 2;\n"
+                + "    private static final int USED = 1;\n"
+                + "    private static byte[] BUFFER;\n"
+                + "    private static final String NAME;\n"
+                + "    static {\n"
+                + "        final StringBuilder b = new StringBuilder();\n"
+                + "        b.append(\"name\");\n"
+                + "        NAME = b.toString();\n"
+                + "    }\n"
+                + "    private int counter;\n"
+                + "    public int used() {\n"
+                + "        return USED + counter;\n"
+                + "    }\n"
+                + "    public long skip(int n) {\n"
+                + "        if (BUFFER == null) {\n"
+                + "            BUFFER = new byte[n];\n"
+                + "        }\n"
+                + "        return BUFFER.length;\n"
+                + "    }\n"
+                + "    public int helped() {\n"
+                + "        return new Helper().help();\n"
+                + "    }\n"
+                + "    public int track() {\n"
+                + "        return new Tracker().n;\n"
+                + "    }\n"
+                + "    private static class Helper {\n"
+                + "        int help() {\n"
+                + "            return 1;\n"
+                + "        }\n"
+                + "    }\n"
+                + "    private static class Tracker {\n"
+                + "        int n;\n"
+                + "    }\n"
+                + "}\n").getBytes(StandardCharsets.UTF_8));
+
+        // the coverage of used() and track()
+        CoverageIndex index = new CoverageIndex();
+        index.add("sample/Members", "<init>", "()V");
+        index.add("sample/Members", "<clinit>", "()V");
+        index.add("sample/Members", "used", "()I");
+        index.add("sample/Members", "track", "()I");
+        index.add("sample/Members$Tracker", "<init>", "()V");
+        File output = new File(folder.getRoot(), "output");
+        ReductionMetrics metrics = new ReductionMetrics();
+        ParallelSpoonRunner runner = new ParallelSpoonRunner(input.getPath(), output.getPath(), "missing", index, 1);
+        runner.setMetrics(metrics);
+
+        runner.run();
+
+        File reduced = new File(output, "sample/Members.java");
+        String source = new String(Files.readAllBytes(reduced.toPath()), StandardCharsets.UTF_8);
+        assertFalse(source.contains("BUFFER;"));
+        assertFalse(source.contains("NAME;"));
+        assertFalse(source.contains("static {"));
+        assertFalse(source.contains("class Helper"));
+        assertTrue(source.contains("serialVersionUID = 1L"));
+        assertTrue(source.contains("PUBLIC_CONSTANT = 2"));
+        assertTrue(source.contains("USED = 1"));
+        assertTrue(source.contains("int counter;"));
+        assertTrue(source.contains("class Tracker"));
+        assertEquals(2, metrics.getCount(ReductionMetrics.FIELDS_REMOVED));
+        assertEquals(1, metrics.getCount(ReductionMetrics.INITIALIZERS_REMOVED));
+        assertEquals(1, metrics.getCount(ReductionMetrics.NESTED_CLASSES_REMOVED));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        File classes = folder.newFolder("classes");
+        assertEquals(source, 0, compiler.run(null, null, null, "-d", classes.getPath(), reduced.getPath()));
+    }
+
+    @Test
+    public void initializersThatAlsoAssignUsedFieldsAreKept() throws Exception {
+        File input = folder.newFolder("src");
+        File dir = new File(input, "sample");
+        dir.mkdirs();
+        Files.write(new File(dir, "Mixed.java").toPath(), (""
+                + "package sample;\n"
+                + "public class Mixed {\n"
+                + "    private static final String UNUSED;\n"
+                + "    private static final String USED;\n"
+                + "    static {\n"
+                + "        UNUSED = \"a\";\n"
+                + "        USED = \"b\";\n"
+                + "    }\n"
+                + "    public String get() {\n"
+                + "        return USED;\n"
+                + "    }\n"
+                + "}\n").getBytes(StandardCharsets.UTF_8));
+
+        CoverageIndex index = new CoverageIndex();
+        index.add("sample/Mixed", "get", "()Ljava/lang/String;");
+        File output = new File(folder.getRoot(), "output");
+
+        new ParallelSpoonRunner(input.getPath(), output.getPath(), "missing", index, 1).run();
+
+        String source = new String(Files.readAllBytes(new File(output, "sample/Mixed.java").toPath()), StandardCharsets.UTF_8);
+        assertTrue(source.contains("UNUSED = \"a\""));
+        assertTrue(source.contains("String UNUSED;"));
+    }
+
+    @Test
+    public void fieldsWithSideEffectsInTheirInitializersAreKept() throws Exception {
+        File input = folder.newFolder("src");
+        File dir = new File(input, "sample");
+        dir.mkdirs();
+        Files.write(new File(dir, "Effects.java").toPath(), (""
+                + "package sample;\n"
+                + "public class Effects {\n"
+                + "    private static final Object REGISTERED = Registry.register(\"effects\");\n"
+                + "    private static final String PROPERTY;\n"
+                + "    static {\n"
+                + "        PROPERTY = System.getProperty(\"effects\");\n"
+                + "    }\n"
+                + "    private static final int[] TABLE = new int[]{1, 2, -Integer.MAX_VALUE};\n"
+                + "    private final java.util.List<String> names = new java.util.ArrayList<>();\n"
+                + "    private final Thread worker = new Thread();\n"
+                + "    public int get() {\n"
+                + "        return 1;\n"
+                + "    }\n"
+                + "}\n"
+                + "class Registry {\n"
+                + "    static Object register(String name) {\n"
+                + "        return name;\n"
+                + "    }\n"
+                + "}\n").getBytes(StandardCharsets.UTF_8));
+
+        CoverageIndex index = new CoverageIndex();
+        index.add("sample/Effects", "get", "()I");
+        File output = new File(folder.getRoot(), "output");
+        ReductionMetrics metrics = new ReductionMetrics();
+        ParallelSpoonRunner runner = new ParallelSpoonRunner(input.getPath(), output.getPath(), "missing", index, 1);
+        runner.setMetrics(metrics);
+
+        runner.run();
+
+        String source = new String(Files.readAllBytes(new File(output, "sample/Effects.java").toPath()), StandardCharsets.UTF_8);
+        assertTrue(source.contains("Registry.register"));
+        assertTrue(source.contains("System.getProperty"));
+        assertTrue(source.contains("new java.lang.Thread()"));
+        assertFalse(source.contains("TABLE ="));
+        assertFalse(source.contains("names ="));
+        assertEquals(2, metrics.getCount(ReductionMetrics.FIELDS_REMOVED));
+        assertEquals(0, metrics.getCount(ReductionMetrics.INITIALIZERS_REMOVED));
+    }
+
+}
@@ -0,0 +1,64 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import spoon.Launcher;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtMethod;
+
+public class MethodDescriptorsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void overloadsGetTheirErasedDescriptors() throws Exception {
+        CtClass<?> ctClass = buildClass("sample", "Overloads",
+                "package sample;\n"
+                + "import java.io.*;\n"
+                + "import java.util.*;\n"
+                + "public class Overloads {\n"
+                + "    public void write(byte[] data, OutputStream output) {}\n"
+                + "    public void write(char[] data, Writer output) {}\n"
+                + "    public long copy(InputStream input, OutputStream output, byte[][] buffers) { return 0; }\n"
+                + "    public <T extends Comparable<T>> T max(List<T> values, T other) { return other; }\n"
+                + "    public <T> T first(T[] values) { return values[0]; }\n"
+                + "    public Map.Entry<String, Integer> entry(int index, String... names) { return null; }\n"
+                + "    static class Inner {}\n"
+                + "    public boolean accept(Inner inner, double d, long l, float f, short s, char c) { return false; }\n"
+                + "}\n");
+
+        Set<String> descriptors = new HashSet<>();
+        for (CtMethod<?> method : ctClass.getMethods()) {
+            descriptors.add(method.getSimpleName() + MethodDescriptors.of(method));
+        }
+
+        Set<String> expected = new HashSet<>();
+        expected.add("write([BLjava/io/OutputStream;)V");
+        expected.add("write([CLjava/io/Writer;)V");
+        expected.add("copy(Ljava/io/InputStream;Ljava/io/OutputStream;[[B)J");
+        expected.add("max(Ljava/util/List;Ljava/lang/Comparable;)Ljava/lang/Comparable;");
+        expected.add("first([Ljava/lang/Object;)Ljava/lang/Object;");
+        expected.add("entry(I[Ljava/lang/String;)Ljava/util/Map$Entry;");
+        expected.add("accept(Lsample/Overloads$Inner;DJFSC)Z");
+        assertEquals(expected, descriptors);
+    }
+
+    private CtClass<?> buildClass(String packageName, String className, String source) throws Exception {
+        File dir = folder.newFolder(packageName);
+        Files.write(new File(dir, className + ".java").toPath(), source.getBytes(StandardCharsets.UTF_8));
+        Launcher launcher = new Launcher();
+        launcher.addInputResource(folder.getRoot().getPath());
+        launcher.getEnvironment().setNoClasspath(true);
+        launcher.buildModel();
+        return launcher.getFactory().Class().get(packageName + "." + className);
+    }
+
+}
@@ -0,0 +1,141 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import assignment3.MethodProfile.HotMethod;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MethodProfilerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void invocationsAndTimeAreRecorded() throws Exception {
+        Class<?> fixture = instrumented(Fixture.class);
+        Object instance = fixture.getConstructor().newInstance();
+        assertEquals(55, fixture.getMethod("fib", int.class).invoke(instance, 10));
+        try {
+            fixture.getMethod("parse", String.class).invoke(null, "x");
+            fail();
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof NumberFormatException);
+        }
+        assertEquals(-1, fixture.getMethod("parse", String.class).invoke(null, ""));
+        try {
+            fixture.getMethod("sleepAndParse", long.class, String.class).invoke(null, 20L, "x");
+            fail();
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof NumberFormatException);
+        }
+
+        File file = folder.newFile("hot-methods.tsv");
+        MethodProfiler.save(file);
+        MethodProfile profile = MethodProfile.load(file, new BundleFilter(Collections.singletonList(Fixture.class.getName())));
+
+        assertEquals(4, profile.getMethods().size());
+        HotMethod fib = profile.getMethods().get(1);
+        assertEquals("fib", fib.getName());
+        assertEquals("(I)I", fib.getDesc());
+        assertEquals(177, fib.getInvocations());
+        assertTrue(fib.getNanos() > 0);
+        assertEquals(2, find(profile, "parse").getInvocations());
+        assertEquals(1, find(profile, "<init>").getInvocations());
+        // the time is added when the exception is thrown by a callee
+        HotMethod sleepAndParse = profile.getMethods().get(0);
+        assertEquals("sleepAndParse", sleepAndParse.getName());
+        assertEquals(1, sleepAndParse.getInvocations());
+        assertTrue(sleepAndParse.getNanos() >= 20000000L);
+    }
+
+    @Test
+    public void profilesAreMergedAndRanked() throws Exception {
+        File file = folder.newFile("hot-methods.tsv");
+        Files.write(file.toPath(), Arrays.asList(
+                "a.IOUtils\tcopy\t(Ljava/io/InputStream;Ljava/io/OutputStream;)I\t10\t500",
+                "a.IOUtils\tcopyLarge\t(Ljava/io/InputStream;Ljava/io/OutputStream;)J\t10\t400",
+                "a.FilenameUtils\twildcardMatch\t(Ljava/lang/String;Ljava/lang/String;)Z\t100\t300",
+                "b.Other\trun\t()V\t1\t1000",
+                "a.FilenameUtils\twildcardMatch\t(Ljava/lang/String;Ljava/lang/String;)Z\t100\t300"),
+                StandardCharsets.UTF_8);
+
+        MethodProfile profile = MethodProfile.load(file, new BundleFilter(Collections.singletonList("a.")));
+
+        assertEquals(3, profile.getMethods().size());
+        assertEquals("a.FilenameUtils#wildcardMatch(Ljava/lang/String;Ljava/lang/String;)Z", profile.top(1).get(0).toString());
+        assertEquals(200, profile.top(1).get(0).getInvocations());
+        assertEquals("copy", profile.getMethods().get(1).getName());
+        assertEquals(3, profile.top(10).size());
+    }
+
+    private static HotMethod find(MethodProfile profile, String name) {
+        for (HotMethod m : profile.getMethods()) {
+            if (m.getName().equals(name)) {
+                return m;
+            }
+        }
+        throw new AssertionError(name);
+    }
+
+    /**
+     * @return The class, instrumented and loaded by a new class loader
+     */
+    private static Class<?> instrumented(final Class<?> type) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = type.getClassLoader().getResourceAsStream(type.getName().replace('.', '/') + ".class")) {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        }
+        final byte[] instrumented = MethodProfiler.instrument(out.toByteArray());
+        return new ClassLoader(MethodProfilerTest.class.getClassLoader()) {
+            @Override
+            protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                if (name.equals(type.getName())) {
+                    Class<?> c = findLoadedClass(name);
+                    return c != null ? c : defineClass(name, instrumented, 0, instrumented.length);
+                }
+                return super.loadClass(name, resolve);
+            }
+        }.loadClass(type.getName());
+    }
+
+    public static class Fixture {
+
+        public int fib(int n) {
+            return n < 2 ? n : fib(n - 1) + fib(n - 2);
+        }
+
+        public static int parse(String s) {
+            if (s.isEmpty()) {
+                return -1;
+            }
+            long value = 0;
+            for (int i = 0; i < s.length(); i++) {
+                value = value * 10 + Character.digit(s.charAt(i), 10);
+                if (value < 0) {
+                    throw new NumberFormatException(s);
+                }
+            }
+            return (int) value;
+        }
+
+        public static int sleepAndParse(long millis, String s) throws InterruptedException {
+            Thread.sleep(millis);
+            int length = s.length();
+            return Integer.parseInt(s) + length;
+        }
+    }
+
+}
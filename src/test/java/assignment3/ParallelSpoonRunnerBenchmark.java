@@ -0,0 +1,48 @@
+package assignment3;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Wall-clock benchmark of the sequential and the parallel transformation of
+ * the bundled commons-io sources. Without coverage files no method is
+ * removed, which still measures the model building and the printing.
+ *
+ * Usage: ParallelSpoonRunnerBenchmark [inputPath] [builtClassesPath]
+ * [coveragePath] [parallelism]
+ *
+ * @author Cesar Soto-Valero
+ */
+public class ParallelSpoonRunnerBenchmark {
+
+    public static void main(String[] args) throws IOException {
+
+        String inputPath = args.length > 0 ? args[0] : "src/main/java/org";
+        String builtClassesPath = args.length > 1 ? args[1] : "target/classes";
+        String coveragePath = args.length > 2 ? args[2] : "target/site/junco";
+        int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        CoverageIndex index = new CoverageIndex();
+        if (new File(coveragePath).exists()) {
+            index = new JuncoProcessor(Collections.<String>emptyList(), coveragePath, builtClassesPath).processIndex();
+        }
+        File output = new File("target", "benchmark-output");
+
+        // warm up the JIT with one parallel run
+        new ParallelSpoonRunner(inputPath, new File(output, "warmup").getPath(), builtClassesPath, index, parallelism).run();
+
+        long start = System.nanoTime();
+        new ParallelSpoonRunner(inputPath, new File(output, "sequential").getPath(), builtClassesPath, index, 1).run();
+        long sequentialTime = (System.nanoTime() - start) / 1000000;
+
+        start = System.nanoTime();
+        int partitions = new ParallelSpoonRunner(inputPath, new File(output, "parallel").getPath(), builtClassesPath, index, parallelism).run();
+        long parallelTime = (System.nanoTime() - start) / 1000000;
+
+        System.out.printf("sequential: %d ms%n", sequentialTime);
+        System.out.printf("parallel (%d threads, %d packages): %d ms%n", parallelism, partitions, parallelTime);
+        System.out.printf("speedup: %.2fx%n", (double) sequentialTime / parallelTime);
+    }
+
+}
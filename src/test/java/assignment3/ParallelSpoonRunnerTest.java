@@ -0,0 +1,82 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParallelSpoonRunnerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File input;
+
+    private CoverageIndex index;
+
+    @Before
+    public void instantiate() throws Exception {
+        input = folder.newFolder("src");
+        write("a", "A", "package a;\n"
+                + "public class A {\n"
+                + "    public void used() {}\n"
+                + "    public void unused() {}\n"
+                + "}\n");
+        write("b", "B", "package b;\n"
+                + "public class B {\n"
+                + "    public void foo() {}\n"
+                + "    public void bar(int i) {}\n"
+                + "    public void bar(String s) {}\n"
+                + "}\n");
+        index = new CoverageIndex();
+        index.add("a/A", "used", "()V");
+        index.add("b/B", "bar", "(I)V");
+    }
+
+    @Test
+    public void packagesAreTransformedConcurrently() throws Exception {
+        File output = new File(folder.getRoot(), "output");
+
+        int partitions = new ParallelSpoonRunner(input.getPath(), output.getPath(), "missing", index, 2).run();
+
+        assertEquals(2, partitions);
+        String a = read(new File(output, "a/A.java"));
+        assertTrue(a.contains("used()"));
+        assertFalse(a.contains("unused()"));
+        String b = read(new File(output, "b/B.java"));
+        assertTrue(b.contains("bar(int i)"));
+        assertFalse(b.contains("bar(java.lang.String s)"));
+        assertFalse(b.contains("foo()"));
+    }
+
+    @Test
+    public void phasesAndCountersAreMeasured() throws Exception {
+        File output = new File(folder.getRoot(), "output");
+        ReductionMetrics metrics = new ReductionMetrics();
+        ParallelSpoonRunner runner = new ParallelSpoonRunner(input.getPath(), output.getPath(), "missing", index, 1);
+        runner.setMetrics(metrics);
+
+        runner.run();
+
+        assertEquals(3, metrics.getCount(ReductionMetrics.METHODS_REMOVED));
+        assertEquals(new File(output, "a/A.java").length() + new File(output, "b/B.java").length(), metrics.getCount(ReductionMetrics.BYTES_WRITTEN));
+        assertTrue(metrics.getNanos(ReductionMetrics.MODEL_BUILD) > 0);
+        assertTrue(metrics.getNanos(ReductionMetrics.PROCESSING) > 0);
+        assertTrue(metrics.getNanos(ReductionMetrics.PRINTING) > 0);
+    }
+
+    private void write(String packageName, String className, String source) throws Exception {
+        File dir = new File(input, packageName);
+        dir.mkdirs();
+        Files.write(new File(dir, className + ".java").toPath(), source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,71 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import classes.Calculator;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProbeStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void onlyTheProbesOfTheBuiltClassesAreRetained() throws Exception {
+        CoverageFixture fixture = new CoverageFixture(folder.getRoot()).addClass(Calculator.class);
+        ClassFileCache classes = ClassFileCache.load(fixture.getClassesPath());
+        ProbeStore probes = classes.newProbeStore();
+
+        // the retained probes do not grow with the number of files
+        for (int i = 0; i < 20; i++) {
+            probes.read(fixture.writeExecFile("test" + i, Calculator.class, "add"));
+            probes.read(writeForeignExecFile("foreign" + i, i * 100, 100));
+            assertEquals(1, probes.getRetainedCount());
+        }
+        assertEquals(20 * 100, probes.getSkippedCount());
+        assertEquals(20 * 100 + 1, probes.getExecutedClassIds().length);
+
+        // the probes are released once the class is analyzed
+        assertEquals(1, classes.analyze(probes, new CoverageBuilder(), true));
+        assertEquals(0, probes.getRetainedCount());
+    }
+
+    @Test
+    public void probesOfSeveralFilesAreMerged() throws Exception {
+        CoverageFixture fixture = new CoverageFixture(folder.getRoot()).addClass(Calculator.class);
+        ClassFileCache classes = ClassFileCache.load(fixture.getClassesPath());
+        ProbeStore probes = classes.newProbeStore();
+        probes.read(fixture.writeExecFile("addTest", Calculator.class, "add"));
+        probes.read(fixture.writeExecFile("divideTest", Calculator.class, "divide"));
+        CoverageBuilder coverageBuilder = new CoverageBuilder();
+
+        classes.analyze(probes, coverageBuilder, true);
+
+        // the constructor, add and divide
+        assertEquals(3, coverageBuilder.getClasses().iterator().next().getMethodCounter().getCoveredCount());
+    }
+
+    /**
+     * Writes a coverage file with the probes of classes that are not built
+     */
+    private File writeForeignExecFile(String testName, int firstId, int count) throws Exception {
+        File execFile = folder.newFile(testName + ".exec");
+        try (OutputStream out = new FileOutputStream(execFile)) {
+            ExecutionDataWriter writer = new ExecutionDataWriter(out);
+            writer.visitSessionInfo(new SessionInfo(testName, 0, 0));
+            for (int i = firstId; i < firstId + count; i++) {
+                writer.visitClassExecution(new ExecutionData(i, "foreign/Class" + i, new boolean[1000]));
+            }
+        }
+        return execFile;
+    }
+
+}
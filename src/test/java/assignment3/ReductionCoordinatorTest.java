@@ -0,0 +1,60 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import classes.Calculator;
+import classes.Calculator2;
+import java.io.File;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReductionCoordinatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CoverageFixture fixture;
+
+    @Before
+    public void recordCoverage() throws Exception {
+        fixture = new CoverageFixture(folder.getRoot()).addClass(Calculator.class).addClass(Calculator2.class);
+        fixture.writeExecFile("addTest", Calculator.class, "add");
+        fixture.writeExecFile("divideTest", Calculator.class, "divide");
+        fixture.writeExecFile("multiplyTest", Calculator2.class, "multiply");
+    }
+
+    @Test
+    public void workersShardTheCoverageFiles() throws Exception {
+        assertSameAsSingleProcess(ReductionCoordinator.Sharding.EXEC_FILES);
+    }
+
+    @Test
+    public void workersShardTheClasses() throws Exception {
+        assertSameAsSingleProcess(ReductionCoordinator.Sharding.CLASSES);
+    }
+
+    private void assertSameAsSingleProcess(ReductionCoordinator.Sharding sharding) throws Exception {
+        ReductionCoordinator coordinator = new ReductionCoordinator(Collections.<String>emptyList(),
+                fixture.getCoveragePath(), fixture.getClassesPath(), new File(folder.getRoot(), "work").getPath());
+        coordinator.setWorkers(2);
+        coordinator.setSharding(sharding);
+
+        CoverageIndex merged = coordinator.collect();
+
+        JuncoProcessor processor = new JuncoProcessor(Collections.<String>emptyList(), fixture.getCoveragePath(), fixture.getClassesPath());
+        processor.setReporter(CoverageReporters.none());
+        CoverageIndex expected = processor.processIndex();
+        assertEquals(expected.size(), merged.size());
+        for (String className : expected.getClassNames()) {
+            for (String method : new String[]{"add", "substract", "multiply", "divide"}) {
+                assertEquals(expected.isCovered(className, method, "(DD)D"), merged.isCovered(className, method, "(DD)D"));
+            }
+        }
+        assertTrue(merged.isCovered("classes.Calculator", "divide", "(DD)D"));
+        assertTrue(merged.isCovered("classes.Calculator2", "multiply", "(DD)D"));
+        assertFalse(merged.isCovered("classes.Calculator2", "add", "(DD)D"));
+    }
+
+}
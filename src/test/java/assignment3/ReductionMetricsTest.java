@@ -0,0 +1,52 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReductionMetricsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void phasesAndCountersAreAccumulated() throws Exception {
+        ReductionMetrics metrics = new ReductionMetrics();
+        for (int i = 0; i < 2; i++) {
+            try (ReductionMetrics.Timer t = metrics.start(ReductionMetrics.ANALYSIS)) {
+                Thread.sleep(5);
+            }
+        }
+        metrics.increment(ReductionMetrics.METHODS_REMOVED, 2);
+        metrics.increment(ReductionMetrics.METHODS_REMOVED, 3);
+
+        assertTrue(metrics.getNanos(ReductionMetrics.ANALYSIS) >= 10000000L);
+        assertEquals(0, metrics.getNanos(ReductionMetrics.PRINTING));
+        assertEquals(5, metrics.getCount(ReductionMetrics.METHODS_REMOVED));
+    }
+
+    @Test
+    public void metricsAreWrittenAsJsonOrCsv() throws Exception {
+        ReductionMetrics metrics = new ReductionMetrics();
+        metrics.start(ReductionMetrics.MODEL_BUILD).close();
+        metrics.increment(ReductionMetrics.BYTES_WRITTEN, 1024);
+        metrics.increment(ReductionMetrics.METHODS_REMOVED, 7);
+
+        StringWriter json = new StringWriter();
+        metrics.writeJson(json);
+        assertTrue(json.toString().matches("(?s)\\{\\n  \"phases_ms\": \\{\\n    \"model_build\": \\d+\\.\\d{3}\\n  \\},"
+                + "\\n  \"counters\": \\{\\n    \"bytes_written\": 1024,\\n    \"methods_removed\": 7\\n  \\}\\n\\}\\n"));
+
+        File csv = new File(folder.getRoot(), "metrics.csv");
+        metrics.save(csv);
+        String content = new String(Files.readAllBytes(csv.toPath()), StandardCharsets.UTF_8);
+        assertTrue(content.startsWith("kind,name,value\nphase_ms,model_build,"));
+        assertTrue(content.endsWith("counter,bytes_written,1024\ncounter,methods_removed,7\n"));
+    }
+
+}
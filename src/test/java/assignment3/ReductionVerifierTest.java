@@ -0,0 +1,97 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import assignment3.ReductionVerifier.Result;
+import javax.tools.ToolProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReductionVerifierTest {
+
+    private static final String CALC = "package p;\n"
+            + "public class Calc {\n"
+            + "    public static int add(int a, int b) { return a + b; }\n"
+            + "    public static int sub(int a, int b) { return a - b; }\n"
+            + "}\n";
+
+    private static final String CALC_TEST = "package p;\n"
+            + "public class CalcTest {\n"
+            + "    @org.junit.Test public void add() { org.junit.Assert.assertEquals(3, Calc.add(1, 2)); }\n"
+            + "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File original;
+
+    private File tests;
+
+    @Before
+    public void buildOriginal() throws IOException {
+        original = folder.newFolder("classes");
+        tests = folder.newFolder("test-classes");
+        compile(write(folder.newFolder("src"), CALC, "Calc.java"), original, System.getProperty("java.class.path"));
+        compile(write(folder.newFolder("test-src"), CALC_TEST, "CalcTest.java"), tests,
+                original.getPath() + File.pathSeparator + System.getProperty("java.class.path"));
+    }
+
+    @Test
+    public void theReducedBuildIsMeasuredAgainstTheOriginal() throws IOException {
+        File reduced = folder.newFolder("output");
+        write(reduced, CALC.replace("    public static int sub(int a, int b) { return a - b; }\n", ""), "Calc.java");
+
+        Result[] results = verifier(reduced).verify();
+
+        assertEquals(1, results[0].getTestsRun());
+        assertEquals(0, results[0].getFailures());
+        assertEquals(1, results[1].getTestsRun());
+        assertEquals(0, results[1].getFailures());
+        assertTrue(results[1].getClassFileBytes() < results[0].getClassFileBytes());
+        assertTrue(results[1].getConstantPoolEntries() < results[0].getConstantPoolEntries());
+        assertTrue(results[1].getClassInitNanos() >= 0);
+        assertTrue(results[1].getLoadedClasses() > 0);
+        assertTrue(results[1].getStartupNanos() > 0);
+        assertTrue(results[1].getWorkloadNanos() > 0);
+        String report = new String(Files.readAllBytes(new File(folder.getRoot(), "work/report.csv").toPath()), StandardCharsets.UTF_8);
+        assertTrue(report.startsWith("metric,original,reduced\nclass_file_bytes,"));
+    }
+
+    @Test
+    public void removingATestedMethodFailsTheTests() throws IOException {
+        File reduced = folder.newFolder("output");
+        write(reduced, CALC.replace("    public static int add(int a, int b) { return a + b; }\n", ""), "Calc.java");
+
+        ReductionVerifier verifier = verifier(reduced);
+        Result result = verifier.measure("reduced", verifier.compileReduced());
+
+        assertEquals(1, result.getTestsRun());
+        assertEquals(1, result.getFailures());
+    }
+
+    private ReductionVerifier verifier(File reduced) {
+        ReductionVerifier verifier = new ReductionVerifier(original.getPath(), reduced.getPath(), tests.getPath(),
+                new File(folder.getRoot(), "work").getPath());
+        verifier.setPackageName("p");
+        verifier.setRepetitions(1, 1);
+        return verifier;
+    }
+
+    private static File write(File root, String source, String name) throws IOException {
+        File file = new File(new File(root, "p"), name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static void compile(File source, File classes, String classPath) {
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null,
+                "-nowarn", "-d", classes.getPath(), "-cp", classPath, source.getPath()));
+    }
+
+}
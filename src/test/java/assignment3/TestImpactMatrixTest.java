@@ -0,0 +1,66 @@
+package assignment3;
+
+import static org.junit.Assert.*;
+import classes.Calculator;
+import classes.Calculator2;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestImpactMatrixTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestImpactMatrix matrix;
+
+    @Before
+    public void instantiate() throws Exception {
+        CoverageFixture fixture = new CoverageFixture(folder.getRoot())
+                .addClass(Calculator.class)
+                .addClass(Calculator2.class);
+        fixture.writeExecFile("addTest", Calculator.class, "add");
+        fixture.writeExecFile("multiplyTest", Calculator.class, "multiply");
+        fixture.writeExecFile("substractTest", Calculator2.class, "substract");
+        matrix = new JuncoProcessor(Collections.<String>emptyList(), fixture.getCoveragePath(), fixture.getClassesPath()).processMatrix();
+    }
+
+    @Test
+    public void changedMethodsSelectTheTestsThatCoverThem() {
+        assertEquals(Arrays.asList("addTest"), list(matrix.selectTests(Arrays.asList("classes.Calculator#add"))));
+        assertEquals(Arrays.asList("addTest"), list(matrix.selectTests(Arrays.asList("classes.Calculator#add(DD)D"))));
+        assertTrue(matrix.selectTests(Arrays.asList("classes.Calculator#add(II)I")).isEmpty());
+        assertTrue(matrix.selectTests(Arrays.asList("classes.Calculator#divide")).isEmpty());
+    }
+
+    @Test
+    public void changedClassesSelectTheTestsThatCoverAnyOfTheirMethods() {
+        assertEquals(Arrays.asList("addTest", "multiplyTest"), list(matrix.selectTests(Arrays.asList("classes.Calculator"))));
+        assertEquals(Arrays.asList("addTest", "multiplyTest", "substractTest"),
+                list(matrix.selectTests(Arrays.asList("classes/Calculator", "classes.Calculator2#substract"))));
+    }
+
+    @Test
+    public void savedMatrixSelectsTheSameTests() throws Exception {
+        File file = new File(folder.getRoot(), "matrix.bin");
+        matrix.save(file);
+
+        TestImpactMatrix loaded = TestImpactMatrix.load(file);
+
+        assertEquals(matrix.getTests(), loaded.getTests());
+        assertEquals(matrix.getMethodCount(), loaded.getMethodCount());
+        assertEquals(matrix.selectTests(Arrays.asList("classes.Calculator#multiply")), loaded.selectTests(Arrays.asList("classes.Calculator#multiply")));
+    }
+
+    private static List<String> list(Collection<String> tests) {
+        return new ArrayList<>(tests);
+    }
+
+}
@@ -0,0 +1,165 @@
+package assignment3;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.ByteArrayOutputStream;
+
+/**
+ * Benchmark of the exact-size IOUtils.toByteArray and
+ * FileUtils.readFileToByteArray against the reads they replace: a copy into a
+ * ByteArrayOutputStream for a stream of unknown size, and a stream read into
+ * an array of the file length for a file. It reports, per read, the time, the
+ * bytes allocated by the current thread and the peak heap usage above the
+ * usage before the read.
+ *
+ * Usage: ToByteArrayBenchmark [megabytes] [iterations]
+ *
+ * @author Cesar Soto-Valero
+ */
+public class ToByteArrayBenchmark {
+
+    public static void main(String[] args) throws IOException {
+
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        File dir = Files.createTempDirectory("junco-read").toFile();
+        try {
+            final File file = new File(dir, "data.bin");
+            byte[] data = new byte[megabytes * 1024 * 1024];
+            new Random(42).nextBytes(data);
+            FileUtils.writeByteArrayToFile(file, data);
+            data = null;
+
+            Read[] reads = {
+                new Read("file, stream into an array of the file length") {
+                    @Override
+                    byte[] run() throws IOException {
+                        try (InputStream in = new FileInputStream(file)) {
+                            return IOUtils.toByteArray(in, file.length());
+                        }
+                    }
+                },
+                new Read("file, readFileToByteArray") {
+                    @Override
+                    byte[] run() throws IOException {
+                        return FileUtils.readFileToByteArray(file);
+                    }
+                },
+                new Read("unknown size, copy into a ByteArrayOutputStream") {
+                    @Override
+                    byte[] run() throws IOException {
+                        try (InputStream in = new BufferedInputStream(new FileInputStream(file));
+                             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+                            IOUtils.copy(in, out);
+                            return out.toByteArray();
+                        }
+                    }
+                },
+                new Read("unknown size, toByteArray") {
+                    @Override
+                    byte[] run() throws IOException {
+                        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                            return IOUtils.toByteArray(in);
+                        }
+                    }
+                }
+            };
+
+            // warm up every read once
+            for (Read read : reads) {
+                read.measure(1, file.length());
+            }
+            for (Read read : reads) {
+                read.measure(iterations, file.length());
+                System.out.printf("%s: %d ms/op, %d MB allocated/op, %d MB peak heap%n",
+                        read.name, read.nanos / iterations / 1000000, read.allocated / iterations >> 20, read.peak >> 20);
+            }
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    /**
+     * The bytes allocated by the current thread since it started
+     */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Collects the garbage and resets the peak usage of the heap
+     *
+     * @return The heap usage after the collection
+     */
+    private static long resetHeap() {
+        System.gc();
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * The sum of the peak usages of the heap pools since they were reset
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private abstract static class Read {
+
+        private final String name;
+
+        private long nanos;
+
+        private long allocated;
+
+        private long peak;
+
+        Read(String name) {
+            this.name = name;
+        }
+
+        abstract byte[] run() throws IOException;
+
+        void measure(int iterations, long length) throws IOException {
+            nanos = 0;
+            allocated = 0;
+            peak = 0;
+            for (int i = 0; i < iterations; i++) {
+                long used = resetHeap();
+                long bytes = allocatedBytes();
+                long start = System.nanoTime();
+                if (run().length != length) {
+                    throw new IllegalStateException("wrong length");
+                }
+                nanos += System.nanoTime() - start;
+                allocated += allocatedBytes() - bytes;
+                peak = Math.max(peak, peakHeap() - used);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.io.testtools.TestUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * JUnit Test Case for {@link FileContentDiff} and {@link FileUtils#indexOfDifference(File, File)}.
+ */
+public class FileContentDiffTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private byte[] data;
+
+    private File file1;
+
+    private File file2;
+
+    @Before
+    public void setUp() throws IOException {
+        data = new byte[100000];
+        new Random(1).nextBytes(data);
+        file1 = temporaryFolder.newFile("file1.bin");
+        file2 = temporaryFolder.newFile("file2.bin");
+        FileUtils.writeByteArrayToFile(file1, data);
+    }
+
+    @Test
+    public void testIndexOfDifferenceRead() throws IOException {
+        assertDifferences(new FileContentDiff(Long.MAX_VALUE, 4096));
+    }
+
+    @Test
+    public void testIndexOfDifferenceMappedInOneWindow() throws IOException {
+        assertDifferences(new FileContentDiff(0, data.length));
+    }
+
+    @Test
+    public void testIndexOfDifferenceMappedInParallel() throws IOException {
+        // 25 windows, some of them ending in the middle of a long
+        assertDifferences(new FileContentDiff(0, 4001));
+    }
+
+    @Test
+    public void testIndexOfDifferenceMappedOnTheCallersPool() throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertDifferences(new FileContentDiff(0, 4001, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testIndexOfDifferenceFirstOfSeveral() throws IOException {
+        final byte[] other = data.clone();
+        for (int i = 90000; i > 5000; i -= 5000) {
+            other[i]++;
+        }
+        FileUtils.writeByteArrayToFile(file2, other);
+        assertEquals(10000, new FileContentDiff(0, 1000).indexOfDifference(file1, file2));
+    }
+
+    @Test
+    public void testFileUtils() throws IOException {
+        FileUtils.writeByteArrayToFile(file2, data);
+        assertEquals(-1, FileUtils.indexOfDifference(file1, file2));
+        assertEquals(-1, FileUtils.indexOfDifference(file1, file1));
+        assertTrue(FileUtils.contentEquals(file1, file2));
+
+        data[data.length / 2]++;
+        FileUtils.writeByteArrayToFile(file2, data);
+        assertEquals(data.length / 2, FileUtils.indexOfDifference(file1, file2));
+        assertFalse(FileUtils.contentEquals(file1, file2));
+    }
+
+    @Test
+    public void testFilesOfUnknownSize() throws IOException {
+        // files of the proc file system have a length of 0 - see IO-453
+        final File cpuinfo = new File("/proc/cpuinfo");
+        final File version = new File("/proc/version");
+        assumeTrue(cpuinfo.exists() && cpuinfo.length() == 0 && version.exists() && version.length() == 0);
+        assertFalse(FileUtils.contentEquals(cpuinfo, version));
+        assertTrue(FileUtils.contentEquals(version, new File("/proc/self/../version")));
+    }
+
+    @Test
+    public void testFifo() throws Exception {
+        final File fifo = new File(temporaryFolder.getRoot(), "fifo");
+        assumeTrue(TestUtils.createFifo(fifo));
+        final byte[] other = data.clone();
+        // the last byte differs, so that the whole pipe is read
+        other[data.length - 1]++;
+        final Thread writer = TestUtils.writeToFifo(fifo, other);
+        assertEquals(data.length - 1, new FileContentDiff(0, 4096).indexOfDifference(file1, fifo));
+        writer.join();
+    }
+
+    @Test
+    public void testFileThatShrinks() throws IOException {
+        // the second file is shorter than the length taken before it was read
+        FileUtils.writeByteArrayToFile(file2, Arrays.copyOf(data, 30000));
+        try (FileInputStream input1 = new FileInputStream(file1);
+             FileInputStream input2 = new FileInputStream(file2)) {
+            assertEquals(30000, FileContentDiff.compareRead(input1.getChannel(), input2.getChannel(), data.length));
+        }
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testFileUtilsMissingFile() throws IOException {
+        FileUtils.indexOfDifference(file1, new File(temporaryFolder.getRoot(), "missing.bin"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testFileUtilsDirectory() throws IOException {
+        FileUtils.indexOfDifference(file1, temporaryFolder.getRoot());
+    }
+
+    private void assertDifferences(final FileContentDiff diff) throws IOException {
+        FileUtils.writeByteArrayToFile(file2, data);
+        assertEquals(-1, diff.indexOfDifference(file1, file2));
+
+        for (final int index : new int[] {0, 7, 8, 4000, 4001, 50003, data.length - 1}) {
+            final byte[] other = data.clone();
+            other[index]++;
+            FileUtils.writeByteArrayToFile(file2, other);
+            assertEquals(index, diff.indexOfDifference(file1, file2));
+        }
+
+        FileUtils.writeByteArrayToFile(file2, Arrays.copyOf(data, 30000));
+        assertEquals(30000, diff.indexOfDifference(file1, file2));
+        assertEquals(30000, diff.indexOfDifference(file2, file1));
+
+        FileUtils.writeByteArrayToFile(file2, new byte[0]);
+        assertEquals(0, diff.indexOfDifference(file1, file2));
+        assertEquals(-1, diff.indexOfDifference(file2, file2));
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.CharArrayReader;
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test Case for the block-wise {@link IOUtils#contentEquals(InputStream, InputStream)}
+ * and {@link IOUtils#contentEquals(Reader, Reader)}.
+ */
+public class IOUtilsContentEqualsTest {
+
+    private byte[] bytes;
+
+    private char[] chars;
+
+    @Before
+    public void setUp() {
+        bytes = new byte[10000];
+        new Random(1).nextBytes(bytes);
+        chars = new char[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i] = (char) bytes[i];
+        }
+    }
+
+    @Test
+    public void testContentEqualsInputStream() throws IOException {
+        assertTrue(IOUtils.contentEquals(new ByteArrayInputStream(bytes), new ByteArrayInputStream(bytes.clone())));
+        assertTrue(IOUtils.contentEquals(new ByteArrayInputStream(new byte[0]), new ByteArrayInputStream(new byte[0])));
+        // a stream that returns a single byte per read is compared with one that fills the blocks
+        assertTrue(IOUtils.contentEquals(new OneByteInputStream(bytes), new ByteArrayInputStream(bytes)));
+
+        for (final int index : new int[] {0, 2047, 2048, 4095, bytes.length - 1}) {
+            final byte[] other = bytes.clone();
+            other[index]++;
+            assertFalse("difference at " + index,
+                    IOUtils.contentEquals(new ByteArrayInputStream(bytes), new OneByteInputStream(other)));
+        }
+        assertFalse(IOUtils.contentEquals(new ByteArrayInputStream(bytes),
+                new OneByteInputStream(Arrays.copyOf(bytes, 4096))));
+        assertFalse(IOUtils.contentEquals(new OneByteInputStream(Arrays.copyOf(bytes, bytes.length + 1)),
+                new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void testContentEqualsInputStreamWithKnownLengths() throws IOException {
+        final ByteArrayInputStream input1 = new ByteArrayInputStream(bytes);
+        final ByteArrayInputStream input2 = new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1));
+        assertFalse(IOUtils.contentEquals(input1, input2));
+        // neither stream was read
+        assertEquals(bytes.length, input1.available());
+        assertEquals(bytes.length - 1, input2.available());
+    }
+
+    @Test
+    public void testContentEqualsReader() throws IOException {
+        assertTrue(IOUtils.contentEquals(new CharArrayReader(chars), new OneCharReader(chars.clone())));
+        assertTrue(IOUtils.contentEquals(new CharArrayReader(new char[0]), new CharArrayReader(new char[0])));
+
+        for (final int index : new int[] {0, 2047, 2048, chars.length - 1}) {
+            final char[] other = chars.clone();
+            other[index]++;
+            assertFalse("difference at " + index,
+                    IOUtils.contentEquals(new OneCharReader(other), new CharArrayReader(chars)));
+        }
+        assertFalse(IOUtils.contentEquals(new CharArrayReader(chars),
+                new CharArrayReader(Arrays.copyOf(chars, chars.length + 1))));
+    }
+
+    /**
+     * A stream that returns at most one byte per read.
+     */
+    private static class OneByteInputStream extends FilterInputStream {
+
+        OneByteInputStream(final byte[] data) {
+            super(new ByteArrayInputStream(data));
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            return super.read(b, off, Math.min(len, 1));
+        }
+    }
+
+    /**
+     * A reader that returns at most one char per read.
+     */
+    private static class OneCharReader extends FilterReader {
+
+        OneCharReader(final char[] data) {
+            super(new CharArrayReader(data));
+        }
+
+        @Override
+        public int read(final char[] b, final int off, final int len) throws IOException {
+            return super.read(b, off, Math.min(len, 1));
+        }
+    }
+
+}
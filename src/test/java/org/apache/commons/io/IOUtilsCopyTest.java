@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.io.testtools.TestUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * JUnit Test Case for the copy of file streams by {@link IOUtils}, which
+ * transfers the bytes between their channels.
+ */
+public class IOUtilsCopyTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private byte[] data;
+
+    private File source;
+
+    private File target;
+
+    @Before
+    public void setUp() throws IOException {
+        data = new byte[100000];
+        new Random(1).nextBytes(data);
+        source = temporaryFolder.newFile("source.bin");
+        target = temporaryFolder.newFile("target.bin");
+        FileUtils.writeByteArrayToFile(source, data);
+    }
+
+    @Test
+    public void testCopyLargeFileStreams() throws IOException {
+        try (FileInputStream in = new FileInputStream(source);
+             FileOutputStream out = new FileOutputStream(target)) {
+            assertEquals(10, in.skip(10));
+            out.write(data, 0, 10);
+            assertEquals(data.length - 10, IOUtils.copyLarge(in, out));
+            assertEquals(-1, in.read());
+            assertEquals(data.length, out.getChannel().position());
+        }
+        assertArrayEquals(data, FileUtils.readFileToByteArray(target));
+    }
+
+    @Test
+    public void testCopyLargeFileStreamsWithOffsetAndLength() throws IOException {
+        try (FileInputStream in = new FileInputStream(source);
+             FileOutputStream out = new FileOutputStream(target)) {
+            assertEquals(50000, IOUtils.copyLarge(in, out, 1000, 50000));
+            // the input is left after the copied bytes
+            assertEquals(data[51000] & 0xff, in.read());
+        }
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, 51000), FileUtils.readFileToByteArray(target));
+    }
+
+    @Test
+    public void testCopyLargeFileStreamsPastTheEnd() throws IOException {
+        try (FileInputStream in = new FileInputStream(source);
+             FileOutputStream out = new FileOutputStream(target, true)) {
+            assertEquals(100, IOUtils.copyLarge(in, out, data.length - 100, 1000));
+            assertEquals(0, IOUtils.copyLarge(in, out));
+        }
+        assertArrayEquals(Arrays.copyOfRange(data, data.length - 100, data.length), FileUtils.readFileToByteArray(target));
+    }
+
+    @Test
+    public void testCopyLargeFromPipe() throws Exception {
+        final File fifo = new File(temporaryFolder.getRoot(), "fifo");
+        assumeTrue(TestUtils.createFifo(fifo));
+        final Thread writer = TestUtils.writeToFifo(fifo, data);
+        // the channel of a pipe cannot be positioned, so the stream is copied
+        try (FileInputStream in = new FileInputStream(fifo);
+             FileOutputStream out = new FileOutputStream(target)) {
+            assertEquals(data.length, IOUtils.copyLarge(in, out));
+        }
+        writer.join();
+        assertArrayEquals(data, FileUtils.readFileToByteArray(target));
+    }
+
+    @Test
+    public void testCopyLargeSubclassIsRead() throws IOException {
+        final int[] reads = new int[1];
+        try (FileInputStream in = new FileInputStream(source) {
+                @Override
+                public int read(final byte[] b) throws IOException {
+                    reads[0]++;
+                    return super.read(b);
+                }
+            };
+             FileOutputStream out = new FileOutputStream(target)) {
+            assertEquals(data.length, IOUtils.copyLarge(in, out));
+        }
+        assertTrue(reads[0] > 0);
+        assertArrayEquals(data, FileUtils.readFileToByteArray(target));
+    }
+
+    @Test
+    public void testNestedCopiesOnTheSameThread() throws IOException {
+        // a stream that copies another stream after each read, into the buffer of the
+        // enclosing copy if it were shared
+        final byte[] other = new byte[data.length];
+        Arrays.fill(other, (byte) 0x55);
+        final InputStream in = new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(final byte[] b, final int off, final int len) {
+                final int n = super.read(b, off, len);
+                try {
+                    IOUtils.copy(new ByteArrayInputStream(other, 0, len), new ByteArrayOutputStream());
+                } catch (final IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                return n;
+            }
+        };
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(data.length, IOUtils.copyLarge(in, out));
+        assertArrayEquals(data, out.toByteArray());
+        assertEquals(10, IOUtils.skip(new ByteArrayInputStream(data), 10));
+    }
+
+}
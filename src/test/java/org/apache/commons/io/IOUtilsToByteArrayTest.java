@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.io.testtools.TestUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * JUnit Test Case for {@link IOUtils#toByteArray(InputStream)} and
+ * {@link FileUtils#readFileToByteArray(File)}.
+ */
+public class IOUtilsToByteArrayTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private byte[] data;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        // larger than the blocks read from a channel
+        data = new byte[3 * 1024 * 1024 + 5];
+        new Random(1).nextBytes(data);
+        file = temporaryFolder.newFile("data.bin");
+        FileUtils.writeByteArrayToFile(file, data);
+    }
+
+    @Test
+    public void testToByteArrayFileInputStream() throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+            assertEquals(-1, in.read());
+        }
+        try (FileInputStream in = new FileInputStream(file)) {
+            assertEquals(1000, in.skip(1000));
+            assertArrayEquals(Arrays.copyOfRange(data, 1000, data.length), IOUtils.toByteArray(in));
+        }
+        assertArrayEquals(data, FileUtils.readFileToByteArray(file));
+    }
+
+    @Test
+    public void testToByteArrayEmptyFile() throws IOException {
+        final File empty = temporaryFolder.newFile("empty.bin");
+        try (FileInputStream in = new FileInputStream(empty)) {
+            assertEquals(0, IOUtils.toByteArray(in).length);
+        }
+        assertEquals(0, FileUtils.readFileToByteArray(empty).length);
+    }
+
+    @Test
+    public void testReadFileToByteArrayWithUnknownLength() throws IOException {
+        // files of the proc file system have a length of 0 - see IO-453
+        final File status = new File("/proc/self/status");
+        assumeTrue(status.exists() && status.length() == 0);
+        assertTrue(FileUtils.readFileToByteArray(status).length > 0);
+    }
+
+    @Test
+    public void testToByteArrayFromPipe() throws Exception {
+        final File fifo = new File(temporaryFolder.getRoot(), "fifo");
+        assumeTrue(TestUtils.createFifo(fifo));
+        // the channel of a pipe cannot be positioned, so the stream is read
+        Thread writer = TestUtils.writeToFifo(fifo, data);
+        try (FileInputStream in = new FileInputStream(fifo)) {
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+        }
+        writer.join();
+
+        writer = TestUtils.writeToFifo(fifo, data);
+        assertArrayEquals(data, FileUtils.readFileToByteArray(fifo));
+        writer.join();
+    }
+
+    @Test
+    public void testToByteArrayOtherStreams() throws IOException {
+        assertArrayEquals(data, IOUtils.toByteArray(new ByteArrayInputStream(data)));
+        assertEquals(0, IOUtils.toByteArray(new ByteArrayInputStream(new byte[0])).length);
+        // a subclass is read as a stream
+        final InputStream in = new FilterInputStream(new ByteArrayInputStream(data)) {
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1000));
+            }
+        };
+        assertArrayEquals(data, IOUtils.toByteArray(in));
+    }
+
+}
@@ -238,4 +238,42 @@ public abstract class TestUtils {
         }
     }
 
+    /**
+     * Creates a named pipe with <code>mkfifo</code>.
+     *
+     * @param file the pipe to create
+     * @return true if the pipe was created, false if the system has no <code>mkfifo</code>
+     * @throws InterruptedException if interrupted
+     */
+    public static boolean createFifo(final File file) throws InterruptedException {
+        try {
+            return new ProcessBuilder("mkfifo", file.getAbsolutePath()).start().waitFor() == 0;
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes data to a named pipe from a new thread, which waits until the pipe
+     * is opened for reading.
+     *
+     * @param fifo the pipe
+     * @param data the data to write
+     * @return the started thread
+     */
+    public static Thread writeToFifo(final File fifo, final byte[] data) {
+        final Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try (final OutputStream output = new FileOutputStream(fifo)) {
+                    output.write(data);
+                } catch (final IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        writer.start();
+        return writer;
+    }
+
 }